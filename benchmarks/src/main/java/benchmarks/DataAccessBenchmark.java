@@ -0,0 +1,84 @@
+package benchmarks;
+
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemoryDataAccess calls made per request, at a few table sizes so lookups that scan
+ * every auth token show up as they grow
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataAccessBenchmark {
+
+    @Param({"10", "1000"})
+    public int users;
+
+    private MemoryDataAccess dataAccess;
+    private String[] authTokens;
+    private Double[] gameIDs;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws DataAccessException {
+        dataAccess = new MemoryDataAccess();
+        authTokens = new String[users];
+        gameIDs = new Double[users];
+        for (int i = 0; i < users; i++) {
+            authTokens[i] = dataAccess.addUser(new UserData("user" + i, "password", "user" + i + "@mail.com"))
+                    .authToken();
+            gameIDs[i] = dataAccess.createGame("game" + i);
+        }
+    }
+
+    private int nextIndex() {
+        next = next + 1 == users ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public boolean checkAuth() {
+        return dataAccess.checkAuth(authTokens[nextIndex()]);
+    }
+
+    @Benchmark
+    public AuthData getUserByAuth() {
+        return dataAccess.getUser(authTokens[nextIndex()], 1);
+    }
+
+    @Benchmark
+    public UserData getUser() {
+        return dataAccess.getUser("user" + nextIndex());
+    }
+
+    @Benchmark
+    public GameData getGame() {
+        return dataAccess.getGame(gameIDs[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<GameData> listGames() {
+        return dataAccess.listGames();
+    }
+
+    /**
+     * Login followed by logout, so the auth table stays the same size
+     */
+    @Benchmark
+    public AuthData loginLogout() {
+        AuthData auth = dataAccess.addAuth("user" + nextIndex());
+        dataAccess.deleteAuth(auth.authToken());
+        return auth;
+    }
+}
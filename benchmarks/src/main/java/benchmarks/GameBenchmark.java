@@ -0,0 +1,141 @@
+package benchmarks;
+
+import chess.AttackMap;
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import chess.Moves;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rules engine hot paths: move generation, making a move, checkmate detection and
+ * board copies, measured on a few of the perft reference positions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    @Param({"START", "KIWIPETE", "MIDDLEGAME"})
+    public Perft.ReferencePosition position;
+
+    @Param({"LEGACY", "BITBOARD"})
+    public ChessGame.MoveGeneration moveGeneration;
+
+    private ChessGame game;
+    private ChessPosition[] ownPieces;
+    private ChessMove move;
+    private ChessGame.TeamColor side;
+    private final AttackMap attackMap = new AttackMap();
+    private final int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp() {
+        game = position.game();
+        game.setMoveGeneration(moveGeneration);
+        side = game.getTeamTurn();
+        ChessBoard board = game.getBoard();
+        List<ChessPosition> pieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == side) {
+                    pieces.add(square);
+                }
+            }
+        }
+        ownPieces = pieces.toArray(new ChessPosition[0]);
+        // a quiet first move keeps the sticky check flags out of the picture
+        String first = Perft.divide(game, 1).keySet().iterator().next();
+        move = new ChessMove(square(first, 0), square(first, 2), null);
+    }
+
+    /**
+     * Legal moves of every piece of the side to move, the work behind a highlight request
+     */
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition square : ownPieces) {
+            blackhole.consume(game.validMoves(square));
+        }
+    }
+
+    /**
+     * One validated move including the status, clock and repetition checks, on a fresh
+     * copy of the position every call
+     */
+    @Benchmark
+    public void makeMove(Fresh fresh) throws InvalidMoveException {
+        fresh.game.makeMove(move);
+    }
+
+    /**
+     * Every legal move of the side to move as ChessMove objects, through the packed
+     * generator, a reused attack map and the shared position/move instances. This is the
+     * path a search takes and should report no allocation under -prof gc.
+     */
+    @Benchmark
+    public void legalMoveSweep(Blackhole blackhole) {
+        ChessBoard board = game.getBoard();
+        attackMap.reset(board, side);
+        int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (attackMap.isLegal(moves[i])) {
+                blackhole.consume(Moves.toChessMove(moves[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(side);
+    }
+
+    @Benchmark
+    public ChessBoard boardClone() {
+        return game.getBoard().clone();
+    }
+
+    /**
+     * A copy of the benchmark's game restored before every call, outside the measured
+     * time. Undoing only the board would leave the clocks, the position history and the
+     * draw state to pile up until the game is over.
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+        private byte[] pristine;
+        private ChessGame.MoveGeneration moveGeneration;
+        ChessGame game;
+
+        @Setup(Level.Trial)
+        public void save(GameBenchmark benchmark) {
+            pristine = GameCodec.encode(benchmark.game);
+            moveGeneration = benchmark.moveGeneration;
+        }
+
+        @Setup(Level.Invocation)
+        public void restore() {
+            game = GameCodec.decode(pristine);
+            game.setMoveGeneration(moveGeneration);
+        }
+    }
+
+    private static ChessPosition square(String move, int offset) {
+        return Moves.position((move.charAt(offset + 1) - '1') * 8 + (move.charAt(offset) - 'a'));
+    }
+}
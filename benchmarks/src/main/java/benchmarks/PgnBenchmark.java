@@ -0,0 +1,129 @@
+package benchmarks;
+
+import chess.AttackMap;
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Moves;
+import chess.San;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk PGN import in games per second: reading the text alone, and reading plus
+ * replaying every move on one thread or on all cores. The archive is a file given with
+ * -p archive=path, or by default games of random legal moves generated up front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PgnBenchmark {
+
+    private static final int GENERATED_GAMES = 2_000;
+    private static final int MAX_PLIES = 120;
+
+    @Param({""})
+    public String archive;
+
+    private String pgn;
+    private int threads;
+
+    @Setup
+    public void setUp() throws IOException {
+        pgn = archive.isEmpty() ? generate() : Files.readString(Path.of(archive), StandardCharsets.ISO_8859_1);
+        threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Tokenizing only, the part that stays on the reading thread
+     */
+    @Benchmark
+    public long read(GamesPerOp counter, Blackhole blackhole) throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(pgn));
+        for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+            blackhole.consume(game);
+        }
+        return counter.count(reader.games());
+    }
+
+    @Benchmark
+    public long replay(GamesPerOp counter, Blackhole blackhole) throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(pgn));
+        return counter.count(reader.forEach(1, game -> blackhole.consume(game.replay())));
+    }
+
+    @Benchmark
+    public long replayParallel(GamesPerOp counter, Blackhole blackhole) throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(pgn));
+        return counter.count(reader.forEach(threads, game -> blackhole.consume(game.replay())));
+    }
+
+    /**
+     * Reports games per second next to the operations per second, which depend on the
+     * archive's size
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class GamesPerOp {
+        public long games;
+
+        long count(long read) {
+            games += read;
+            return read;
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            games = 0;
+        }
+    }
+
+    /**
+     * Games of random legal moves from a fixed seed, written out as PGN
+     */
+    private static String generate() {
+        SplittableRandom random = new SplittableRandom(2024);
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < GENERATED_GAMES; i++) {
+            ChessBoard board = new ChessGame().getBoard();
+            List<String> san = new ArrayList<>();
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                AttackMap attackMap = AttackMap.of(board, board.getTeamTurn());
+                int count = BitboardMoveGenerator.allMoves(board, board.getTeamTurn(), moves, 0);
+                int legal = 0;
+                for (int m = 0; m < count; m++) {
+                    if (attackMap.isLegal(moves[m])) {
+                        moves[legal++] = moves[m];
+                    }
+                }
+                if (legal == 0) {
+                    break;
+                }
+                int move = moves[random.nextInt(legal)];
+                san.add(San.format(board, move));
+                board.makeMove(move);
+            }
+            out.append(PgnWriter.format(new PgnGame(Map.of("Round", String.valueOf(i + 1)), san, "*")));
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
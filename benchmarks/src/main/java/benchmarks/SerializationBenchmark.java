@@ -0,0 +1,99 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import chess.Perft;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+import webmodel.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson cost of the two payloads the server handles on every move: the ChessGame stored
+ * in the games table and the LoadGameMessage broadcast to the players, next to the
+ * binary GameCodec that can stand in for both. Setup prints the sizes of each form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final Type GAME_TYPE = new TypeToken<ChessGame>() { }.getType();
+
+    @Param({"START", "KIWIPETE"})
+    public Perft.ReferencePosition position;
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String gameJson;
+    private LoadGameMessage loadMessage;
+    private String loadMessageJson;
+    private byte[] gameBytes;
+
+    @Setup
+    public void setUp() {
+        game = position.game();
+        gameJson = gson.toJson(game);
+        loadMessage = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME,
+                new HashMap<>(game.getBoard().getAllPieces()));
+        loadMessageJson = gson.toJson(loadMessage);
+        gameBytes = GameCodec.encode(game);
+        String compactMessage = gson.toJson(new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, null,
+                null, GameCodec.encodeToString(game)));
+        System.out.printf("%n%s: game %d bytes as JSON, %d encoded; LOAD_GAME %d bytes, %d encoded%n", position,
+                gameJson.length(), gameBytes.length, loadMessageJson.length(), compactMessage.length());
+    }
+
+    @Benchmark
+    public byte[] gameEncode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame gameDecode() {
+        return GameCodec.decode(gameBytes);
+    }
+
+    @Benchmark
+    public ChessGame gameCodecRoundTrip() {
+        return GameCodec.decode(GameCodec.encode(game));
+    }
+
+    @Benchmark
+    public String gameToJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gameFromJson() {
+        return gson.fromJson(gameJson, GAME_TYPE);
+    }
+
+    @Benchmark
+    public ChessGame gameRoundTrip() {
+        return gson.fromJson(gson.toJson(game), GAME_TYPE);
+    }
+
+    @Benchmark
+    public String loadGameToJson() {
+        return gson.toJson(loadMessage);
+    }
+
+    @Benchmark
+    public LoadGameMessage loadGameRoundTrip() {
+        return gson.fromJson(gson.toJson(loadMessage), LoadGameMessage.class);
+    }
+
+    @Benchmark
+    public LoadGameMessage loadGameFromJson() {
+        return gson.fromJson(loadMessageJson, LoadGameMessage.class);
+    }
+}
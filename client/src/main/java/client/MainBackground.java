@@ -25,6 +25,7 @@ public class MainBackground {
     boolean loggedIn = false;
     private String playerColor = null;
     private String highlightPosition;
+    private boolean observing = false;
     private final MainHelper help = new MainHelper();
 
     public MainBackground(String serverName) throws Exception {
@@ -298,6 +299,33 @@ public class MainBackground {
         System.out.println(SET_TEXT_COLOR_BLACK + letters + "\n");
     }
 
+    public void bookMovePrinter(Collection<ChessMove> bookMoves) {
+        if (bookMoves.isEmpty()) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("Book moves:");
+        for (ChessMove move : bookMoves) {
+            line.append(' ').append(squareName(move.getStartPosition())).append(squareName(move.getEndPosition()));
+        }
+        System.out.println(SET_BG_COLOR_BLACK + SET_TEXT_COLOR_YELLOW + line + "\n");
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
+    public void evaluationPrinter(int evaluation) {
+        if (!observing) {
+            return;
+        }
+        // one block per half pawn, capped at four pawns either way
+        int blocks = Math.max(-8, Math.min(8, evaluation / 50));
+        String bar = SET_BG_COLOR_WHITE + " ".repeat(8 + blocks) + SET_BG_COLOR_BLACK + " ".repeat(8 - blocks);
+        String leader = evaluation > 0 ? "White" : evaluation < 0 ? "Black" : "Even";
+        String pawns = evaluation == 0 ? "" : String.format(" +%.1f", Math.abs(evaluation) / 100.0);
+        System.out.println(bar + SET_BG_COLOR_BLACK + SET_TEXT_COLOR_WHITE + " " + leader + pawns + "\n");
+    }
+
     private boolean tileColor(int i, int j) {
         boolean iCheck = (i % 2 == 0);
         boolean jCheck = (j % 2 == 0);
@@ -337,6 +365,7 @@ public class MainBackground {
     public void gameMode(String gameID, boolean observer, Scanner scanner) {
         var gson = new Gson();
         String cR = SET_TEXT_COLOR_YELLOW + SET_BG_COLOR_DARK_GREEN; //cR stands for command Request
+        observing = observer;
         try {
             String wsUrl = serverUrl.replace("http", "ws") + "/ws";
 
@@ -357,6 +386,7 @@ public class MainBackground {
                 }
             }
             var command = new UserGameCommand(commandType, userAuth, Integer.parseInt(gameID), playerColor);
+            command.setCompactGame(true);
             var startGame = gson.toJson(command);
             webSocket.sendText(startGame, true);
         } catch (Exception ex) {
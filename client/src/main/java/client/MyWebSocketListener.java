@@ -2,6 +2,7 @@ package client;
 
 import chess.ChessMove;
 import chess.ChessPiece;
+import chess.GameCodec;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -55,11 +56,21 @@ class MyWebSocketListener implements WebSocket.Listener {
                     Type type = new TypeToken<Map<String, ChessPiece>>() {
                     }.getType();
 
-                    JsonObject allPiecesMap = root.getAsJsonObject().getAsJsonObject("game");
-
-                    Map<String, ChessPiece> progress = gson.fromJson(allPiecesMap, type);
+                    JsonElement encodedGame = root.getAsJsonObject().get("encodedGame");
+                    Map<String, ChessPiece> progress;
+                    if (encodedGame != null && !encodedGame.isJsonNull()) {
+                        progress = GameCodec.decodeString(encodedGame.getAsString()).getBoard().getAllPieces();
+                    } else {
+                        JsonObject allPiecesMap = root.getAsJsonObject().getAsJsonObject("game");
+                        progress = gson.fromJson(allPiecesMap, type);
+                    }
 
                     this.thisInstance.boardPrinterHighlight(progress, false, null);
+
+                    JsonElement evaluation = root.getAsJsonObject().get("evaluation");
+                    if (evaluation != null && !evaluation.isJsonNull()) {
+                        this.thisInstance.evaluationPrinter(evaluation.getAsInt());
+                    }
                 }
                 case ERROR, NOTIFICATION -> {
                     String message = "";
@@ -87,6 +98,12 @@ class MyWebSocketListener implements WebSocket.Listener {
                     Collection<ChessMove> moves = gson.fromJson(vMoves, type);
 
                     this.thisInstance.boardPrinterHighlight(progress, true, moves);
+
+                    var bMoves = root.getAsJsonObject().get("bookMoves");
+                    if (bMoves != null && !bMoves.isJsonNull()) {
+                        Collection<ChessMove> bookMoves = gson.fromJson(bMoves, type);
+                        this.thisInstance.bookMovePrinter(bookMoves);
+                    }
                 }
             }
         }
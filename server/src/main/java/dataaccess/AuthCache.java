@@ -0,0 +1,126 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which user an auth token belongs to, and which tokens belong to no one, so
+ * a websocket message costs a map lookup rather than a query. Tokens are dropped least
+ * recently used past the size bound and after their time to live, which for unknown
+ * tokens is kept short. Logging out removes the token at once; the time to live bounds
+ * how long a token removed by another server stays usable here.
+ */
+public final class AuthCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return the token's user, null if the token is not logged in
+         */
+        AuthData load(String auth) throws DataAccessException;
+    }
+
+    /**
+     * @param negativeHits lookups answered with "not logged in" from the cache
+     */
+    public record Metrics(long hits, long negativeHits, long misses, long evictions, int size) {
+    }
+
+    private final int maxTokens;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<String, Entry> tokens;
+    /**
+     * Counts invalidations, so a lookup that raced with one does not store what it read
+     * before the token was removed
+     */
+    private long generation;
+
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param ttlMillis         how long a known token is trusted
+     * @param negativeTtlMillis how long an unknown token is remembered as unknown
+     */
+    public AuthCache(int maxTokens, long ttlMillis, long negativeTtlMillis) {
+        this.maxTokens = maxTokens;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AuthCache.this.maxTokens) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the token's user, from the cache or else the loader, null if the token is
+     * not logged in
+     */
+    public AuthData get(String auth, Loader loader) throws DataAccessException {
+        if (auth == null) {
+            return null;
+        }
+        long seen;
+        synchronized (this) {
+            Entry entry = tokens.get(auth);
+            if (entry != null && System.nanoTime() - entry.expiresAt < 0) {
+                if (entry.user == null) {
+                    negativeHits++;
+                } else {
+                    hits++;
+                }
+                return entry.user;
+            }
+            misses++;
+            seen = generation;
+        }
+        AuthData user = loader.load(auth);
+        synchronized (this) {
+            if (generation == seen) {
+                long ttl = user == null ? negativeTtlNanos : ttlNanos;
+                tokens.put(auth, new Entry(user, System.nanoTime() + ttl));
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Remembers a token just handed out, replacing anything cached for it
+     */
+    public synchronized void put(AuthData auth) {
+        generation++;
+        tokens.put(auth.authToken(), new Entry(auth, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(String auth) {
+        generation++;
+        tokens.remove(auth);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        tokens.clear();
+    }
+
+    public synchronized Metrics metrics() {
+        return new Metrics(hits, negativeHits, misses, evictions, tokens.size());
+    }
+
+    /**
+     * @param user null for a token that is not logged in
+     */
+    private record Entry(AuthData user, long expiresAt) {
+    }
+}
@@ -0,0 +1,510 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the games being played and the logged in tokens in memory in front of another
+ * DataAccess, so the websocket commands of a game in progress never read the database.
+ * Tokens are looked up through an {@link AuthCache}, which logging out clears at once.
+ * <p>
+ * Callers get a copy of the cached game, which they may change as they like; a move
+ * comes back through recordMove and replaces the cached game if it was made on the
+ * latest one, otherwise it is refused as played on a stale game. Changes to cached games
+ * are written to the database by one background thread in the order they were made, in
+ * batches of whatever queued up while the last batch was written. With durable set a
+ * call returns once its batch is written, without it as soon as it is queued.
+ * <p>
+ * The least recently used game is dropped past maxGames, and any game not read or
+ * changed for the time to live, but never one with writes still queued. Users and
+ * games not in the cache go straight to the database.
+ * <p>
+ * When a write fails its game is dropped, the writes queued after it for that game fail
+ * without running, and new changes to it are refused until it is read again, so the
+ * moves stored never skip a ply.
+ */
+public class CachingDataAccess implements DataAccess, AutoCloseable {
+
+    /**
+     * @param pendingWrites changes queued and not yet written
+     * @param failedWrites  changes the database refused or that were queued behind one,
+     *                      their games were dropped from the cache so the next read sees
+     *                      what was stored
+     */
+    public record Metrics(long hits, long misses, long evictions, int cachedGames, int pendingWrites,
+                          long writes, long batches, long failedWrites) {
+    }
+
+    private static final int MAX_BATCH = 256;
+    private static final String STALE = "Error: the game changed, load it again";
+
+    private final DataAccess delegate;
+    private final int maxGames;
+    private final long ttlNanos;
+    private final boolean durable;
+    private final AuthCache auths;
+
+    /**
+     * In access order, least recently used first
+     */
+    private final LinkedHashMap<Double, Entry> games = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Games dropped after a failed write and not read since, guarded by the lock on games
+     */
+    private final Set<Double> failedGames = new HashSet<>();
+    private final LinkedBlockingQueue<Write> writes = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    /**
+     * @param ttlMillis how long a game stays cached without being read or changed
+     * @param durable   whether changes are written before the call that made them returns
+     */
+    public CachingDataAccess(DataAccess delegate, int maxGames, long ttlMillis, boolean durable, AuthCache auths) {
+        if (maxGames < 1) {
+            throw new IllegalArgumentException("The cache needs room for at least one game");
+        }
+        this.delegate = delegate;
+        this.maxGames = maxGames;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.durable = durable;
+        this.auths = auths;
+        writer = new Thread(this::writeBehind, "game-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void init() throws DataAccessException {
+        delegate.init();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        flush();
+        synchronized (games) {
+            games.clear();
+            failedGames.clear();
+        }
+        delegate.clear();
+        auths.invalidateAll();
+    }
+
+    @Override
+    public AuthData addUser(UserData user) throws DataAccessException {
+        AuthData auth = delegate.addUser(user);
+        auths.put(auth);
+        return auth;
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return delegate.getUser(username);
+    }
+
+    @Override
+    public void setPasswordHash(String username, String hash) throws DataAccessException {
+        delegate.setPasswordHash(username, hash);
+    }
+
+    @Override
+    public AuthData getUser(String auth, Integer filler) throws DataAccessException {
+        return auths.get(auth, token -> delegate.getUser(token, filler));
+    }
+
+    @Override
+    public AuthData addAuth(String username) throws DataAccessException {
+        AuthData auth = delegate.addAuth(username);
+        auths.put(auth);
+        return auth;
+    }
+
+    @Override
+    public boolean checkAuth(String auth) throws DataAccessException {
+        return getUser(auth, 1) != null;
+    }
+
+    @Override
+    public AuthData getAuth(String username) throws DataAccessException {
+        return delegate.getAuth(username);
+    }
+
+    @Override
+    public void deleteAuth(String auth) throws DataAccessException {
+        delegate.deleteAuth(auth);
+        auths.invalidate(auth);
+    }
+
+    /**
+     * Writes out queued changes first so the list is current
+     */
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        flush();
+        return delegate.listGames();
+    }
+
+    @Override
+    public Double createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(Double gameID) throws DataAccessException {
+        synchronized (games) {
+            Entry entry = games.get(gameID);
+            if (entry != null) {
+                hits.increment();
+                entry.touch();
+                return entry.copy();
+            }
+        }
+        misses.increment();
+        GameData loaded = delegate.getGame(gameID);
+        if (loaded == null) {
+            return null;
+        }
+        Entry entry = new Entry(loaded.gameID(), loaded.whiteUsername(), loaded.blackUsername(), loaded.gameName(),
+                copy(loaded.game()));
+        synchronized (games) {
+            // read after its failed write, so changes may be made to it again
+            failedGames.remove(gameID);
+            Entry raced = games.putIfAbsent(gameID, entry);
+            if (raced != null) {
+                entry = raced;
+            }
+            entry.touch();
+            evictLeastRecentlyUsed();
+            return entry.copy();
+        }
+    }
+
+    /**
+     * Players change rarely, so these write through and drop the cached game
+     */
+    @Override
+    public void joinGame(String username, GameData game) throws DataAccessException {
+        flush();
+        delegate.joinGame(username, game);
+        invalidate(game.gameID());
+    }
+
+    @Override
+    public void dropPlayer(String username, Double gameID) throws DataAccessException {
+        flush();
+        delegate.dropPlayer(username, gameID);
+        invalidate(gameID);
+    }
+
+    @Override
+    public void moveGame(ChessGame game, Double gameID) throws DataAccessException {
+        ChessGame stored = copy(game);
+        Entry entry = update(gameID, stored, false);
+        if (entry == null) {
+            delegate.moveGame(game, gameID);
+            return;
+        }
+        write(entry, dataAccess -> dataAccess.moveGame(stored, gameID));
+    }
+
+    /**
+     * @throws DataAccessException if the move was not made on the latest game, when
+     *                             another move got in first or an earlier one failed to write
+     */
+    @Override
+    public void recordMove(Double gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        ChessGame stored = copy(game);
+        Entry entry = update(gameID, stored, true);
+        if (entry == null) {
+            delegate.recordMove(gameID, move, game);
+            return;
+        }
+        write(entry, dataAccess -> dataAccess.recordMove(gameID, move, stored));
+    }
+
+    @Override
+    public List<ChessMove> getMoves(Double gameID) throws DataAccessException {
+        flush();
+        return delegate.getMoves(gameID);
+    }
+
+    @Override
+    public Integer totalUsers() {
+        return delegate.totalUsers();
+    }
+
+    @Override
+    public Integer totalAuths() {
+        return delegate.totalAuths();
+    }
+
+    @Override
+    public Integer totalGames() {
+        return delegate.totalGames();
+    }
+
+    /**
+     * Waits until every change queued so far is written
+     */
+    public void flush() throws DataAccessException {
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        await(enqueue(null, null));
+    }
+
+    public Metrics metrics() {
+        synchronized (games) {
+            return new Metrics(hits.sum(), misses.sum(), evictions.sum(), games.size(), writes.size(),
+                    written.sum(), batches.sum(), failedWrites.sum());
+        }
+    }
+
+    public AuthCache.Metrics authMetrics() {
+        return auths.metrics();
+    }
+
+    /**
+     * Writes what is queued and stops the writer thread
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (DataAccessException ex) {
+            System.err.println("Failed to write cached games: " + ex.getMessage());
+        }
+        running = false;
+        writer.interrupt();
+    }
+
+    /**
+     * Replaces the cached game and counts a write against it
+     *
+     * @param nextMove whether the game must be one move past the cached one
+     * @return the cached game, null if the game is not cached
+     */
+    private Entry update(Double gameID, ChessGame game, boolean nextMove) throws DataAccessException {
+        synchronized (games) {
+            if (failedGames.contains(gameID)) {
+                throw new DataAccessException(STALE);
+            }
+            Entry entry = games.get(gameID);
+            if (entry == null) {
+                return null;
+            }
+            if (nextMove && SqlDataAccess.plyOf(entry.game) + 1 != SqlDataAccess.plyOf(game)) {
+                throw new DataAccessException(STALE);
+            }
+            entry.game = game;
+            entry.pendingWrites++;
+            entry.touch();
+            return entry;
+        }
+    }
+
+    private void write(Entry entry, Operation operation) throws DataAccessException {
+        CompletableFuture<Void> done = enqueue(entry, operation);
+        if (durable) {
+            await(done);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry, Operation operation) throws DataAccessException {
+        if (!running) {
+            throw new DataAccessException("Error: the game cache is closed");
+        }
+        Write write = new Write(entry, operation, new CompletableFuture<>());
+        writes.add(write);
+        return write.done();
+    }
+
+    private static void await(CompletableFuture<Void> done) throws DataAccessException {
+        try {
+            done.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof DataAccessException cause) {
+                throw cause;
+            }
+            throw new DataAccessException("Error: failed to write the game", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted writing the game", ex);
+        }
+    }
+
+    /**
+     * The writer thread: takes whatever is queued, up to MAX_BATCH, writes it in order
+     * and drops games that have gone unused in between
+     */
+    private void writeBehind() {
+        List<Write> batch = new ArrayList<>(MAX_BATCH);
+        long sweepEvery = Math.max(TimeUnit.MILLISECONDS.toNanos(10), ttlNanos / 4);
+        long lastSweep = System.nanoTime();
+        while (running || !writes.isEmpty()) {
+            try {
+                Write first = writes.poll(Math.max(1, TimeUnit.NANOSECONDS.toMillis(sweepEvery)), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    writes.drainTo(batch, MAX_BATCH - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException ex) {
+                // close() wakes the thread to stop it once the queue is empty
+            }
+            if (System.nanoTime() - lastSweep >= sweepEvery) {
+                evictExpired();
+                lastSweep = System.nanoTime();
+            }
+        }
+    }
+
+    private void writeBatch(List<Write> batch) {
+        batches.increment();
+        for (Write write : batch) {
+            if (write.operation() == null) {
+                write.done().complete(null);
+                continue;
+            }
+            Entry entry = write.entry();
+            boolean failedBefore;
+            synchronized (games) {
+                failedBefore = entry.failed;
+            }
+            Exception failure = null;
+            try {
+                if (failedBefore) {
+                    // writing it would leave a gap where the failed move belongs
+                    throw new DataAccessException(STALE);
+                }
+                write.operation().run(delegate);
+                written.increment();
+            } catch (Exception ex) {
+                failedWrites.increment();
+                if (!durable && !failedBefore) {
+                    System.err.println("Failed to write game " + entry.gameID + ": " + ex.getMessage());
+                }
+                failure = ex;
+            }
+            synchronized (games) {
+                entry.pendingWrites--;
+                if (failure != null && !entry.failed) {
+                    // the database has the last word, read it again on next use
+                    entry.failed = true;
+                    games.remove(entry.gameID, entry);
+                    failedGames.add(entry.gameID);
+                }
+            }
+            // completed once the cache reflects the outcome, so the caller sees it
+            if (failure == null) {
+                write.done().complete(null);
+            } else {
+                write.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void invalidate(Double gameID) {
+        synchronized (games) {
+            games.remove(gameID);
+        }
+    }
+
+    /**
+     * Called holding the lock on games
+     */
+    private void evictLeastRecentlyUsed() {
+        Iterator<Entry> oldest = games.values().iterator();
+        while (games.size() > maxGames && oldest.hasNext()) {
+            if (oldest.next().pendingWrites == 0) {
+                oldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        synchronized (games) {
+            Iterator<Entry> oldest = games.values().iterator();
+            while (oldest.hasNext()) {
+                Entry entry = oldest.next();
+                if (now - entry.lastUsed > ttlNanos && entry.pendingWrites == 0) {
+                    oldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static ChessGame copy(ChessGame game) {
+        return game == null ? null : GameCodec.decode(GameCodec.encode(game));
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(DataAccess dataAccess) throws DataAccessException;
+    }
+
+    /**
+     * @param entry     the cached game the change was made to
+     * @param operation null for a marker that completes once the writes before it are done
+     */
+    private record Write(Entry entry, Operation operation, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * A cached game, guarded by the lock on games
+     */
+    private static final class Entry {
+        final Double gameID;
+        final String whiteUsername;
+        final String blackUsername;
+        final String gameName;
+        ChessGame game;
+        int pendingWrites;
+        long lastUsed;
+        /**
+         * Set once one of its writes failed, the rest queued for it are not run
+         */
+        boolean failed;
+
+        Entry(Double gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+            this.gameID = gameID;
+            this.whiteUsername = whiteUsername;
+            this.blackUsername = blackUsername;
+            this.gameName = gameName;
+            this.game = game;
+        }
+
+        void touch() {
+            lastUsed = System.nanoTime();
+        }
+
+        GameData copy() {
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, CachingDataAccess.copy(game));
+        }
+    }
+}
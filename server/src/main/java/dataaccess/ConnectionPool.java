@@ -0,0 +1,310 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections. Callers use a connection exactly as one from
+ * DriverManager, in a try-with-resources block; closing it hands the real connection
+ * back to the pool instead of ending the session.
+ * <p>
+ * At most maxSize connections are open at once, and a caller waits up to the connection
+ * timeout for one to come back before giving up. Idle connections are reused most
+ * recently used first, checked with isValid when they sat for over a second, and closed
+ * once they sat for the idle timeout, so a quiet server lets the database go. A
+ * connection held longer than the leak threshold is reported once with the stack that
+ * took it.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a real connection to the database
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * @param active   connections handed out and not yet closed
+     * @param idle     open connections waiting in the pool
+     * @param waiting  callers waiting for a connection right now
+     * @param timeouts callers that gave up waiting
+     * @param leaks    connections held past the leak threshold
+     */
+    public record Metrics(int active, int idle, int waiting, long borrowed, long created, long discarded,
+                          long timeouts, long leaks, long totalWaitNanos, long maxWaitNanos) {
+
+        /**
+         * @return the mean wait of every caller, including the ones that timed out
+         */
+        public double averageWaitMillis() {
+            long callers = borrowed + timeouts;
+            return callers == 0 ? 0 : totalWaitNanos / 1e6 / callers;
+        }
+    }
+
+    /**
+     * Idle time after which a connection is checked before it is handed out
+     */
+    private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long connectionTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+
+    private final Semaphore permits;
+    /**
+     * Most recently returned first, so the oldest sit at the end until they are evicted
+     */
+    private final LinkedBlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong waiting = new AtomicLong();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param connectionTimeoutMillis how long a caller waits for a free connection
+     * @param idleTimeoutMillis       how long a connection may sit unused before it is closed
+     * @param leakThresholdMillis     how long a connection may be held before it is reported,
+     *                                0 to not track where connections are taken
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long connectionTimeoutMillis,
+                          long idleTimeoutMillis, long leakThresholdMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("A pool needs room for at least one connection");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        permits = new Semaphore(maxSize, true);
+
+        long period = leakThresholdMillis > 0 ? Math.min(idleTimeoutMillis, leakThresholdMillis) : idleTimeoutMillis;
+        period = Math.max(10, period / 4);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return a connection to close when done with, which puts it back in the pool
+     * @throws SQLTimeoutException if every connection stayed in use for the connection timeout
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", ex);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTimeoutException("No connection came free in " + connectionTimeoutMillis + " ms, all "
+                    + maxSize + " are in use");
+        }
+        try {
+            Connection raw = takeIdle();
+            if (raw == null) {
+                raw = factory.open();
+                created.increment();
+            }
+            borrowed.increment();
+            Lease lease = new Lease(raw);
+            leased.add(lease);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, lease);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    public Metrics metrics() {
+        return new Metrics(leased.size(), idle.size(), (int) waiting.get(), borrowed.sum(), created.sum(),
+                discarded.sum(), timeouts.sum(), leaks.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes the idle connections now and the ones in use as they come back
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        for (Idle connection = idle.pollFirst(); connection != null; connection = idle.pollFirst()) {
+            destroy(connection.connection());
+        }
+    }
+
+    /**
+     * @return an idle connection that still works, null if there is none
+     */
+    private Connection takeIdle() {
+        for (Idle connection = idle.pollFirst(); connection != null; connection = idle.pollFirst()) {
+            if (System.nanoTime() - connection.since() < VALIDATE_AFTER_NANOS || isValid(connection.connection())) {
+                return connection.connection();
+            }
+            destroy(connection.connection());
+        }
+        return null;
+    }
+
+    private void release(Lease lease) {
+        leased.remove(lease);
+        Connection raw = lease.connection;
+        try {
+            if (!raw.getAutoCommit()) {
+                // an unfinished transaction must not carry over to the next caller
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            raw.clearWarnings();
+            if (closed || raw.isClosed()) {
+                destroy(raw);
+            } else {
+                idle.offerFirst(new Idle(raw, System.nanoTime()));
+            }
+        } catch (SQLException ex) {
+            destroy(raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeeping() {
+        long now = System.nanoTime();
+        for (Idle oldest = idle.peekLast(); oldest != null && now - oldest.since() > idleTimeoutNanos;
+             oldest = idle.peekLast()) {
+            // a caller may have taken it in the meantime
+            if (idle.removeLastOccurrence(oldest)) {
+                destroy(oldest.connection());
+            }
+        }
+        if (leakThresholdNanos > 0) {
+            for (Lease lease : leased) {
+                if (now - lease.borrowedAt > leakThresholdNanos && !lease.reported) {
+                    lease.reported = true;
+                    leaks.increment();
+                    System.err.println("A database connection has been held for "
+                            + TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt) + " ms, it may never be closed");
+                    lease.borrowedBy.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void destroy(Connection connection) {
+        discarded.increment();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // it is being thrown away anyway
+        }
+    }
+
+    private record Idle(Connection connection, long since) {
+    }
+
+    /**
+     * Stands behind the Connection a caller holds. Close returns the real connection,
+     * after which every other call fails as on a closed connection.
+     */
+    private final class Lease implements InvocationHandler {
+        final Connection connection;
+        final long borrowedAt = System.nanoTime();
+        final Throwable borrowedBy;
+        final AtomicBoolean returned = new AtomicBoolean();
+        volatile boolean reported;
+
+        Lease(Connection connection) {
+            this.connection = connection;
+            borrowedBy = leakThresholdNanos > 0 ? new Throwable("Connection taken here") : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (returned.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (returned.get()) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + connection;
+                }
+                default -> {
+                    if (returned.get()) {
+                        throw new SQLException("Connection is closed");
+                    }
+                }
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dataaccess;
 import chess.ChessGame;
+import chess.ChessMove;
 import model.*;
 
 import java.sql.SQLDataException;
@@ -12,6 +13,7 @@ public interface DataAccess {
     void clear() throws DataAccessException;
     AuthData addUser(UserData user) throws DataAccessException;
     UserData getUser(String username) throws DataAccessException;
+    void setPasswordHash(String username, String hash) throws DataAccessException;
     AuthData getUser(String auth, Integer filler) throws DataAccessException;
     AuthData addAuth(String username) throws DataAccessException;
     boolean checkAuth(String auth) throws DataAccessException;
@@ -22,6 +24,8 @@ public interface DataAccess {
     GameData getGame(Double gameID) throws DataAccessException;
     void joinGame(String username, GameData game) throws DataAccessException;
     void moveGame(ChessGame game, Double gameID) throws DataAccessException;
+    void recordMove(Double gameID, ChessMove move, ChessGame game) throws DataAccessException;
+    List<ChessMove> getMoves(Double gameID) throws DataAccessException;
     void dropPlayer(String username, Double gameID) throws DataAccessException;
     Integer totalUsers();
     Integer totalAuths();
@@ -8,6 +8,15 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static boolean binaryGames;
+    private static ConnectionPool pool;
+    private static int cachedGames;
+    private static long cacheTtlMillis;
+    private static boolean durableWrites;
+    private static int cachedTokens;
+    private static long tokenTtlMillis;
+    private static long invalidTokenTtlMillis;
+    private static PasswordHasher passwordHasher;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +39,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Takes a connection to the database from the pool, with the catalog set based upon
+     * the properties specified in db.properties. Connections to the database should
+     * be short-lived, and you must close the connection when you are done with it,
+     * which hands it back to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -43,15 +53,56 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.getConnection();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
+    /**
+     * @return connections in use and idle, callers waiting and time spent waiting
+     */
+    public static ConnectionPool.Metrics poolMetrics() {
+        return pool.metrics();
+    }
+
+    /**
+     * Puts the game and token caches sized by db.properties in front of the data access:
+     * db.cache.games games at most (0 for no caches), dropped after db.cache.ttlSeconds
+     * unused, and with db.cache.durable each change written before the call returns.
+     * db.cache.tokens tokens at most, trusted for db.cache.tokenTtlSeconds and unknown
+     * ones remembered for db.cache.invalidTokenTtlSeconds.
+     */
+    public static DataAccess withCache(DataAccess dataAccess) {
+        if (cachedGames <= 0) {
+            return dataAccess;
+        }
+        return new CachingDataAccess(dataAccess, cachedGames, cacheTtlMillis, durableWrites,
+                new AuthCache(cachedTokens, tokenTtlMillis, invalidTokenTtlMillis));
+    }
+
+    /**
+     * @return the hasher every password goes through, at the BCrypt cost db.properties
+     * sets with auth.bcryptCost, auth.hashThreads at a time and auth.hashQueue more waiting
+     */
+    public static PasswordHasher passwordHasher() {
+        return passwordHasher;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+        conn.setCatalog(databaseName);
+        return conn;
+    }
+
+    /**
+     * @return true when db.properties sets db.gameEncoding=binary, so games are stored
+     * with {@link chess.GameCodec} rather than as JSON
+     */
+    static boolean binaryGames() {
+        return binaryGames;
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -73,5 +124,27 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        binaryGames = "binary".equalsIgnoreCase(props.getProperty("db.gameEncoding", "json"));
+
+        int maxSize = Integer.parseInt(props.getProperty("db.pool.maxSize", "10"));
+        long connectionTimeout = Long.parseLong(props.getProperty("db.pool.connectionTimeoutMillis", "5000"));
+        long idleTimeout = Long.parseLong(props.getProperty("db.pool.idleTimeoutSeconds", "600")) * 1000;
+        long leakThreshold = Long.parseLong(props.getProperty("db.pool.leakThresholdSeconds", "60")) * 1000;
+        cachedGames = Integer.parseInt(props.getProperty("db.cache.games", "1000"));
+        cacheTtlMillis = Long.parseLong(props.getProperty("db.cache.ttlSeconds", "1800")) * 1000;
+        durableWrites = Boolean.parseBoolean(props.getProperty("db.cache.durable", "true"));
+        cachedTokens = Integer.parseInt(props.getProperty("db.cache.tokens", "10000"));
+        tokenTtlMillis = Long.parseLong(props.getProperty("db.cache.tokenTtlSeconds", "300")) * 1000;
+        invalidTokenTtlMillis = Long.parseLong(props.getProperty("db.cache.invalidTokenTtlSeconds", "5")) * 1000;
+
+        int bcryptCost = Integer.parseInt(props.getProperty("auth.bcryptCost", "10"));
+        int hashThreads = Integer.parseInt(props.getProperty("auth.hashThreads",
+                String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+        int hashQueue = Integer.parseInt(props.getProperty("auth.hashQueue", "64"));
+        long hashTimeout = Long.parseLong(props.getProperty("auth.hashTimeoutMillis", "10000"));
+
+        passwordHasher = new PasswordHasher(bcryptCost, hashThreads, hashQueue, hashTimeout);
+        pool = new ConnectionPool(DatabaseManager::openConnection, maxSize, connectionTimeout, idleTimeout,
+                leakThreshold);
     }
 }
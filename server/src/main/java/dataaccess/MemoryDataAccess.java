@@ -1,6 +1,7 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import model.*;
 import java.sql.*;
 
@@ -11,6 +12,7 @@ public class MemoryDataAccess implements DataAccess {
     private HashMap<String, UserData> userList = new HashMap<>();
     private HashMap<String, GameData> gameList = new HashMap<>();
     private HashSet<AuthData> authList = new HashSet<>();
+    private HashMap<String, List<ChessMove>> moveLog = new HashMap<>();
 
     @Override
     public void init() {}
@@ -29,6 +31,14 @@ public class MemoryDataAccess implements DataAccess {
         return userList.get(username);
     }
 
+    @Override
+    public void setPasswordHash(String username, String hash) {
+        var user = userList.get(username);
+        if (user != null) {
+            userList.put(username, new UserData(username, hash, user.email()));
+        }
+    }
+
     @Override
     public AuthData getUser(String auth, Integer filler) {
         for (AuthData authentication : authList){
@@ -111,7 +121,21 @@ public class MemoryDataAccess implements DataAccess {
 
     @Override
     public void moveGame(ChessGame game, Double gameID) throws DataAccessException {
-        return;
+        GameData previousGame = gameList.get(gameID.toString());
+        if (previousGame != null) {
+            gameList.put(gameID.toString(), new GameData(gameID, previousGame.whiteUsername(), previousGame.blackUsername(), previousGame.gameName(), game));
+        }
+    }
+
+    @Override
+    public void recordMove(Double gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        moveLog.computeIfAbsent(gameID.toString(), k -> new ArrayList<>()).add(move);
+        moveGame(game, gameID);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(Double gameID) throws DataAccessException {
+        return List.copyOf(moveLog.getOrDefault(gameID.toString(), List.of()));
     }
 
     @Override
@@ -124,6 +148,7 @@ public class MemoryDataAccess implements DataAccess {
         userList.clear();
         gameList.clear();
         authList.clear();
+        moveLog.clear();
     }
 
     private String generateAuth() {
@@ -0,0 +1,173 @@
+package dataaccess;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt on a few threads of its own, so a burst of logins waits in a bounded queue
+ * instead of every request thread hashing at once. When the queue is full, or a caller
+ * waited out the timeout, the caller is turned away with {@link #BUSY} rather than left
+ * hanging.
+ * <p>
+ * New hashes use the configured cost. A hash made with another cost still checks, and
+ * {@link #needsRehash} tells the caller to store it again with the current one.
+ */
+public final class PasswordHasher implements AutoCloseable {
+
+    /**
+     * The message of the exception thrown when there is no room to hash
+     */
+    public static final String BUSY = "Error: too many logins, try again";
+
+    /**
+     * @param active    hashes being worked on right now
+     * @param queued    hashes waiting for a thread
+     * @param rejected  callers turned away because the queue was full
+     * @param timeouts  callers that gave up waiting
+     * @param workNanos time spent hashing and checking, not counting the queue
+     */
+    public record Metrics(int active, int queued, long hashed, long checked, long rejected, long timeouts,
+                          long totalQueueNanos, long maxQueueNanos, long workNanos) {
+
+        /**
+         * @return the mean time one hash or check took to compute
+         */
+        public double averageWorkMillis() {
+            long done = hashed + checked;
+            return done == 0 ? 0 : workNanos / 1e6 / done;
+        }
+    }
+
+    private final int cost;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final LongAdder workNanos = new LongAdder();
+
+    /**
+     * @param cost          the BCrypt log rounds new hashes use, each one doubles the work
+     * @param threads       how many hashes run at once
+     * @param queueSize     how many more may wait before callers are turned away
+     * @param timeoutMillis how long a caller waits for its hash, queue included
+     */
+    public PasswordHasher(int cost, int threads, int queueSize, long timeoutMillis) {
+        if (cost < 4 || cost > 30) {
+            throw new IllegalArgumentException("BCrypt cost must be between 4 and 30, not " + cost);
+        }
+        this.cost = cost;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+            Thread thread = new Thread(task, "password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the BCrypt hash of the password at the configured cost
+     */
+    public String hash(String password) throws DataAccessException {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)), hashed);
+    }
+
+    /**
+     * @return whether the password matches the hash, false if the hash is not a BCrypt hash
+     */
+    public boolean check(String password, String hash) throws DataAccessException {
+        return run(() -> {
+            try {
+                return BCrypt.checkpw(password, hash);
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        }, checked);
+    }
+
+    /**
+     * @return true if the hash was made with a cost other than the configured one
+     */
+    public boolean needsRehash(String hash) {
+        // $2a$10$ followed by the salt and hash
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return true;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != cost;
+        } catch (NumberFormatException ex) {
+            return true;
+        }
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public Metrics metrics() {
+        return new Metrics(executor.getActiveCount(), executor.getQueue().size(), hashed.sum(), checked.sum(),
+                rejected.sum(), timeouts.sum(), totalQueueNanos.sum(), maxQueueNanos.get(), workNanos.sum());
+    }
+
+    /**
+     * Stops taking work, letting what was queued finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> work, LongAdder done) throws DataAccessException {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                long queued = start - queuedAt;
+                totalQueueNanos.add(queued);
+                maxQueueNanos.accumulateAndGet(queued, Math::max);
+                try {
+                    return work.call();
+                } finally {
+                    workNanos.add(System.nanoTime() - start);
+                    done.increment();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new DataAccessException(BUSY);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // still queued it is dropped, already running it is left to finish
+            future.cancel(false);
+            executor.purge();
+            timeouts.increment();
+            throw new DataAccessException(BUSY);
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: interrupted hashing a password", ex);
+        } catch (ExecutionException ex) {
+            throw new DataAccessException("Error: failed to hash a password", ex.getCause());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import model.*;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.*;
 import java.util.*;
@@ -12,6 +14,31 @@ import java.util.*;
 
 public class SqlDataAccess implements DataAccess {
 
+    /**
+     * Plies between the snapshots in games.game. Loading a game replays at most this
+     * many moves from game_moves on top of its snapshot.
+     */
+    static final int SNAPSHOT_INTERVAL = 20;
+
+    /**
+     * Games whose logged moves are read in one query when listing
+     */
+    private static final int REPLAY_BATCH = 500;
+
+    /**
+     * Whether games are written with GameCodec, as Base64 in the same TEXT column. Both
+     * forms are read back either way, so the setting can change on a live database.
+     */
+    private final boolean binaryGames;
+
+    public SqlDataAccess() {
+        this(DatabaseManager.binaryGames());
+    }
+
+    public SqlDataAccess(boolean binaryGames) {
+        this.binaryGames = binaryGames;
+    }
+
     @Override
     public void init() throws DataAccessException {
         String userTableCreate = """
@@ -38,11 +65,22 @@ public class SqlDataAccess implements DataAccess {
                 game TEXT NULL
                 )
                 """;
+
+        String moveTableCreate = """
+                CREATE TABLE IF NOT EXISTS game_moves (
+                gameID DOUBLE NOT NULL,
+                ply INT NOT NULL,
+                move SMALLINT NOT NULL,
+                playedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                PRIMARY KEY (gameID, ply)
+                )
+                """;
         Map<Integer, String> tableCreates = new HashMap<>();
         tableCreates.put(0, userTableCreate);
         tableCreates.put(1, authTableCreate);
         tableCreates.put(2, gameTableCreate);
-        for (int i = 0; i < 3; i++) {
+        tableCreates.put(3, moveTableCreate);
+        for (int i = 0; i < tableCreates.size(); i++) {
             try (var conn = DatabaseManager.getConnection()) {
                 try (var statement = conn.createStatement()) {
                     statement.executeUpdate(tableCreates.get(i));
@@ -62,6 +100,7 @@ public class SqlDataAccess implements DataAccess {
                 statement.executeUpdate("DELETE FROM users");
                 statement.executeUpdate("DELETE FROM auths");
                 statement.executeUpdate("DELETE FROM games");
+                statement.executeUpdate("DELETE FROM game_moves");
             }
         }
         catch(Exception ex) {
@@ -71,10 +110,10 @@ public class SqlDataAccess implements DataAccess {
 
     @Override
     public AuthData addUser(UserData user) throws DataAccessException {
+        // hashed before taking a connection, so a queue of registrations doesn't hold the pool
+        String hashedPassword = DatabaseManager.passwordHasher().hash(user.password());
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement("INSERT INTO users (username, password, email) VALUES (?, ?, ?);")) {
-                String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
-
                 statement.setString(1, user.username());
                 statement.setString(2, hashedPassword);
                 statement.setString(3, user.email());
@@ -112,6 +151,20 @@ public class SqlDataAccess implements DataAccess {
         return null;
     }
 
+    @Override
+    public void setPasswordHash(String username, String hash) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var statement = conn.prepareStatement("UPDATE users SET password = ? WHERE username = ?")) {
+                statement.setString(1, hash);
+                statement.setString(2, username);
+                statement.executeUpdate();
+            }
+        }
+        catch (Exception ex) {
+            throw new DataAccessException("Error, couldn't update password", ex);
+        }
+    }
+
     @Override
     public AuthData getUser(String auth, Integer filler) throws DataAccessException {
         String getTheUser = "SELECT L.username, R.authToken FROM users as L JOIN auths as R ON L.username = R.username WHERE authToken = ?";
@@ -200,8 +253,8 @@ public class SqlDataAccess implements DataAccess {
     @Override
     public List<GameData> listGames() throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
+            List<GameData> gameList = new ArrayList<>(List.of());
             try (var statement = conn.prepareStatement("SELECT * FROM games")) {
-                List<GameData> gameList = new ArrayList<>(List.of());
                 var result = statement.executeQuery();
                 while (result.next()) {
                     Double gameID = result.getDouble("gameID");
@@ -209,13 +262,12 @@ public class SqlDataAccess implements DataAccess {
                     String blackUsername = result.getString("blackUsername");
                     String gameName = result.getString("gameName");
                     String game = result.getString("game");
-                    var serializer = new Gson();
-                    var fullGame = serializer.fromJson(game, ChessGame.class);
-                    GameData nextGame = new GameData(gameID, whiteUsername, blackUsername, gameName, fullGame);
+                    GameData nextGame = new GameData(gameID, whiteUsername, blackUsername, gameName, decodeGame(game));
                     gameList.add(nextGame);
                 }
-                return gameList;
             }
+            replayMoves(conn, gameList);
+            return gameList;
         }
         catch (Exception ex) {
             throw new DataAccessException ("Error, not authorized", ex);
@@ -230,10 +282,7 @@ public class SqlDataAccess implements DataAccess {
                     "VALUES (?, NULL, NULL, ?, ?)")) {
                 statement.setDouble(1, numberOfGames);
                 statement.setString(2, gameName);
-                var serializer = new Gson();
-                var game = new ChessGame();
-                var newGame = serializer.toJson(game);
-                statement.setString(3, newGame);
+                statement.setString(3, encodeGame(new ChessGame()));
                 statement.executeUpdate();
 
                 return numberOfGames;
@@ -255,8 +304,7 @@ public class SqlDataAccess implements DataAccess {
                     String blackUsername = result.getString("blackUsername");
                     String gameName = result.getString("gameName");
                     String game = result.getString("game");
-                    var serializer = new Gson();
-                    var fullGame = serializer.fromJson(game, ChessGame.class);
+                    var fullGame = replayMoves(conn, gameID, decodeGame(game));
                     return new GameData(gameID, whiteUsername, blackUsername, gameName, fullGame);
                 }
             }
@@ -293,9 +341,7 @@ public class SqlDataAccess implements DataAccess {
         String query = "UPDATE games SET game = ? WHERE gameID = ?";
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement(query)) {
-                var serializer = new Gson();
-                var encodedGame = serializer.toJson(game);
-                statement.setString(1, encodedGame);
+                statement.setString(1, encodeGame(game));
                 statement.setDouble(2, gameID);
                 statement.executeUpdate();
             }
@@ -305,6 +351,59 @@ public class SqlDataAccess implements DataAccess {
         }
     }
 
+    /**
+     * Appends the move to game_moves, a single small insert. Every SNAPSHOT_INTERVAL
+     * plies the game itself is written to games.game in the same transaction, so loading
+     * never has far to replay. The primary key turns a second move for the same ply
+     * into an error instead of a fork in the history.
+     */
+    @Override
+    public void recordMove(Double gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        int ply = plyOf(game);
+        try (var conn = DatabaseManager.getConnection()) {
+            boolean snapshot = ply % SNAPSHOT_INTERVAL == 0;
+            if (snapshot) {
+                conn.setAutoCommit(false);
+            }
+            try (var statement = conn.prepareStatement("INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)")) {
+                statement.setDouble(1, gameID);
+                statement.setInt(2, ply);
+                statement.setShort(3, GameCodec.encodeMove(move));
+                statement.executeUpdate();
+            }
+            if (snapshot) {
+                try (var statement = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?")) {
+                    statement.setString(1, encodeGame(game));
+                    statement.setDouble(2, gameID);
+                    statement.executeUpdate();
+                }
+                // a failure before this leaves the transaction for the pool to roll back
+                conn.commit();
+            }
+        }
+        catch (Exception ex) {
+            throw new DataAccessException ("Error, could not record move", ex);
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(Double gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var statement = conn.prepareStatement("SELECT move FROM game_moves WHERE gameID = ? ORDER BY ply")) {
+                statement.setDouble(1, gameID);
+                var result = statement.executeQuery();
+                List<ChessMove> moves = new ArrayList<>();
+                while (result.next()) {
+                    moves.add(GameCodec.decodeMove(result.getShort("move")));
+                }
+                return moves;
+            }
+        }
+        catch (Exception ex) {
+            throw new DataAccessException ("Error, not authorized", ex);
+        }
+    }
+
     public void dropPlayer(String user, Double gameID) throws DataAccessException {
         var game = getGame(gameID);
         String chosenSide;
@@ -373,6 +472,86 @@ public class SqlDataAccess implements DataAccess {
         return 0;
     }
 
+    /**
+     * Plays the logged moves made after the snapshot was written
+     */
+    private static ChessGame replayMoves(Connection conn, Double gameID, ChessGame snapshot)
+            throws SQLException, DataAccessException {
+        try (var statement = conn.prepareStatement("SELECT ply, move FROM game_moves WHERE gameID = ? AND ply > ? ORDER BY ply")) {
+            statement.setDouble(1, gameID);
+            statement.setInt(2, plyOf(snapshot));
+            var result = statement.executeQuery();
+            while (result.next()) {
+                try {
+                    snapshot.makeMove(GameCodec.decodeMove(result.getShort("move")));
+                } catch (InvalidMoveException ex) {
+                    throw new DataAccessException("Error: logged move at ply " + result.getInt("ply")
+                            + " of game " + gameID + " can't be played", ex);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Plays the moves logged since their snapshots onto the listed games, reading the moves
+     * of up to REPLAY_BATCH games per query. A game whose log can't be played is listed as of
+     * its last playable move rather than failing the whole list.
+     */
+    private static void replayMoves(Connection conn, List<GameData> games) throws SQLException {
+        for (int from = 0; from < games.size(); from += REPLAY_BATCH) {
+            List<GameData> batch = games.subList(from, Math.min(games.size(), from + REPLAY_BATCH));
+            Map<Double, ChessGame> byID = new HashMap<>();
+            String where = String.join(" OR ", Collections.nCopies(batch.size(), "(gameID = ? AND ply > ?)"));
+            try (var statement = conn.prepareStatement(
+                    "SELECT gameID, ply, move FROM game_moves WHERE " + where + " ORDER BY gameID, ply")) {
+                int index = 1;
+                for (GameData game : batch) {
+                    byID.put(game.gameID(), game.game());
+                    statement.setDouble(index++, game.gameID());
+                    statement.setInt(index++, plyOf(game.game()));
+                }
+                var result = statement.executeQuery();
+                while (result.next()) {
+                    Double gameID = result.getDouble("gameID");
+                    ChessGame game = byID.get(gameID);
+                    if (game == null) {
+                        continue;
+                    }
+                    try {
+                        game.makeMove(GameCodec.decodeMove(result.getShort("move")));
+                    } catch (InvalidMoveException ex) {
+                        System.err.println("Logged move at ply " + result.getInt("ply") + " of game " + gameID
+                                + " can't be played, listing the game without it");
+                        byID.remove(gameID);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return plies played since the starting position, which is where every game here
+     * starts
+     */
+    static int plyOf(ChessGame game) {
+        return (game.getFullmoveNumber() - 1) * 2 + (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0);
+    }
+
+    private String encodeGame(ChessGame game) {
+        return binaryGames ? GameCodec.encodeToString(game) : new Gson().toJson(game);
+    }
+
+    /**
+     * JSON objects start with a brace, which is not a Base64 character
+     */
+    private static ChessGame decodeGame(String game) {
+        if (game.startsWith("{")) {
+            return new Gson().fromJson(game, ChessGame.class);
+        }
+        return GameCodec.decodeString(game);
+    }
+
     private String generateAuth() {
         return UUID.randomUUID().toString();
     }
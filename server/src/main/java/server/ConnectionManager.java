@@ -12,10 +12,26 @@ public class ConnectionManager {
 
     private final Map<Double, Set<Session>> connections = new HashMap<>();
 
+    /**
+     * Sessions that asked for the encoded game in LOAD_GAME messages
+     */
+    private final Set<Session> compactSessions = new CopyOnWriteArraySet<>();
+
     public void addConnection(double gameID, Session session) {
+        addConnection(gameID, session, false);
+    }
+
+    public void addConnection(double gameID, Session session, boolean compactGame) {
         Set<Session> gameSessions = connections.computeIfAbsent(gameID, k -> new CopyOnWriteArraySet<>());
         gameSessions.add(session);
         connections.put(gameID, gameSessions);
+        if (compactGame) {
+            compactSessions.add(session);
+        }
+    }
+
+    public boolean wantsCompactGame(Session session) {
+        return compactSessions.contains(session);
     }
 
     public boolean anyConnections() {
@@ -26,6 +42,7 @@ public class ConnectionManager {
         for (Set<Session> gameSessions : connections.values()) {
             gameSessions.remove(session);
         }
+        compactSessions.remove(session);
     }
 
     public Collection<Session> getAllSessions(double gameID) {
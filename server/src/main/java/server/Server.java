@@ -1,11 +1,19 @@
 package server;
 
+import chess.ChessGame;
+import chess.book.OpeningBook;
+import chess.engine.SearchLimits;
+import chess.engine.SearchPool;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
 import com.google.gson.Gson;
 import io.javalin.*;
 import io.javalin.http.Context;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
 
 import io.javalin.websocket.WsMessageContext;
 import model.*;
@@ -21,10 +29,33 @@ public class Server {
 
     public DataAccess dataAccess;
 
+    private final Properties engineProperties = loadEngineProperties();
+
+    /**
+     * The opening book named by book.file in engine.properties, null if there is none
+     */
+    public final OpeningBook openingBook = openBook(engineProperties);
+
+    /**
+     * The endgame tables in tablebase.dir from engine.properties, null if there are none.
+     * Every game consults them to call dead draws.
+     */
+    public final Tablebase tablebase = openTablebase(engineProperties);
+
+    /**
+     * Shared by every search the server runs, sized by engine.properties
+     */
+    public final SearchPool searchPool = createSearchPool(engineProperties, openingBook, tablebase);
+
+    /**
+     * Longest a hint may search, whatever the request asks for
+     */
+    private final long maxSearchMillis = Long.parseLong(engineProperties.getProperty("search.maxMillis", "5000"));
+
     private final Javalin javalinObj;
 
     public Server() {
-        dataAccess = new SqlDataAccess();
+        dataAccess = DatabaseManager.withCache(new SqlDataAccess());
         try {
             DatabaseManager.createDatabase();
             dataAccess.init();
@@ -47,6 +78,8 @@ public class Server {
 
         javalinObj.put("game", this::join);
 
+        javalinObj.get("game/hint", this::hint);
+
         javalinObj.delete("db", this::clear);
 
         javalinObj.ws("/ws", ws -> {
@@ -76,7 +109,7 @@ public class Server {
         switch (command.getCommandType()) {
             case CONNECT -> {
                 try {
-                    gameConnections.addConnection(command.getGameID(), ctx.session);
+                    gameConnections.addConnection(command.getGameID(), ctx.session, command.wantsCompactGame());
                     connect(command, ctx);
                     load(command, ctx);
                 } catch (Exception ex) {
@@ -203,6 +236,38 @@ public class Server {
         }
     }
 
+    /**
+     * Suggests a move for a game: gameID, and optionally millis (at most search.maxMillis),
+     * depth and threads as query parameters
+     */
+    private void hint(Context ctx) {
+        try {
+            var serializer = new Gson();
+            var authToken = ctx.header("authorization");
+            SearchLimits limits;
+            Double gameID;
+            int threads;
+            try {
+                gameID = Double.valueOf(ctx.queryParam("gameID"));
+                long millis = Long.parseLong(Objects.requireNonNullElse(ctx.queryParam("millis"), "1000"));
+                int depth = Integer.parseInt(Objects.requireNonNullElse(ctx.queryParam("depth"),
+                        String.valueOf(SearchLimits.MAX_DEPTH)));
+                // the pool caps it at search.threadsPerRequest
+                threads = ctx.queryParam("threads") == null ? Integer.MAX_VALUE
+                        : Integer.parseInt(ctx.queryParam("threads"));
+                millis = millis <= 0 ? maxSearchMillis : Math.min(millis, maxSearchMillis);
+                limits = new SearchLimits(depth, 0, millis);
+            } catch (NullPointerException | IllegalArgumentException ex) {
+                throw new DataAccessException("Error: bad request");
+            }
+            var service = new UserService(dataAccess, openingBook);
+            var hintResponse = service.hint(gameID, authToken, searchPool, limits, threads);
+            ctx.result(serializer.toJson(hintResponse));
+        } catch (Exception ex) {
+            baseErrorHelper(ctx, ex);
+        }
+    }
+
     private void baseErrorHelper(Context ctx, Exception ex) {
         switch (ex.getMessage()) {
             case "Error: bad request" -> {
@@ -217,6 +282,10 @@ public class Server {
                 String message = String.format("{\"message\": \"%s\"}", ex.getMessage());
                 ctx.status(403).result(message);
             }
+            case PasswordHasher.BUSY, UserService.SEARCH_BUSY -> {
+                String message = String.format("{\"message\": \"%s\"}", ex.getMessage());
+                ctx.status(503).result(message);
+            }
             default -> {
                 String message = String.format("{\"message\": \"Error: %s\"}", ex.getMessage());
                 ctx.status(500).result(message);
@@ -255,16 +324,19 @@ public class Server {
         var moveRequest = new MoveData(targetID, move);
         var service = new UserService(dataAccess);
         var moveResponse = service.move(moveRequest, auth);
-        var loadMessage = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, moveResponse.game());
+        var loadMessage = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, moveResponse.game(),
+                moveResponse.evaluation());
         var gson = new Gson();
         var jsonMessage = gson.toJson(loadMessage);
+        var compactMessage = gson.toJson(new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, null,
+                moveResponse.evaluation(), moveResponse.encodedGame()));
         var moveMade = new NotifGameResponse(ServerMessage.ServerMessageType.NOTIFICATION,
                 (moveResponse.user() + " has made a move from " + command.getLocation()), null);
         var jsonNotif = gson.toJson(moveMade);
         for (var session : gameConnections.getAllSessions(targetID)) {
             try {
                 if (ctx.session.isOpen()) {
-                    session.getRemote().sendString(jsonMessage);
+                    session.getRemote().sendString(gameConnections.wantsCompactGame(session) ? compactMessage : jsonMessage);
                 }
                 if (session == ctx.session) {
                     continue;
@@ -301,7 +373,11 @@ public class Server {
         if (!loadResponse.board().containsKey("1_4")) {
             System.out.println("Missing queen");
         }
-        var loadMessage = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, loadResponse.board());
+        var loadMessage = gameConnections.wantsCompactGame(ctx.session)
+                ? new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, null, loadResponse.evaluation(),
+                        loadResponse.encodedGame())
+                : new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, loadResponse.board(),
+                        loadResponse.evaluation());
         var gson = new Gson();
         var message = gson.toJson(loadMessage);
         try {
@@ -346,11 +422,12 @@ public class Server {
             var auth = command.getAuthToken();
             var targetID = Double.valueOf(command.getGameID());
             var highRequest = new HighGameData(targetID, auth, command.getLocation());
-            var service = new UserService(dataAccess);
+            var service = new UserService(dataAccess, openingBook);
             var highResponse = service.highlight(highRequest);
             var highMessage = new HighlightMessage(ServerMessage.ServerMessageType.LOAD_HIGHLIGHT,
                     highResponse.allPieces(),
-                    highResponse.moves());
+                    highResponse.moves(),
+                    highResponse.bookMoves());
             var gson = new Gson();
             try {
                 if (ctx.session.isOpen()) {
@@ -436,5 +513,74 @@ public class Server {
 
     public void stop() {
         javalinObj.stop();
+        searchPool.close();
+        if (dataAccess instanceof CachingDataAccess cache) {
+            cache.close();
+        }
+    }
+
+    /**
+     * Sizes the pool from engine.properties: search.threads is the size of the pool
+     * all searches share, search.threadsPerRequest how many of those one search may use
+     * and search.tableMegabytes the size of the shared transposition table. Anything
+     * missing defaults to one thread per core, all of them per request and the default
+     * table size.
+     */
+    private static SearchPool createSearchPool(Properties props, OpeningBook book, Tablebase tablebase) {
+        var cores = String.valueOf(Runtime.getRuntime().availableProcessors());
+        int threads = Integer.parseInt(props.getProperty("search.threads", cores));
+        int threadsPerRequest = Integer.parseInt(props.getProperty("search.threadsPerRequest", String.valueOf(threads)));
+        int megabytes = Integer.parseInt(props.getProperty("search.tableMegabytes",
+                String.valueOf(TranspositionTable.DEFAULT_MEGABYTES)));
+        return new SearchPool(threads, threadsPerRequest, new TranspositionTable(megabytes), book,
+                tablebase);
+    }
+
+    /**
+     * Maps the book file if book.file names one. A missing or broken book is reported
+     * and the server runs without it, it only saves search time.
+     */
+    private static OpeningBook openBook(Properties props) {
+        String file = props.getProperty("book.file");
+        if (file == null || file.isBlank()) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(Path.of(file));
+        } catch (IOException ex) {
+            System.err.println("Failed to open the opening book " + file + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the tables in tablebase.dir if it names a directory and installs them for
+     * every game. Like the book, missing tables only cost search time and exact draws.
+     */
+    private static Tablebase openTablebase(Properties props) {
+        String dir = props.getProperty("tablebase.dir");
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        try {
+            Tablebase tablebase = Tablebase.open(Path.of(dir));
+            ChessGame.useTablebase(tablebase);
+            return tablebase;
+        } catch (IOException ex) {
+            System.err.println("Failed to open the tablebase in " + dir + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static Properties loadEngineProperties() {
+        Properties props = new Properties();
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("engine.properties")) {
+            if (propStream != null) {
+                props.load(propStream);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("unable to process engine.properties", ex);
+        }
+        return props;
     }
 }
@@ -2,20 +2,54 @@ package service;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
+import chess.Evaluator;
+import chess.GameCodec;
+import chess.book.BookMove;
+import chess.book.OpeningBook;
+import chess.engine.SearchLimits;
+import chess.engine.SearchPool;
+import chess.engine.SearchResult;
 import model.*;
 import dataaccess.*;
-import org.mindrot.jbcrypt.BCrypt;
 import webmodel.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserService {
 
+    /**
+     * Shared by every request, the pawn table is safe to use from many threads
+     */
+    private static final Evaluator EVALUATOR = new Evaluator();
+
+    /**
+     * The message of the exception thrown when the search pool has no room for a search
+     */
+    public static final String SEARCH_BUSY = "Error: too many searches, try again";
+
     private final DataAccess dataAccess;
+    private final OpeningBook openingBook;
+    private final PasswordHasher passwordHasher;
 
     public UserService(DataAccess dataAccess) {
+        this(dataAccess, null);
+    }
+
+    /**
+     * @param openingBook used to point out book moves when highlighting, may be null
+     */
+    public UserService(DataAccess dataAccess, OpeningBook openingBook) {
+        this(dataAccess, openingBook, DatabaseManager.passwordHasher());
+    }
+
+    public UserService(DataAccess dataAccess, OpeningBook openingBook, PasswordHasher passwordHasher) {
         this.dataAccess = dataAccess;
+        this.openingBook = openingBook;
+        this.passwordHasher = passwordHasher;
     }
 
 
@@ -36,35 +70,33 @@ public class UserService {
             throw new DataAccessException("Error: bad request");
         }
         var checkExisting = dataAccess.getUser(user.username());
-        if (checkExisting == null || !BCrypt.checkpw(user.password(), checkExisting.password())) {
+        if (checkExisting == null || !passwordHasher.check(user.password(), checkExisting.password())) {
             throw new DataAccessException("Error: unauthorized");
         }
+        if (passwordHasher.needsRehash(checkExisting.password())) {
+            try {
+                dataAccess.setPasswordHash(user.username(), passwordHasher.hash(user.password()));
+            } catch (DataAccessException ex) {
+                // the old hash still works, the next login tries again
+            }
+        }
         var authentication = dataAccess.addAuth(user.username());
         return new RegisterResponse(authentication.username(), authentication.authToken());
     }
 
     public LogoutResponse logout(String user) throws DataAccessException {
-        var checkExisting = dataAccess.checkAuth(user);
-        if (!checkExisting) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        authorize(user);
         dataAccess.deleteAuth(user);
         return new LogoutResponse();
     }
 
     public ListResponse list(String user) throws DataAccessException {
-        var checkExisting = dataAccess.checkAuth(user);
-        if (!checkExisting) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        authorize(user);
         return new ListResponse(dataAccess.listGames());
     }
 
     public CreateResponse create(String gameName, String user) throws DataAccessException {
-        var checkExisting = dataAccess.checkAuth(user);
-        if (!checkExisting) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        authorize(user);
         if (gameName == null) {
             throw new DataAccessException("Error: bad request");
         }
@@ -72,14 +104,10 @@ public class UserService {
     }
 
     public JoinResponse join(JoinData game, String user) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(user);
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        AuthData thisUser = authorize(user);
         if (game.gameID() == null) {
             throw new DataAccessException("Error: bad request");
         }
-        AuthData thisUser = dataAccess.getUser(user, 1);
         var existingGame = dataAccess.getGame(game.gameID());
         if (existingGame == null) {
             throw new DataAccessException("Error: bad request");
@@ -113,11 +141,7 @@ public class UserService {
     }
 
     public MoveResponse move(MoveData move, String auth) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(auth);
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
-        var user = dataAccess.getUser(auth, 1);
+        var user = authorize(auth);
         var gameData = dataAccess.getGame(move.gameID());
         var game = gameData.game();
         if (game.gameOver) {
@@ -136,40 +160,31 @@ public class UserService {
         }
         try {
             game.makeMove(move.move());
-            dataAccess.moveGame(game, move.gameID());
-            String gameState = "";
-            ChessGame.TeamColor enemyColor = (whitePlayer) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
-            if (game.isInStalemate(enemyColor)) {
-                gameState = "Stalemate";
-            } else if (game.isInCheck(enemyColor)) {
-                if (game.isInCheckmate(enemyColor)) {
-                    gameState = "Checkmate";
-                } else {
-                    gameState = "Check";
-                }
-            }
-            return new MoveResponse(game.getBoard().getAllPieces(), user.username(), gameState);
+            dataAccess.recordMove(move.gameID(), move.move(), game);
+            String gameState = switch (game.getGameStatus()) {
+                case CHECK -> "Check";
+                case CHECKMATE -> "Checkmate";
+                case STALEMATE -> "Stalemate";
+                case DRAW -> game.getDrawReason().toString();
+                case ONGOING -> "";
+            };
+            return new MoveResponse(game.getBoard().getAllPieces(), user.username(), gameState,
+                    EVALUATOR.whiteScore(game.getBoard()), GameCodec.encodeToString(game));
         } catch (Exception ex) {
             throw new DataAccessException("Invalid Move");
         }
     }
 
     public LoadResponse load(LoadGameData game) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(game.auth());
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        authorize(game.auth());
         var gameData = dataAccess.getGame(game.gameID());
         var gameInstance = gameData.game();
-        return new LoadResponse(gameInstance.getBoard().getAllPieces());
+        return new LoadResponse(gameInstance.getBoard().getAllPieces(),
+                EVALUATOR.whiteScore(gameInstance.getBoard()), GameCodec.encodeToString(gameInstance));
     }
 
     public LeaveResponse leave(LeaveGameData data) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(data.auth());
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
-        var user = dataAccess.getUser(data.auth(), 1);
+        var user = authorize(data.auth());
         var game = dataAccess.getGame(data.gameID());
         if ((!Objects.equals(user.username(), game.whiteUsername())) && (!Objects.equals(user.username(), game.blackUsername()))) {
             return new LeaveResponse("observer", "An observer has left the game");
@@ -189,35 +204,32 @@ public class UserService {
     }
 
     public AuthData connect(String auth) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(auth);
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
-        return dataAccess.getUser(auth, 1);
+        return authorize(auth);
     }
 
     public HighlightResponse highlight(HighGameData data) throws DataAccessException{
-        var checkExistingUser = dataAccess.checkAuth(data.auth());
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
+        authorize(data.auth());
         try {
             var game = dataAccess.getGame(data.gameID());
             var stringPosition = data.position();
             var positionCheck = new ChessPosition((stringPosition.charAt(1) - '0'), (stringPosition.charAt(0) - '0'));
             Collection<ChessMove> moves = game.game().validMoves(positionCheck);
-            return new HighlightResponse(game.game().getBoard().getAllPieces(), moves);
+            List<ChessMove> bookMoves = new ArrayList<>();
+            if (openingBook != null) {
+                for (BookMove bookMove : openingBook.moves(game.game())) {
+                    if (moves.contains(bookMove.move())) {
+                        bookMoves.add(bookMove.move());
+                    }
+                }
+            }
+            return new HighlightResponse(game.game().getBoard().getAllPieces(), moves, bookMoves);
         } catch (Exception ex) {
             throw new DataAccessException("Error: failed to highlight");
         }
     }
 
     public void resign(String auth, Double gameID) throws DataAccessException {
-        var checkExistingUser = dataAccess.checkAuth(auth);
-        if (!checkExistingUser) {
-            throw new DataAccessException("Error: unauthorized");
-        }
-        var user = dataAccess.getUser(auth, 1);
+        var user = authorize(auth);
         var game = dataAccess.getGame(gameID);
         if (!Objects.equals(user.username(), game.whiteUsername()) && !Objects.equals(user.username(), game.blackUsername())) {
             throw new DataAccessException("Error: not allowed to resign if you are not a player");
@@ -229,6 +241,45 @@ public class UserService {
         dataAccess.moveGame(game.game(), gameID);
     }
 
+    /**
+     * Searches the game's position on the server's shared pool
+     *
+     * @param threads most threads the search may use, the pool caps it further
+     */
+    public HintResponse hint(Double gameID, String auth, SearchPool searchPool, SearchLimits limits, int threads)
+            throws DataAccessException {
+        authorize(auth);
+        if (gameID == null) {
+            throw new DataAccessException("Error: bad request");
+        }
+        var gameData = dataAccess.getGame(gameID);
+        if (gameData == null) {
+            throw new DataAccessException("Error: bad request");
+        }
+        SearchResult result;
+        try {
+            result = searchPool.search(gameData.game(), limits, threads);
+        } catch (RejectedExecutionException ex) {
+            throw new DataAccessException(SEARCH_BUSY);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Error: search interrupted", ex);
+        }
+        return new HintResponse(result.bestMove(), result.principalVariation(), result.score(), result.mateIn(),
+                result.depth(), result.nodes());
+    }
+
+    /**
+     * @return who the token is logged in as, found with one lookup
+     */
+    private AuthData authorize(String auth) throws DataAccessException {
+        AuthData user = dataAccess.getUser(auth, 1);
+        if (user == null) {
+            throw new DataAccessException("Error: unauthorized");
+        }
+        return user;
+    }
+
     public void clear() throws DataAccessException {
         try {
             dataAccess.clear();
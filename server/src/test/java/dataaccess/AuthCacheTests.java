@@ -0,0 +1,105 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AuthCacheTests {
+
+    private final Map<String, AuthData> loggedIn = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Known Tokens Are Looked Up Once")
+    public void hits() throws DataAccessException {
+        loggedIn.put("token", new AuthData("alice", "token"));
+        var cache = new AuthCache(10, 60_000, 60_000);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals("alice", cache.get("token", this::load).username());
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(2, cache.metrics().hits());
+        Assertions.assertNull(cache.get(null, this::load));
+        Assertions.assertEquals(1, loads.get(), "A missing token is never looked up");
+    }
+
+    @Test
+    @DisplayName("Unknown Tokens Are Remembered Briefly")
+    public void negative() throws DataAccessException, InterruptedException {
+        var cache = new AuthCache(10, 60_000, 50);
+        Assertions.assertNull(cache.get("forged", this::load));
+        Assertions.assertNull(cache.get("forged", this::load));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.metrics().negativeHits());
+
+        loggedIn.put("forged", new AuthData("mallory", "forged"));
+        Thread.sleep(100);
+        Assertions.assertEquals("mallory", cache.get("forged", this::load).username());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Logging Out Takes Effect At Once")
+    public void invalidate() throws DataAccessException {
+        var cache = new AuthCache(10, 60_000, 60_000);
+        cache.put(new AuthData("bob", "token"));
+        Assertions.assertEquals("bob", cache.get("token", this::load).username());
+        Assertions.assertEquals(0, loads.get(), "Tokens handed out are cached without a lookup");
+
+        cache.invalidate("token");
+        Assertions.assertNull(cache.get("token", this::load));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("A Lookup Racing A Logout Is Not Cached")
+    public void race() throws DataAccessException {
+        loggedIn.put("token", new AuthData("carol", "token"));
+        var cache = new AuthCache(10, 60_000, 60_000);
+        AuthData read = cache.get("token", auth -> {
+            AuthData user = load(auth);
+            loggedIn.remove(auth);
+            cache.invalidate(auth);
+            return user;
+        });
+        Assertions.assertEquals("carol", read.username());
+        Assertions.assertNull(cache.get("token", this::load), "The logout wins over the older read");
+    }
+
+    @Test
+    @DisplayName("Least Recently Used And Expired Tokens Are Dropped")
+    public void bounded() throws DataAccessException, InterruptedException {
+        for (String token : new String[]{"a", "b", "c"}) {
+            loggedIn.put(token, new AuthData(token, token));
+        }
+        var cache = new AuthCache(2, 60_000, 60_000);
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("a", this::load);
+        cache.get("c", this::load);
+        Assertions.assertEquals(2, cache.metrics().size());
+        Assertions.assertEquals(1, cache.metrics().evictions());
+        int before = loads.get();
+        cache.get("a", this::load);
+        Assertions.assertEquals(before, loads.get());
+        cache.get("b", this::load);
+        Assertions.assertEquals(before + 1, loads.get());
+
+        var expiring = new AuthCache(10, 50, 50);
+        expiring.get("a", this::load);
+        Thread.sleep(100);
+        before = loads.get();
+        expiring.get("a", this::load);
+        Assertions.assertEquals(before + 1, loads.get());
+    }
+
+    private AuthData load(String auth) {
+        loads.incrementAndGet();
+        return loggedIn.get(auth);
+    }
+}
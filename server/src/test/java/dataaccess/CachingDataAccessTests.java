@@ -0,0 +1,203 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingDataAccessTests {
+
+    private static final ChessMove E4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove E5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+    private static final ChessMove NF3 = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+
+    @Test
+    @DisplayName("Cached Games Are Read Once")
+    public void hits() throws DataAccessException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 10, 60_000, true, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("cached");
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(new ChessGame(), cache.getGame(gameID).game());
+            }
+            Assertions.assertEquals(1, store.reads.get());
+            Assertions.assertEquals(2, cache.metrics().hits());
+
+            cache.getGame(gameID).game().gameOver = true;
+            Assertions.assertFalse(cache.getGame(gameID).game().gameOver, "Callers get copies");
+        }
+    }
+
+    @Test
+    @DisplayName("Moves Are Written Behind In Order")
+    public void writeBehind() throws DataAccessException, InvalidMoveException, InterruptedException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 10, 60_000, false, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("moved");
+            store.writeGate = new CountDownLatch(1);
+            play(cache, gameID, E4);
+            play(cache, gameID, E5);
+            Assertions.assertEquals(List.of(), store.getMoves(gameID), "Nothing written yet");
+
+            ChessGame expected = new ChessGame();
+            expected.makeMove(E4);
+            expected.makeMove(E5);
+            Assertions.assertEquals(expected, cache.getGame(gameID).game(), "Reads see moves still queued");
+            Assertions.assertEquals(1, store.reads.get());
+
+            store.writeGate.countDown();
+            cache.flush();
+            Assertions.assertEquals(List.of(E4, E5), store.getMoves(gameID));
+            Assertions.assertEquals(expected, store.getGame(gameID).game());
+            Assertions.assertEquals(0, cache.metrics().pendingWrites());
+        }
+    }
+
+    @Test
+    @DisplayName("Durable Writes Are Stored Before Returning")
+    public void durable() throws DataAccessException, InvalidMoveException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 10, 60_000, true, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("durable");
+            play(cache, gameID, E4);
+            Assertions.assertEquals(List.of(E4), store.getMoves(gameID));
+
+            store.failWrites = true;
+            DataAccessException ex = Assertions.assertThrows(DataAccessException.class,
+                    () -> play(cache, gameID, E5));
+            Assertions.assertEquals("refused", ex.getMessage());
+            Assertions.assertEquals(1, cache.metrics().failedWrites());
+            store.failWrites = false;
+            int reads = store.reads.get();
+            ChessGame stored = cache.getGame(gameID).game();
+            Assertions.assertEquals(reads + 1, store.reads.get(), "A failed write drops the cached game");
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, stored.getTeamTurn());
+        }
+    }
+
+    @Test
+    @DisplayName("A Move On A Stale Game Is Refused")
+    public void staleMove() throws DataAccessException, InvalidMoveException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 10, 60_000, true, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("race");
+            ChessGame first = cache.getGame(gameID).game();
+            ChessGame second = cache.getGame(gameID).game();
+            first.makeMove(E4);
+            cache.recordMove(gameID, E4, first);
+            second.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+            Assertions.assertThrows(DataAccessException.class, () -> cache.recordMove(gameID, E4, second));
+            Assertions.assertEquals(List.of(E4), store.getMoves(gameID));
+        }
+    }
+
+    @Test
+    @DisplayName("Moves Queued Behind A Failed Write Are Not Stored")
+    public void failedWriteStopsLaterPlies() throws DataAccessException, InvalidMoveException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 10, 60_000, false, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("gap");
+            store.writeGate = new CountDownLatch(1);
+            store.failNext = 1;
+            play(cache, gameID, E4);
+            play(cache, gameID, E5);
+            play(cache, gameID, NF3);
+            ChessGame stale = cache.getGame(gameID).game();
+
+            store.writeGate.countDown();
+            cache.flush();
+            Assertions.assertEquals(List.of(), store.getMoves(gameID), "No ply after the failed one is stored");
+            Assertions.assertEquals(3, cache.metrics().failedWrites());
+
+            ChessMove d5 = new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null);
+            stale.makeMove(d5);
+            Assertions.assertThrows(DataAccessException.class, () -> cache.recordMove(gameID, d5, stale));
+            Assertions.assertEquals(List.of(), store.getMoves(gameID), "Refused until the game is read again");
+
+            Assertions.assertEquals(new ChessGame(), cache.getGame(gameID).game());
+            play(cache, gameID, E4);
+            cache.flush();
+            Assertions.assertEquals(List.of(E4), store.getMoves(gameID));
+        }
+    }
+
+    @Test
+    @DisplayName("Least Recently Used And Idle Games Are Dropped")
+    public void eviction() throws DataAccessException, InterruptedException {
+        var store = new CountingDataAccess();
+        try (var cache = new CachingDataAccess(store, 2, 60_000, true, new AuthCache(100, 60_000, 1_000))) {
+            Double first = cache.createGame("first");
+            Double second = cache.createGame("second");
+            Double third = cache.createGame("third");
+            cache.getGame(first);
+            cache.getGame(second);
+            cache.getGame(first);
+            cache.getGame(third);
+            Assertions.assertEquals(2, cache.metrics().cachedGames());
+            Assertions.assertEquals(1, cache.metrics().evictions());
+            int reads = store.reads.get();
+            cache.getGame(first);
+            Assertions.assertEquals(reads, store.reads.get(), "Used more recently than the second game");
+            cache.getGame(second);
+            Assertions.assertEquals(reads + 1, store.reads.get());
+        }
+
+        try (var cache = new CachingDataAccess(store, 10, 40, true, new AuthCache(100, 60_000, 1_000))) {
+            Double gameID = cache.createGame("idle");
+            cache.getGame(gameID);
+            Thread.sleep(300);
+            Assertions.assertEquals(0, cache.metrics().cachedGames());
+        }
+    }
+
+    private static void play(DataAccess dataAccess, Double gameID, ChessMove move)
+            throws DataAccessException, InvalidMoveException {
+        ChessGame game = dataAccess.getGame(gameID).game();
+        game.makeMove(move);
+        dataAccess.recordMove(gameID, move, game);
+    }
+
+    /**
+     * Counts game reads, and can hold back or refuse writes
+     */
+    private static class CountingDataAccess extends MemoryDataAccess {
+        final AtomicInteger reads = new AtomicInteger();
+        volatile CountDownLatch writeGate;
+        volatile boolean failWrites;
+        volatile int failNext;
+
+        @Override
+        public GameData getGame(Double gameID) {
+            reads.incrementAndGet();
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void recordMove(Double gameID, ChessMove move, ChessGame game) throws DataAccessException {
+            if (writeGate != null) {
+                try {
+                    writeGate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failWrites) {
+                throw new DataAccessException("refused");
+            }
+            if (failNext > 0) {
+                failNext--;
+                throw new DataAccessException("refused");
+            }
+            super.recordMove(gameID, move, game);
+        }
+    }
+}
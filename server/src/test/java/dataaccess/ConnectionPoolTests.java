@@ -0,0 +1,133 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionPoolTests {
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+
+    @Test
+    @DisplayName("Closed Connections Are Reused")
+    public void reuse() throws SQLException {
+        try (var pool = new ConnectionPool(this::open, 4, 100, 60_000, 0)) {
+            for (int i = 0; i < 5; i++) {
+                try (var conn = pool.getConnection()) {
+                    Assertions.assertFalse(conn.isClosed());
+                    Assertions.assertEquals(1, pool.metrics().active());
+                }
+            }
+            Assertions.assertEquals(1, opened.size(), "One connection serves callers one after another");
+            Assertions.assertEquals(5, pool.metrics().borrowed());
+            Assertions.assertEquals(1, pool.metrics().idle());
+            Assertions.assertFalse(opened.get(0).closed);
+        }
+        Assertions.assertTrue(opened.get(0).closed, "Closing the pool closes idle connections");
+    }
+
+    @Test
+    @DisplayName("Callers Wait For A Free Connection")
+    public void bounded() throws SQLException {
+        try (var pool = new ConnectionPool(this::open, 2, 50, 60_000, 0)) {
+            var first = pool.getConnection();
+            var second = pool.getConnection();
+            Assertions.assertThrows(SQLTimeoutException.class, pool::getConnection);
+            Assertions.assertEquals(1, pool.metrics().timeouts());
+            Assertions.assertTrue(pool.metrics().maxWaitNanos() >= 50_000_000L);
+
+            first.close();
+            try (var third = pool.getConnection()) {
+                Assertions.assertEquals(2, opened.size());
+                Assertions.assertEquals(2, pool.metrics().active());
+            }
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A Returned Connection Can't Be Used")
+    public void returned() throws SQLException {
+        try (var pool = new ConnectionPool(this::open, 1, 100, 60_000, 0)) {
+            var conn = pool.getConnection();
+            conn.setAutoCommit(false);
+            conn.close();
+            conn.close();
+            Assertions.assertTrue(conn.isClosed());
+            Assertions.assertThrows(SQLException.class, conn::createStatement);
+            Assertions.assertTrue(opened.get(0).rolledBack, "Unfinished transactions are rolled back");
+            Assertions.assertTrue(opened.get(0).autoCommit);
+            Assertions.assertFalse(opened.get(0).closed);
+            Assertions.assertEquals(0, pool.metrics().active());
+        }
+    }
+
+    @Test
+    @DisplayName("Broken Idle Connections Are Replaced")
+    public void validation() throws SQLException, InterruptedException {
+        try (var pool = new ConnectionPool(this::open, 1, 100, 60_000, 0)) {
+            pool.getConnection().close();
+            opened.get(0).valid = false;
+            Thread.sleep(1_100);
+            try (var conn = pool.getConnection()) {
+                Assertions.assertEquals(2, opened.size());
+                Assertions.assertTrue(opened.get(0).closed);
+                Assertions.assertEquals(1, pool.metrics().discarded());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Idle Connections Are Closed And Leaks Reported")
+    public void housekeeping() throws SQLException, InterruptedException {
+        try (var pool = new ConnectionPool(this::open, 2, 100, 40, 40)) {
+            pool.getConnection().close();
+            var held = pool.getConnection();
+            Thread.sleep(400);
+            Assertions.assertEquals(0, pool.metrics().idle());
+            Assertions.assertEquals(1, pool.metrics().leaks(), "Reported once however long it is held");
+            held.close();
+            Assertions.assertEquals(0, pool.metrics().active());
+        }
+    }
+
+    private Connection open() {
+        FakeConnection fake = new FakeConnection();
+        opened.add(fake);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        fake.closed = true;
+                        yield null;
+                    }
+                    case "isClosed" -> fake.closed;
+                    case "isValid" -> fake.valid && !fake.closed;
+                    case "getAutoCommit" -> fake.autoCommit;
+                    case "setAutoCommit" -> {
+                        fake.autoCommit = (Boolean) args[0];
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        fake.rolledBack = true;
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    private static class FakeConnection {
+        volatile boolean closed;
+        volatile boolean valid = true;
+        boolean autoCommit = true;
+        boolean rolledBack;
+    }
+}
@@ -1,6 +1,8 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import model.GameData;
 import model.JoinData;
 import model.UserData;
@@ -10,6 +12,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import service.UserService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class MyDatabaseServiceTests {
@@ -256,4 +260,50 @@ public class MyDatabaseServiceTests {
             assert false;
         }
     }
+
+    @Test
+    public void moveLogSuccess() {
+        try {
+            var gameID = dataAccess.createGame("replayed");
+            var game = new ChessGame();
+            List<ChessMove> moves = new ArrayList<>();
+            for (int i = 0; i < SqlDataAccess.SNAPSHOT_INTERVAL + 3; i++) {
+                var shuffle = i % 4;
+                var knight = shuffle < 2 ? new ChessPosition(shuffle == 0 ? 1 : 8, 2) : new ChessPosition(shuffle == 2 ? 3 : 6, 3);
+                var square = shuffle < 2 ? new ChessPosition(shuffle == 0 ? 3 : 6, 3) : new ChessPosition(shuffle == 2 ? 1 : 8, 2);
+                var move = new ChessMove(knight, square, null);
+                game.makeMove(move);
+                moves.add(move);
+                dataAccess.recordMove(gameID, move, game);
+            }
+            assert dataAccess.getMoves(gameID).equals(moves);
+            var loaded = dataAccess.getGame(gameID).game();
+            assert loaded.equals(game);
+            assert loaded.getHalfmoveClock() == game.getHalfmoveClock();
+            var untouched = dataAccess.createGame("untouched");
+            for (var listed : dataAccess.listGames()) {
+                assert listed.game().equals(listed.gameID().equals(gameID) ? game : new ChessGame());
+            }
+            assert dataAccess.getGame(untouched).game().equals(new ChessGame());
+        }
+        catch (Exception ex) {
+            assert false;
+        }
+    }
+
+    @Test
+    public void moveLogFail() {
+        try {
+            var gameID = dataAccess.createGame("replayed");
+            var game = new ChessGame();
+            var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            game.makeMove(move);
+            dataAccess.recordMove(gameID, move, game);
+            dataAccess.recordMove(gameID, move, game);
+            assert false;
+        }
+        catch (Exception ex) {
+            assert ex instanceof DataAccessException;
+        }
+    }
 }
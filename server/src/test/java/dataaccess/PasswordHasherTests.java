@@ -0,0 +1,95 @@
+package dataaccess;
+
+import model.UserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PasswordHasherTests {
+
+    @Test
+    @DisplayName("Hashes Check Against Their Password")
+    public void roundTrip() throws DataAccessException {
+        try (var hasher = new PasswordHasher(4, 2, 8, 10_000)) {
+            String hash = hasher.hash("secret");
+            Assertions.assertTrue(hash.startsWith("$2a$04$"));
+            Assertions.assertTrue(hasher.check("secret", hash));
+            Assertions.assertFalse(hasher.check("guess", hash));
+            Assertions.assertFalse(hasher.check("secret", "secret"), "Not a BCrypt hash");
+            Assertions.assertEquals(1, hasher.metrics().hashed());
+            Assertions.assertEquals(3, hasher.metrics().checked());
+        }
+    }
+
+    @Test
+    @DisplayName("Hashes Of Another Cost Need Rehashing")
+    public void needsRehash() throws DataAccessException {
+        try (var old = new PasswordHasher(4, 1, 8, 10_000); var current = new PasswordHasher(5, 1, 8, 10_000)) {
+            String hash = old.hash("secret");
+            Assertions.assertFalse(old.needsRehash(hash));
+            Assertions.assertTrue(current.needsRehash(hash));
+            Assertions.assertTrue(current.check("secret", hash), "Old hashes still check");
+            Assertions.assertTrue(current.needsRehash("plain text"));
+        }
+    }
+
+    @Test
+    @DisplayName("Logging In Rehashes At The New Cost")
+    public void rehashOnLogin() throws DataAccessException {
+        try (var old = new PasswordHasher(4, 1, 8, 10_000); var current = new PasswordHasher(5, 1, 8, 10_000)) {
+            var dataAccess = new MemoryDataAccess();
+            dataAccess.addUser(new UserData("alice", old.hash("secret"), "alice@mail.com"));
+            var service = new UserService(dataAccess, null, current);
+            service.login(new UserData("alice", "secret", null));
+
+            String stored = dataAccess.getUser("alice").password();
+            Assertions.assertTrue(stored.startsWith("$2a$05$"));
+            Assertions.assertTrue(current.check("secret", stored));
+            Assertions.assertEquals("alice@mail.com", dataAccess.getUser("alice").email());
+
+            DataAccessException ex = Assertions.assertThrows(DataAccessException.class,
+                    () -> service.login(new UserData("alice", "guess", null)));
+            Assertions.assertEquals("Error: unauthorized", ex.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("A Full Queue Turns Callers Away")
+    public void bounded() throws InterruptedException {
+        try (var hasher = new PasswordHasher(12, 1, 1, 10_000)) {
+            AtomicInteger busy = new AtomicInteger();
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                callers.add(Thread.startVirtualThread(() -> {
+                    try {
+                        hasher.hash("secret");
+                    } catch (DataAccessException ex) {
+                        Assertions.assertEquals(PasswordHasher.BUSY, ex.getMessage());
+                        busy.incrementAndGet();
+                    }
+                }));
+            }
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            Assertions.assertTrue(busy.get() >= 2, "One hashing and one queued at most");
+            Assertions.assertEquals(busy.get(), hasher.metrics().rejected());
+            Assertions.assertEquals(4 - busy.get(), hasher.metrics().hashed());
+        }
+    }
+
+    @Test
+    @DisplayName("Callers Stop Waiting After The Timeout")
+    public void timeout() {
+        try (var hasher = new PasswordHasher(12, 1, 4, 1)) {
+            DataAccessException ex = Assertions.assertThrows(DataAccessException.class, () -> hasher.hash("secret"));
+            Assertions.assertEquals(PasswordHasher.BUSY, ex.getMessage());
+            Assertions.assertEquals(1, hasher.metrics().timeouts());
+        }
+    }
+}
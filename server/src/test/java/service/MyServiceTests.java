@@ -1,4 +1,55 @@
 package service;
 
+import chess.ChessGame;
+import chess.engine.SearchLimits;
+import chess.engine.SearchPool;
+import chess.engine.TranspositionTable;
+import dataaccess.DataAccessException;
+import dataaccess.MemoryDataAccess;
+import dataaccess.PasswordHasher;
+import model.UserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
 public class MyServiceTests {
+
+    @Test
+    @DisplayName("Hints Come From The Search Pool")
+    public void hint() throws DataAccessException {
+        var dataAccess = new MemoryDataAccess();
+        var auth = dataAccess.addUser(new UserData("alice", "secret", "alice@mail.com")).authToken();
+        var gameID = dataAccess.createGame("hinted");
+        try (var hasher = new PasswordHasher(4, 1, 1, 10_000); var pool = new SearchPool(2, 2, new TranspositionTable(1))) {
+            var service = new UserService(dataAccess, null, hasher);
+            var hint = service.hint(gameID, auth, pool, SearchLimits.depth(3), 2);
+            Assertions.assertTrue(new ChessGame().validMoves(hint.move().getStartPosition()).contains(hint.move()));
+            Assertions.assertEquals(hint.move(), hint.line().get(0));
+            Assertions.assertEquals(3, hint.depth());
+
+            DataAccessException ex = Assertions.assertThrows(DataAccessException.class,
+                    () -> service.hint(gameID, "forged", pool, SearchLimits.depth(3), 2));
+            Assertions.assertEquals("Error: unauthorized", ex.getMessage());
+            ex = Assertions.assertThrows(DataAccessException.class,
+                    () -> service.hint(gameID + 1, auth, pool, SearchLimits.depth(3), 2));
+            Assertions.assertEquals("Error: bad request", ex.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("A Full Search Pool Turns Hints Away")
+    public void hintBusy() throws DataAccessException {
+        var dataAccess = new MemoryDataAccess();
+        var auth = dataAccess.addUser(new UserData("bob", "secret", "bob@mail.com")).authToken();
+        var gameID = dataAccess.createGame("busy");
+        var pool = new SearchPool(1, 1, new TranspositionTable(1));
+        // a closed pool refuses searches the same way a full one does
+        pool.close();
+        try (var hasher = new PasswordHasher(4, 1, 1, 10_000)) {
+            var service = new UserService(dataAccess, null, hasher);
+            DataAccessException ex = Assertions.assertThrows(DataAccessException.class,
+                    () -> service.hint(gameID, auth, pool, SearchLimits.depth(1), 1));
+            Assertions.assertEquals(UserService.SEARCH_BUSY, ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,223 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import static chess.Bitboards.*;
+
+/**
+ * Everything needed to decide move legality for one side in one position, worked out
+ * once: the squares each side attacks, the enemy pieces giving check and the own pieces
+ * pinned to the king. With that a move is legal when its target passes a couple of mask
+ * tests, no make/unmake and no re-scan of the king's rays per move.
+ * <p>
+ * The map describes the board as it was when it was built. After the board changes,
+ * either build a new one or reset this one, which is what a search does with one map
+ * per ply so it never allocates.
+ */
+public final class AttackMap {
+
+    private ChessBoard board;
+    private TeamColor side;
+    private int us;
+    private int kingSquare;
+    private long ownAttacks;
+    /**
+     * Computed as if our king were not there, so a king can not step back along the ray
+     * it is checked on
+     */
+    private long enemyAttacks;
+    private long checkers;
+    private long pinned;
+    /**
+     * Where a non-king move has to land: anywhere when not in check, the checker or a
+     * square that blocks it when in single check, nowhere in double check
+     */
+    private long checkMask;
+    private final int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+
+    /**
+     * Creates an empty map, call reset before using it
+     */
+    public AttackMap() {
+    }
+
+    /**
+     * Analyses the board from the given side's point of view
+     */
+    public static AttackMap of(ChessBoard board, TeamColor side) {
+        return new AttackMap().reset(board, side);
+    }
+
+    /**
+     * Throws away what this map knew and analyses the board from the given side's point
+     * of view
+     *
+     * @return this map
+     */
+    public AttackMap reset(ChessBoard board, TeamColor side) {
+        this.board = board;
+        this.side = side;
+        this.us = ChessBoard.colorIndex(side);
+        long king = board.pieceBoards[us * 6 + PieceType.KING.ordinal()];
+        this.kingSquare = king == 0L ? -1 : Long.numberOfTrailingZeros(king);
+        long occupied = board.occupied();
+        ownAttacks = attacksOf(board, us, occupied);
+        enemyAttacks = attacksOf(board, us ^ 1, occupied & ~king);
+
+        long checking = 0L;
+        long pinning = 0L;
+        if (kingSquare >= 0) {
+            int base = (us ^ 1) * 6;
+            long[] boards = board.pieceBoards;
+            long queens = boards[base + PieceType.QUEEN.ordinal()];
+            checking |= KNIGHT_ATTACKS[kingSquare] & boards[base + PieceType.KNIGHT.ordinal()];
+            checking |= PAWN_ATTACKS[us][kingSquare] & boards[base + PieceType.PAWN.ordinal()];
+            long snipers = (rookAttacks(kingSquare, 0L) & (boards[base + PieceType.ROOK.ordinal()] | queens))
+                    | (bishopAttacks(kingSquare, 0L) & (boards[base + PieceType.BISHOP.ordinal()] | queens));
+            while (snipers != 0L) {
+                int sniper = Long.numberOfTrailingZeros(snipers);
+                long blockers = BETWEEN[kingSquare * 64 + sniper] & occupied;
+                if (blockers == 0L) {
+                    checking |= 1L << sniper;
+                } else if ((blockers & (blockers - 1)) == 0L && (blockers & board.colorBoards[us]) != 0L) {
+                    pinning |= blockers;
+                }
+                snipers &= snipers - 1;
+            }
+        }
+        checkers = checking;
+        pinned = pinning;
+        if (checking == 0L) {
+            checkMask = -1L;
+        } else if ((checking & (checking - 1)) == 0L) {
+            checkMask = checking | BETWEEN[kingSquare * 64 + Long.numberOfTrailingZeros(checking)];
+        } else {
+            checkMask = 0L;
+        }
+        return this;
+    }
+
+    /**
+     * @return the squares the given color attacks
+     */
+    public long attacks(TeamColor color) {
+        return color == side ? ownAttacks : enemyAttacks;
+    }
+
+    /**
+     * @return the enemy pieces currently giving check
+     */
+    public long checkers() {
+        return checkers;
+    }
+
+    /**
+     * @return own pieces that can only move along the line between their king and the
+     * enemy piece pinning them
+     */
+    public long pinned() {
+        return pinned;
+    }
+
+    public boolean inCheck() {
+        return checkers != 0L;
+    }
+
+    /**
+     * Tells whether a pseudo-legal move of this side, as produced by the bitboard
+     * generator or ChessPiece.pieceMoves, leaves its own king safe
+     */
+    public boolean isLegal(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        if (kingSquare < 0) {
+            return true;
+        }
+        if (from == to) {
+            // the highlight marker lifts the piece, which is only safe when nothing is
+            // attacking the king and the piece is not shielding it
+            return checkers == 0L && (pinned & (1L << from)) == 0L;
+        }
+        if (from == kingSquare) {
+            // castling is only generated when the king's path is safe
+            return Math.abs((to & 7) - (from & 7)) == 2 || (enemyAttacks & (1L << to)) == 0L;
+        }
+        ChessPiece mover = board.squares[from];
+        if (mover.type == PieceType.PAWN && (from & 7) != (to & 7) && board.squares[to] == null) {
+            // en passant takes a piece off a square it does not land on, which masks can
+            // not describe (think of both pawns leaving the king's rank at once)
+            board.makeMove(move);
+            boolean legal = !board.isKingAttacked(side);
+            board.unmakeMove();
+            return legal;
+        }
+        if ((checkMask & (1L << to)) == 0L) {
+            return false;
+        }
+        return (pinned & (1L << from)) == 0L || (LINE[kingSquare * 64 + from] & (1L << to)) != 0L;
+    }
+
+    public boolean isLegal(ChessMove move) {
+        return isLegal(Moves.of(move));
+    }
+
+    /**
+     * @return true as soon as one legal move is found for this side
+     */
+    public boolean hasLegalMove() {
+        // king moves first, they are the only ones left in double check
+        if (kingSquare >= 0 && anyLegal(moves, BitboardMoveGenerator.pieceMoves(board, kingSquare, moves, 0))) {
+            return true;
+        }
+        if ((checkers & (checkers - 1)) != 0L) {
+            return false;
+        }
+        long pieces = board.colorBoards[us] & ~(kingSquare >= 0 ? 1L << kingSquare : 0L);
+        while (pieces != 0L) {
+            int count = BitboardMoveGenerator.pieceMoves(board, Long.numberOfTrailingZeros(pieces), moves, 0);
+            if (anyLegal(moves, count)) {
+                return true;
+            }
+            pieces &= pieces - 1;
+        }
+        return false;
+    }
+
+    private boolean anyLegal(int[] moves, int count) {
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long attacksOf(ChessBoard board, int color, long occupied) {
+        int base = color * 6;
+        long[] boards = board.pieceBoards;
+        long result = 0L;
+        long pawns = boards[base + PieceType.PAWN.ordinal()];
+        if (color == 0) {
+            result |= ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+        } else {
+            result |= ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A);
+        }
+        for (long knights = boards[base + PieceType.KNIGHT.ordinal()]; knights != 0L; knights &= knights - 1) {
+            result |= KNIGHT_ATTACKS[Long.numberOfTrailingZeros(knights)];
+        }
+        long queens = boards[base + PieceType.QUEEN.ordinal()];
+        for (long diagonal = boards[base + PieceType.BISHOP.ordinal()] | queens; diagonal != 0L;
+             diagonal &= diagonal - 1) {
+            result |= bishopAttacks(Long.numberOfTrailingZeros(diagonal), occupied);
+        }
+        for (long straight = boards[base + PieceType.ROOK.ordinal()] | queens; straight != 0L;
+             straight &= straight - 1) {
+            result |= rookAttacks(Long.numberOfTrailingZeros(straight), occupied);
+        }
+        for (long kings = boards[base + PieceType.KING.ordinal()]; kings != 0L; kings &= kings - 1) {
+            result |= KING_ATTACKS[Long.numberOfTrailingZeros(kings)];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,255 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static chess.Bitboards.*;
+
+/**
+ * Move generator working on the bitboards kept by ChessBoard. It produces the same
+ * moves as ChessPiece.pieceMoves (minus the piece's own square) but fills int arrays
+ * of packed moves, see {@link Moves}.
+ * <p>
+ * Moves are pseudo-legal: they may leave the mover's own king in check. Castling is the
+ * exception, it is only generated when the king does not start on, pass through or land
+ * on an attacked square, same as pieceMoves.
+ */
+public final class BitboardMoveGenerator {
+
+    /**
+     * Longest possible pseudo-legal move list for one position
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final int TACTICAL = 1;
+    private static final int QUIET = 2;
+    private static final int ALL = TACTICAL | QUIET;
+
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    private BitboardMoveGenerator() {
+    }
+
+    /**
+     * Gets the pseudo-legal moves of the piece on the given position
+     *
+     * @return the moves, empty if there is no piece there
+     */
+    public static Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition position) {
+        int[] moves = new int[64];
+        int count = pieceMoves(board, Moves.square(position), moves, 0);
+        Collection<ChessMove> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(Moves.toChessMove(moves[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Appends the pseudo-legal moves of the piece on square from to moves
+     *
+     * @return the new number of moves in the array
+     */
+    public static int pieceMoves(ChessBoard board, int from, int[] moves, int count) {
+        return pieceMoves(board, from, ALL, moves, count);
+    }
+
+    /**
+     * Appends every pseudo-legal move of the given side to moves
+     *
+     * @return the new number of moves in the array
+     */
+    public static int allMoves(ChessBoard board, TeamColor side, int[] moves, int count) {
+        return sideMoves(board, side, ALL, moves, count);
+    }
+
+    /**
+     * Appends the pseudo-legal captures and queen promotions of the given side to
+     * moves. Together with {@link #quietMoves} these are exactly the moves of
+     * {@link #allMoves}, so a search can generate the quiet moves only when the
+     * tactical ones did not already settle the position.
+     *
+     * @return the new number of moves in the array
+     */
+    public static int tacticalMoves(ChessBoard board, TeamColor side, int[] moves, int count) {
+        return sideMoves(board, side, TACTICAL, moves, count);
+    }
+
+    /**
+     * Appends the pseudo-legal moves of the given side that {@link #tacticalMoves}
+     * leaves out: non-captures, castling and underpromotions without a capture
+     *
+     * @return the new number of moves in the array
+     */
+    public static int quietMoves(ChessBoard board, TeamColor side, int[] moves, int count) {
+        return sideMoves(board, side, QUIET, moves, count);
+    }
+
+    private static int sideMoves(ChessBoard board, TeamColor side, int kinds, int[] moves, int count) {
+        long pieces = board.colorBoards[ChessBoard.colorIndex(side)];
+        while (pieces != 0L) {
+            count = pieceMoves(board, Long.numberOfTrailingZeros(pieces), kinds, moves, count);
+            pieces &= pieces - 1;
+        }
+        return count;
+    }
+
+    private static int pieceMoves(ChessBoard board, int from, int kinds, int[] moves, int count) {
+        ChessPiece piece = board.squares[from];
+        if (piece == null) {
+            return count;
+        }
+        int us = ChessBoard.colorIndex(piece.faction);
+        long own = board.colorBoards[us];
+        long enemy = board.colorBoards[us ^ 1];
+        long occupied = own | enemy;
+        long targets;
+        switch (piece.type) {
+            case PAWN -> {
+                return pawnMoves(board, from, us, enemy, occupied, kinds, moves, count);
+            }
+            case KNIGHT -> targets = KNIGHT_ATTACKS[from];
+            case BISHOP -> targets = bishopAttacks(from, occupied);
+            case ROOK -> targets = rookAttacks(from, occupied);
+            case QUEEN -> targets = queenAttacks(from, occupied);
+            default -> {
+                if ((kinds & QUIET) != 0) {
+                    count = castlingMoves(board, piece, from, us, occupied, moves, count);
+                }
+                targets = KING_ATTACKS[from];
+            }
+        }
+        targets &= ~own;
+        if ((kinds & TACTICAL) == 0) {
+            targets &= ~enemy;
+        }
+        if ((kinds & QUIET) == 0) {
+            targets &= enemy;
+        }
+        return addTargets(from, targets, enemy, moves, count);
+    }
+
+    /**
+     * @return the squares a piece of the given color and type standing on sq attacks,
+     * with sliding pieces stopped by occupied. For a pawn these are its capture squares.
+     */
+    public static long attacks(TeamColor color, PieceType type, int sq, long occupied) {
+        return switch (type) {
+            case KING -> KING_ATTACKS[sq];
+            case QUEEN -> queenAttacks(sq, occupied);
+            case BISHOP -> bishopAttacks(sq, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[sq];
+            case ROOK -> rookAttacks(sq, occupied);
+            case PAWN -> PAWN_ATTACKS[ChessBoard.colorIndex(color)][sq];
+        };
+    }
+
+    /**
+     * @return true if any piece of the given color attacks square sq
+     */
+    public static boolean isAttacked(ChessBoard board, int sq, TeamColor by) {
+        int them = ChessBoard.colorIndex(by);
+        int base = them * 6;
+        long[] boards = board.pieceBoards;
+        if ((KNIGHT_ATTACKS[sq] & boards[base + PieceType.KNIGHT.ordinal()]) != 0L
+                || (KING_ATTACKS[sq] & boards[base + PieceType.KING.ordinal()]) != 0L
+                || (PAWN_ATTACKS[them ^ 1][sq] & boards[base + PieceType.PAWN.ordinal()]) != 0L) {
+            return true;
+        }
+        long occupied = board.occupied();
+        long queens = boards[base + PieceType.QUEEN.ordinal()];
+        return (bishopAttacks(sq, occupied) & (boards[base + PieceType.BISHOP.ordinal()] | queens)) != 0L
+                || (rookAttacks(sq, occupied) & (boards[base + PieceType.ROOK.ordinal()] | queens)) != 0L;
+    }
+
+    private static int addTargets(int from, long targets, long enemy, int[] moves, int count) {
+        while (targets != 0L) {
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[count++] = Moves.of(from, to) | ((enemy & (1L << to)) != 0L ? Moves.CAPTURE : 0);
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    private static int pawnMoves(ChessBoard board, int from, int us, long enemy, long occupied, int kinds,
+                                 int[] moves, int count) {
+        int forward = us == 0 ? 8 : -8;
+        long promotionRank = us == 0 ? RANK_8 : RANK_1;
+        long startRank = us == 0 ? RANK_2 : RANK_7;
+        int push = from + forward;
+        if (push >= 0 && push < 64 && (occupied & (1L << push)) == 0L) {
+            count = addPawnMove(from, push, 0, promotionRank, kinds, moves, count);
+            int doublePush = push + forward;
+            if ((kinds & QUIET) != 0 && (startRank & (1L << from)) != 0L && (occupied & (1L << doublePush)) == 0L) {
+                moves[count++] = Moves.of(from, doublePush) | Moves.DOUBLE_PUSH;
+            }
+        }
+        if ((kinds & TACTICAL) == 0) {
+            return count;
+        }
+        long captures = PAWN_ATTACKS[us][from] & enemy;
+        while (captures != 0L) {
+            count = addPawnMove(from, Long.numberOfTrailingZeros(captures), Moves.CAPTURE, promotionRank, kinds, moves, count);
+            captures &= captures - 1;
+        }
+        ChessPosition passed = board.enPassantPosition;
+        if (passed != null) {
+            int victim = Moves.square(passed);
+            ChessPiece victimPiece = board.squares[victim];
+            if (victimPiece != null && victimPiece.type == PieceType.PAWN
+                    && ChessBoard.colorIndex(victimPiece.faction) != us
+                    && (victim >> 3) == (from >> 3) && Math.abs((victim & 7) - (from & 7)) == 1
+                    && (occupied & (1L << (victim + forward))) == 0L) {
+                moves[count++] = Moves.of(from, victim + forward) | Moves.CAPTURE | Moves.EN_PASSANT;
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int flags, long promotionRank, int kinds,
+                                   int[] moves, int count) {
+        boolean capture = flags != 0;
+        if ((promotionRank & (1L << to)) != 0L) {
+            for (PieceType promotion : PROMOTIONS) {
+                int kind = capture || promotion == PieceType.QUEEN ? TACTICAL : QUIET;
+                if ((kinds & kind) != 0) {
+                    moves[count++] = Moves.of(from, to, promotion, flags);
+                }
+            }
+        } else if ((kinds & (capture ? TACTICAL : QUIET)) != 0) {
+            moves[count++] = Moves.of(from, to) | flags;
+        }
+        return count;
+    }
+
+    private static int castlingMoves(ChessBoard board, ChessPiece king, int from, int us, long occupied,
+                                     int[] moves, int count) {
+        int home = us == 0 ? 4 : 60;
+        if (king.moved || from != home) {
+            return count;
+        }
+        TeamColor enemy = us == 0 ? TeamColor.BLACK : TeamColor.WHITE;
+        if (isAttacked(board, from, enemy)) {
+            return count;
+        }
+        if (canCastleWith(board, king, from + 3, occupied, 0x3L << (from + 1))
+                && !isAttacked(board, from + 1, enemy) && !isAttacked(board, from + 2, enemy)) {
+            moves[count++] = Moves.of(from, from + 2) | Moves.CASTLE;
+        }
+        if (canCastleWith(board, king, from - 4, occupied, 0x7L << (from - 3))
+                && !isAttacked(board, from - 1, enemy) && !isAttacked(board, from - 2, enemy)) {
+            moves[count++] = Moves.of(from, from - 2) | Moves.CASTLE;
+        }
+        return count;
+    }
+
+    private static boolean canCastleWith(ChessBoard board, ChessPiece king, int rookSquare, long occupied,
+                                         long between) {
+        ChessPiece rook = board.squares[rookSquare];
+        return rook != null && rook.type == PieceType.ROOK && rook.faction == king.faction && !rook.moved
+                && (occupied & between) == 0L;
+    }
+}
@@ -0,0 +1,209 @@
+package chess;
+
+/**
+ * Precomputed attack tables for the bitboard move generator.
+ * <p>
+ * Squares use the same numbering as the ChessBoard mailbox: bit 0 is a1 (row 1, col 1),
+ * bit 7 is h1 and bit 63 is h8. Sliding attacks use "fancy" magic bitboards, the magic
+ * multipliers below were found once with a seeded random search.
+ */
+final class Bitboards {
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_2 = RANK_1 << 8;
+    static final long RANK_7 = RANK_1 << 48;
+    static final long RANK_8 = RANK_1 << 56;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    /**
+     * Squares attacked by a pawn of the given color, indexed [0 = white, 1 = black][square]
+     */
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MAGICS = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+            0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+            0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+            0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+            0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L,
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0xA010041108003100L, 0x006082020A002900L, 0x6810010619200000L, 0x08281A0520000408L,
+            0x0001104001000400L, 0x0018901008048400L, 0x00040A0210245280L, 0x000200210808A402L,
+            0x9140048410821200L, 0x0800091010820041L, 0x20504804832202C0L, 0x0100091401081000L,
+            0x8021011140000012L, 0x0810020804450400L, 0x208B0542109008A2L, 0x0080084A08040204L,
+            0x0040E2A80811244CL, 0x2505022008008108L, 0x0430220100420040L, 0x010A040420220040L,
+            0x1105000290400000L, 0x0093001200822120L, 0x4000A62048043004L, 0x280120048A015004L,
+            0x006090002A020814L, 0x44042000240800D0L, 0x01102800040A4400L, 0x1004080080220040L,
+            0x0001001011004024L, 0x0010044000805040L, 0x0914041200820100L, 0x0004821012821480L,
+            0x0024040500C05021L, 0x0088611002080200L, 0x0116080A00040020L, 0x4000020080080080L,
+            0x2450450140840040L, 0x0000880201484100L, 0x0222020404020092L, 0x8081110600002E00L,
+            0x2842101105000801L, 0x1100809008001025L, 0x00020202221C0400L, 0x0422014022009020L,
+            0x0210046102100C00L, 0xC004008082029102L, 0x00AA461801101200L, 0x0404080080201108L,
+            0x020542108C205002L, 0x0410544804100100L, 0x0040910841100000L, 0x0400200042021100L,
+            0x00004204850400C0L, 0x0200100410A42102L, 0x1040020801210102L, 0x0805040410420000L,
+            0x2884804130100200L, 0x800C262201242000L, 0x1058000194108800L, 0x0014221054420204L,
+            0x0104000012A02200L, 0x0200881003300100L, 0x0140400202840100L, 0x0402020801010201L,
+    };
+
+    /**
+     * Squares strictly between two squares on the same rank, file or diagonal, indexed
+     * [from * 64 + to]. Empty when they are not aligned.
+     */
+    static final long[] BETWEEN = new long[64 * 64];
+    /**
+     * The whole line (edge to edge) through two aligned squares, indexed like BETWEEN
+     */
+    static final long[] LINE = new long[64 * 64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3;
+            int col = sq & 7;
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[sq] |= bit(row + jump[0], col + jump[1]);
+            }
+            for (int i = -1; i < 2; i++) {
+                for (int j = -1; j < 2; j++) {
+                    if (i != 0 || j != 0) {
+                        KING_ATTACKS[sq] |= bit(row + i, col + j);
+                    }
+                }
+            }
+            PAWN_ATTACKS[0][sq] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[1][sq] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+        }
+
+        int rookSize = 0;
+        int bishopSize = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            ROOK_MASKS[sq] = relevantOccupancy(sq, ROOK_DIRECTIONS);
+            BISHOP_MASKS[sq] = relevantOccupancy(sq, BISHOP_DIRECTIONS);
+            ROOK_SHIFTS[sq] = 64 - Long.bitCount(ROOK_MASKS[sq]);
+            BISHOP_SHIFTS[sq] = 64 - Long.bitCount(BISHOP_MASKS[sq]);
+            ROOK_OFFSETS[sq] = rookSize;
+            BISHOP_OFFSETS[sq] = bishopSize;
+            rookSize += 1 << Long.bitCount(ROOK_MASKS[sq]);
+            bishopSize += 1 << Long.bitCount(BISHOP_MASKS[sq]);
+        }
+        ROOK_TABLE = new long[rookSize];
+        BISHOP_TABLE = new long[bishopSize];
+        for (int sq = 0; sq < 64; sq++) {
+            fillTable(sq, ROOK_MASKS[sq], ROOK_MAGICS[sq], ROOK_SHIFTS[sq], ROOK_OFFSETS[sq], ROOK_TABLE, ROOK_DIRECTIONS);
+            fillTable(sq, BISHOP_MASKS[sq], BISHOP_MAGICS[sq], BISHOP_SHIFTS[sq], BISHOP_OFFSETS[sq], BISHOP_TABLE,
+                    BISHOP_DIRECTIONS);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long ends = (1L << a) | (1L << b);
+                if (a != b && (rookAttacks(a, 0L) & (1L << b)) != 0L) {
+                    BETWEEN[a * 64 + b] = rookAttacks(a, 1L << b) & rookAttacks(b, 1L << a);
+                    LINE[a * 64 + b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                } else if (a != b && (bishopAttacks(a, 0L) & (1L << b)) != 0L) {
+                    BETWEEN[a * 64 + b] = bishopAttacks(a, 1L << b) & bishopAttacks(b, 1L << a);
+                    LINE[a * 64 + b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq]
+                + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    /**
+     * @return a bitboard with only the given 0 based row and column set, or 0 when off the board
+     */
+    private static long bit(int row, int col) {
+        if (row < 0 || row > 7 || col < 0 || col > 7) {
+            return 0L;
+        }
+        return 1L << ((row << 3) + col);
+    }
+
+    /**
+     * The squares whose occupancy changes a slider's attacks, i.e. its rays minus the board edge
+     */
+    private static long relevantOccupancy(int sq, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = (sq >> 3) + direction[0];
+            int col = (sq & 7) + direction[1];
+            while (bit(row + direction[0], col + direction[1]) != 0L) {
+                mask |= bit(row, col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slowAttacks(int sq, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = (sq >> 3) + direction[0];
+            int col = (sq & 7) + direction[1];
+            long target = bit(row, col);
+            while (target != 0L) {
+                attacks |= target;
+                if ((occupied & target) != 0L) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+                target = bit(row, col);
+            }
+        }
+        return attacks;
+    }
+
+    private static void fillTable(int sq, long mask, long magic, int shift, int offset, long[] table,
+                                  int[][] directions) {
+        long subset = 0L;
+        do {
+            table[offset + (int) ((subset * magic) >>> shift)] = slowAttacks(sq, subset, directions);
+            subset = (subset - mask) & mask;
+        } while (subset != 0L);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import chess.ChessGame.TeamColor;
 import chess.ChessPiece.PieceType;
+import com.google.gson.annotations.JsonAdapter;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -12,12 +13,53 @@ import chess.ChessPiece.PieceType;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoardAdapter.class)
 public class ChessBoard implements Cloneable{
 
-    public Map<String, ChessPiece> allPieces = new HashMap<>();
+    /**
+     * Mailbox storage, one slot per square. Square index is (row - 1) * 8 + (col - 1),
+     * so a1 is 0 and h8 is 63.
+     */
+    ChessPiece[] squares = new ChessPiece[64];
+    /**
+     * The same pieces as bitboards, one per color and type (see boardIndex), plus one
+     * occupancy board per color. Kept in sync by setSquare.
+     */
+    long[] pieceBoards = new long[12];
+    long[] colorBoards = new long[2];
+    /**
+     * "row_col" keyed view of the board, only built when someone asks for it
+     */
+    private Map<String, ChessPiece> allPieces;
     boolean whitePawnDoubleMove = false;
     boolean blackPawnDoubleMove = false;
     public ChessPosition enPassantPosition;
+    /**
+     * XOR of the Zobrist keys of every piece on the board, updated by setSquare
+     */
+    private long pieceKey = 0L;
+    /**
+     * XOR of the Zobrist keys of the pawns alone, for the evaluator's pawn hash table
+     */
+    long pawnKey = 0L;
+    /**
+     * Material and piece-square totals, white minus black, and the game phase, see
+     * Evaluator. Kept up to date by setSquare like the keys.
+     */
+    int middlegame = 0;
+    int endgame = 0;
+    int phase = 0;
+    /**
+     * Whose turn it is on this board. makeMove hands the turn to the other side of the
+     * piece that moved, ChessGame keeps it in step with its own turn.
+     */
+    private boolean blackToMove = false;
+    /**
+     * Everything makeMove changed, so unmakeMove can put it back. Entries are reused
+     * between moves so searching with make/unmake does not allocate.
+     */
+    private Undo[] undoStack = new Undo[16];
+    private int undoCount = 0;
 
     public ChessBoard() {
     }
@@ -26,6 +68,319 @@ public class ChessBoard implements Cloneable{
         return position.getRow() + "_" + position.getColumn();
     }
 
+    /**
+     * @return the mailbox index of the given row and column
+     */
+    static int index(int row, int col) {
+        return ((row - 1) << 3) + (col - 1);
+    }
+
+    static boolean onBoard(int row, int col) {
+        return row > 0 & row < 9 & col > 0 & col < 9;
+    }
+
+    /**
+     * @return 0 for white and 1 for black, used to index the per-color tables
+     */
+    static int colorIndex(TeamColor color) {
+        return color == TeamColor.WHITE ? 0 : 1;
+    }
+
+    /**
+     * @return which of the twelve piece bitboards the given color and type live on
+     */
+    static int boardIndex(TeamColor color, PieceType type) {
+        return colorIndex(color) * 6 + type.ordinal();
+    }
+
+    long occupied() {
+        return colorBoards[0] | colorBoards[1];
+    }
+
+    /**
+     * @return a bitboard of the squares holding the given color and type, bit 0 is a1
+     * and bit 63 is h8
+     */
+    public long pieces(TeamColor color, PieceType type) {
+        return pieceBoards[boardIndex(color, type)];
+    }
+
+    /**
+     * Puts a piece (or null) on a square and keeps the bitboards in step with the mailbox
+     */
+    void setSquare(int sq, ChessPiece piece) {
+        long clear = ~(1L << sq);
+        ChessPiece old = squares[sq];
+        if (old != null) {
+            pieceBoards[boardIndex(old.faction, old.type)] &= clear;
+            colorBoards[colorIndex(old.faction)] &= clear;
+            pieceKey ^= Zobrist.piece(old, sq);
+            account(old, sq, -1);
+        }
+        squares[sq] = piece;
+        if (piece != null) {
+            pieceKey ^= Zobrist.piece(piece, sq);
+            account(piece, sq, 1);
+            pieceBoards[boardIndex(piece.faction, piece.type)] |= 1L << sq;
+            colorBoards[colorIndex(piece.faction)] |= 1L << sq;
+        }
+        allPieces = null;
+    }
+
+    /**
+     * Adds (sign 1) or takes away (sign -1) a piece's share of the evaluation totals
+     */
+    private void account(ChessPiece piece, int sq, int sign) {
+        int board = boardIndex(piece.faction, piece.type);
+        middlegame += sign * Evaluator.MIDDLEGAME[(board << 6) | sq];
+        endgame += sign * Evaluator.ENDGAME[(board << 6) | sq];
+        phase += sign * Evaluator.PHASE_WEIGHT[board];
+        if (piece.type == PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(piece, sq);
+        }
+    }
+
+    /**
+     * Plays a move on this board in place: captures (including en passant), moving the
+     * rook when castling, promotion, the moved flags and the en passant state. Call
+     * unmakeMove to take it back. The move is not checked for legality.
+     *
+     * @param move the move to play
+     */
+    public void makeMove(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        makeMove(index(start.getRow(), start.getColumn()), index(end.getRow(), end.getColumn()),
+                move.getPromotionPiece());
+    }
+
+    /**
+     * Plays a packed move, see {@link Moves}
+     */
+    public void makeMove(int move) {
+        makeMove(Moves.from(move), Moves.to(move), Moves.promotion(move));
+    }
+
+    void makeMove(int from, int to, PieceType promotion) {
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        Undo undo = undoStack[undoCount];
+        if (undo == null) {
+            undo = new Undo();
+            undoStack[undoCount] = undo;
+        }
+        undoCount++;
+
+        ChessPiece mover = squares[from];
+        undo.from = from;
+        undo.to = to;
+        undo.mover = mover;
+        undo.moverMoved = mover.moved;
+        undo.captured = squares[to];
+        undo.capturedSquare = to;
+        undo.rook = null;
+        undo.whitePawnDoubleMove = whitePawnDoubleMove;
+        undo.blackPawnDoubleMove = blackPawnDoubleMove;
+        undo.enPassantPosition = enPassantPosition;
+        undo.blackToMove = blackToMove;
+
+        whitePawnDoubleMove = false;
+        blackPawnDoubleMove = false;
+        enPassantPosition = null;
+
+        ChessPiece placed = mover;
+        int fileChange = (to & 7) - (from & 7);
+        if (mover.type == PieceType.PAWN) {
+            if (fileChange != 0 && squares[to] == null) {
+                // en passant, the captured pawn sits beside the start square
+                undo.capturedSquare = (from & ~7) | (to & 7);
+                undo.captured = squares[undo.capturedSquare];
+                setSquare(undo.capturedSquare, null);
+            } else if (Math.abs(to - from) == 16) {
+                if (mover.faction == TeamColor.WHITE) {
+                    whitePawnDoubleMove = true;
+                } else {
+                    blackPawnDoubleMove = true;
+                }
+                enPassantPosition = Moves.position(to);
+            }
+            if (promotion != null) {
+                placed = new ChessPiece(mover.faction, promotion);
+            }
+        } else if (mover.type == PieceType.KING && Math.abs(fileChange) == 2) {
+            int rookFrom = fileChange > 0 ? (from | 7) : (from & ~7);
+            int rookTo = from + fileChange / 2;
+            ChessPiece rook = squares[rookFrom];
+            undo.rook = rook;
+            undo.rookFrom = rookFrom;
+            undo.rookTo = rookTo;
+            if (rook != null) {
+                undo.rookMoved = rook.moved;
+                rook.moved = true;
+                setSquare(rookFrom, null);
+                setSquare(rookTo, rook);
+            }
+        }
+        placed.moved = true;
+        setSquare(to, placed);
+        setSquare(from, null);
+        blackToMove = mover.faction == TeamColor.WHITE;
+    }
+
+    /**
+     * Takes back the last move played with makeMove
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        Undo undo = undoStack[--undoCount];
+        undo.mover.moved = undo.moverMoved;
+        setSquare(undo.to, null);
+        setSquare(undo.from, undo.mover);
+        if (undo.captured != null) {
+            setSquare(undo.capturedSquare, undo.captured);
+        }
+        if (undo.rook != null) {
+            undo.rook.moved = undo.rookMoved;
+            setSquare(undo.rookTo, null);
+            setSquare(undo.rookFrom, undo.rook);
+        }
+        whitePawnDoubleMove = undo.whitePawnDoubleMove;
+        blackPawnDoubleMove = undo.blackPawnDoubleMove;
+        enPassantPosition = undo.enPassantPosition;
+        blackToMove = undo.blackToMove;
+        undo.mover = null;
+        undo.captured = null;
+        undo.rook = null;
+    }
+
+    /**
+     * @return true if the king of the given color is attacked. A side without a king is
+     * never in check.
+     */
+    public boolean isKingAttacked(TeamColor color) {
+        long king = pieces(color, PieceType.KING);
+        if (king == 0L) {
+            return false;
+        }
+        TeamColor enemy = color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return BitboardMoveGenerator.isAttacked(this, Long.numberOfTrailingZeros(king), enemy);
+    }
+
+    private static class Undo {
+        int from;
+        int to;
+        ChessPiece mover;
+        boolean moverMoved;
+        ChessPiece captured;
+        int capturedSquare;
+        ChessPiece rook;
+        int rookFrom;
+        int rookTo;
+        boolean rookMoved;
+        boolean whitePawnDoubleMove;
+        boolean blackPawnDoubleMove;
+        ChessPosition enPassantPosition;
+        boolean blackToMove;
+    }
+
+    /**
+     * @return whose turn it is on this board
+     */
+    public TeamColor getTeamTurn() {
+        return blackToMove ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    public void setTeamTurn(TeamColor team) {
+        blackToMove = team == TeamColor.BLACK;
+    }
+
+    /**
+     * 64 bit Zobrist key of the position: pieces, side to move, castling rights and the
+     * en passant file. Equal positions get equal keys no matter how they were reached.
+     * <p>
+     * The piece part is kept up to date by every board change. Castling rights and en
+     * passant are folded in here instead, since they hang off the moved flags and the
+     * public enPassantPosition, which can be changed without going through the board.
+     * Both are a handful of array reads.
+     */
+    public long zobristKey() {
+        long key = pieceKey ^ Zobrist.CASTLING[castlingRights()];
+        if (blackToMove) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        int file = enPassantFile();
+        if (file >= 0) {
+            key ^= Zobrist.EN_PASSANT_FILE[file];
+        }
+        return key;
+    }
+
+    /**
+     * @return pieces on the board, kings included
+     */
+    public int pieceCount() {
+        return Long.bitCount(occupied());
+    }
+
+    /**
+     * @return true if either side may still castle some day
+     */
+    public boolean hasCastlingRights() {
+        return castlingRights() != 0;
+    }
+
+    /**
+     * @return true if the side to move has a pawn next to one that just made a double
+     * step, so an en passant capture may be on
+     */
+    public boolean hasEnPassantCapture() {
+        return enPassantFile() >= 0;
+    }
+
+    /**
+     * Castling rights as a mask: 1 white kingside, 2 white queenside, 4 black kingside,
+     * 8 black queenside. A right exists while the king and that rook are unmoved on
+     * their home squares.
+     */
+    int castlingRights() {
+        return castlingRights(4, 7, 0, TeamColor.WHITE) | castlingRights(60, 63, 56, TeamColor.BLACK) << 2;
+    }
+
+    private int castlingRights(int kingSquare, int kingsideRook, int queensideRook, TeamColor color) {
+        ChessPiece king = squares[kingSquare];
+        if (king == null || king.moved || king.type != PieceType.KING || king.faction != color) {
+            return 0;
+        }
+        return (unmovedRook(kingsideRook, color) ? 1 : 0) | (unmovedRook(queensideRook, color) ? 2 : 0);
+    }
+
+    private boolean unmovedRook(int sq, TeamColor color) {
+        ChessPiece rook = squares[sq];
+        return rook != null && !rook.moved && rook.type == PieceType.ROOK && rook.faction == color;
+    }
+
+    /**
+     * @return the file (0 to 7) of a pawn that can be taken en passant, or -1. Only
+     * counted when an enemy pawn stands next to it, so a double push nobody can
+     * capture leaves the key the same as a single step would.
+     */
+    int enPassantFile() {
+        if (enPassantPosition == null) {
+            return -1;
+        }
+        int sq = Moves.square(enPassantPosition);
+        ChessPiece passed = squares[sq];
+        if (passed == null || passed.type != PieceType.PAWN) {
+            return -1;
+        }
+        long neighbours = ((1L << sq) << 1 & ~Bitboards.FILE_A) | ((1L << sq) >>> 1 & ~Bitboards.FILE_H);
+        TeamColor enemy = passed.faction == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return (neighbours & pieces(enemy, PieceType.PAWN)) != 0L ? sq & 7 : -1;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -34,13 +389,17 @@ public class ChessBoard implements Cloneable{
         ChessBoard that = (ChessBoard) o;
         return whitePawnDoubleMove == that.whitePawnDoubleMove
                 && blackPawnDoubleMove == that.blackPawnDoubleMove
-                && Objects.equals(allPieces, that.allPieces) 
+                && Arrays.equals(squares, that.squares)
                 && Objects.equals(enPassantPosition, that.enPassantPosition);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(allPieces, whitePawnDoubleMove, blackPawnDoubleMove, enPassantPosition);
+        // equal boards hold equal pieces on every square, so they share the piece key
+        int result = Long.hashCode(pieceKey);
+        result = 31 * result + Boolean.hashCode(whitePawnDoubleMove);
+        result = 31 * result + Boolean.hashCode(blackPawnDoubleMove);
+        return 31 * result + Objects.hashCode(enPassantPosition);
     }
 
     /**
@@ -50,7 +409,16 @@ public class ChessBoard implements Cloneable{
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        allPieces.put(positionToString(position), piece);
+        setSquare(index(position.getRow(), position.getColumn()), piece);
+    }
+
+    /**
+     * Removes whatever piece is on the given position
+     *
+     * @param position the position to clear
+     */
+    public void removePiece(ChessPosition position) {
+        setSquare(index(position.getRow(), position.getColumn()), null);
     }
 
     /**
@@ -61,7 +429,18 @@ public class ChessBoard implements Cloneable{
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return allPieces.get(positionToString(position));
+        return getPiece(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * Same as getPiece(ChessPosition) without needing a position object. Squares
+     * off the board are treated as empty.
+     */
+    ChessPiece getPiece(int row, int col) {
+        if (!onBoard(row, col)) {
+            return null;
+        }
+        return squares[index(row, col)];
     }
 
 
@@ -70,23 +449,27 @@ public class ChessBoard implements Cloneable{
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        allPieces.clear();
-        ChessPiece placeHolder = new ChessPiece(TeamColor.WHITE, PieceType.PAWN);
+        Arrays.fill(squares, null);
+        Arrays.fill(pieceBoards, 0L);
+        Arrays.fill(colorBoards, 0L);
+        pieceKey = 0L;
+        pawnKey = 0L;
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+        blackToMove = false;
+        allPieces = null;
+        PieceType[] backRank = {PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN,
+                PieceType.KING, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK};
+        TeamColor side = TeamColor.WHITE;
         int s = 1; //S stands for Side
         int pawnLine = 2;
         for (int i = 0; i < 2; i++) {
             for (int j = 1; j < 9; j++) {
-                this.allPieces.put(positionToString(new ChessPosition(pawnLine, j)),new ChessPiece(placeHolder.getTeamColor(), PieceType.PAWN));
+                setSquare(index(pawnLine, j), new ChessPiece(side, PieceType.PAWN));
+                setSquare(index(s, j), new ChessPiece(side, backRank[j - 1]));
             }
-            allPieces.put(positionToString(new ChessPosition(s,1)), new ChessPiece(placeHolder.getTeamColor(), PieceType.ROOK));
-            allPieces.put(positionToString(new ChessPosition(s,2)), new ChessPiece(placeHolder.getTeamColor(), PieceType.KNIGHT));
-            allPieces.put(positionToString(new ChessPosition(s,3)), new ChessPiece(placeHolder.getTeamColor(), PieceType.BISHOP));
-            allPieces.put(positionToString(new ChessPosition(s,4)), new ChessPiece(placeHolder.getTeamColor(), PieceType.QUEEN));
-            allPieces.put(positionToString(new ChessPosition(s,5)), new ChessPiece(placeHolder.getTeamColor(), PieceType.KING));
-            allPieces.put(positionToString(new ChessPosition(s,6)), new ChessPiece(placeHolder.getTeamColor(), PieceType.BISHOP));
-            allPieces.put(positionToString(new ChessPosition(s,7)), new ChessPiece(placeHolder.getTeamColor(), PieceType.KNIGHT));
-            allPieces.put(positionToString(new ChessPosition(s,8)), new ChessPiece(placeHolder.getTeamColor(), PieceType.ROOK));
-            placeHolder = new ChessPiece(TeamColor.BLACK, PieceType.PAWN);
+            side = TeamColor.BLACK;
             s = 8;
             pawnLine = 7;
         }
@@ -98,7 +481,7 @@ public class ChessBoard implements Cloneable{
         for (int i = 8; i > 0; i--) {
             boardString.append("|");
             for (int j = 1; j < 9; j++) {
-                boardString.append(pieceString(new ChessPosition(i,j)));
+                boardString.append(pieceString(squares[index(i, j)]));
                 boardString.append("|");
             }
             boardString.append("\n");
@@ -106,8 +489,7 @@ public class ChessBoard implements Cloneable{
         return boardString.toString();
     }
 
-    private String pieceString(ChessPosition position) {
-        ChessPiece temp = allPieces.get(positionToString(position));
+    private String pieceString(ChessPiece temp) {
         if (temp == null) {
             return " ";
         }
@@ -143,7 +525,20 @@ public class ChessBoard implements Cloneable{
         return " ";
     }
 
+    /**
+     * Read only "row_col" keyed view of the pieces, used for the wire format. It is
+     * built on first request and thrown away whenever the board changes.
+     */
     public Map<String, ChessPiece> getAllPieces() {
+        if (allPieces == null) {
+            Map<String, ChessPiece> view = new LinkedHashMap<>();
+            for (int i = 0; i < 64; i++) {
+                if (squares[i] != null) {
+                    view.put(((i >> 3) + 1) + "_" + ((i & 7) + 1), squares[i]);
+                }
+            }
+            allPieces = Collections.unmodifiableMap(view);
+        }
         return allPieces;
     }
 
@@ -151,10 +546,17 @@ public class ChessBoard implements Cloneable{
     public ChessBoard clone() {
         try {
             ChessBoard clone = (ChessBoard) super.clone();
-            clone.allPieces = new HashMap<String, ChessPiece>();
-            for (Map.Entry<String, ChessPiece> piece : this.allPieces.entrySet()) {
-                clone.allPieces.put(piece.getKey(), piece.getValue().clone());
+            clone.squares = new ChessPiece[64];
+            for (int i = 0; i < 64; i++) {
+                if (squares[i] != null) {
+                    clone.squares[i] = squares[i].clone();
+                }
             }
+            clone.pieceBoards = pieceBoards.clone();
+            clone.undoStack = new Undo[16];
+            clone.undoCount = 0;
+            clone.colorBoards = colorBoards.clone();
+            clone.allPieces = null;
             clone.enPassantPosition = this.enPassantPosition;
             clone.whitePawnDoubleMove = this.whitePawnDoubleMove;
             clone.blackPawnDoubleMove = this.blackPawnDoubleMove;
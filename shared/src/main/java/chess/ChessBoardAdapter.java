@@ -0,0 +1,101 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Keeps the Gson format of a ChessBoard the same as when the board was a
+ * "row_col" keyed map, so stored games and clients don't notice the mailbox.
+ */
+class ChessBoardAdapter implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != ChessBoard.class) {
+            return null;
+        }
+        return (TypeAdapter<T>) new BoardTypeAdapter(gson.getAdapter(ChessPiece.class),
+                gson.getAdapter(ChessPosition.class));
+    }
+
+    private static class BoardTypeAdapter extends TypeAdapter<ChessBoard> {
+
+        private final TypeAdapter<ChessPiece> pieceAdapter;
+        private final TypeAdapter<ChessPosition> positionAdapter;
+
+        BoardTypeAdapter(TypeAdapter<ChessPiece> pieceAdapter, TypeAdapter<ChessPosition> positionAdapter) {
+            this.pieceAdapter = pieceAdapter;
+            this.positionAdapter = positionAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (board == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("allPieces");
+            out.beginObject();
+            for (int i = 0; i < 64; i++) {
+                if (board.squares[i] != null) {
+                    out.name(((i >> 3) + 1) + "_" + ((i & 7) + 1));
+                    pieceAdapter.write(out, board.squares[i]);
+                }
+            }
+            out.endObject();
+            out.name("whitePawnDoubleMove").value(board.whitePawnDoubleMove);
+            out.name("blackPawnDoubleMove").value(board.blackPawnDoubleMove);
+            if (board.enPassantPosition != null) {
+                out.name("enPassantPosition");
+                positionAdapter.write(out, board.enPassantPosition);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "allPieces" -> readPieces(in, board);
+                    case "whitePawnDoubleMove" -> board.whitePawnDoubleMove = in.nextBoolean();
+                    case "blackPawnDoubleMove" -> board.blackPawnDoubleMove = in.nextBoolean();
+                    case "enPassantPosition" -> board.enPassantPosition = positionAdapter.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return board;
+        }
+
+        private void readPieces(JsonReader in, ChessBoard board) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                int split = key.indexOf('_');
+                int row = Integer.parseInt(key, 0, split, 10);
+                int col = Integer.parseInt(key, split + 1, key.length(), 10);
+                board.addPiece(ChessPosition.of(row, col), pieceAdapter.read(in));
+            }
+            in.endObject();
+        }
+    }
+}
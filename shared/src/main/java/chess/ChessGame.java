@@ -1,10 +1,11 @@
 package chess;
 
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
+
 import java.util.Collection;
 import java.util.*;
 
-import static java.lang.Math.abs;
-
 /**
  * For a class that can manage a chess game, making moves on a board
  * <p>
@@ -22,6 +23,35 @@ public class ChessGame {
     boolean whiteInCheck = false;
     boolean blackInCheck = false;
     public boolean gameOver = false;
+    /**
+     * Set when the game ended in a draw by rule, null otherwise
+     */
+    DrawReason drawReason;
+    /**
+     * Status of the side to move, worked out by makeMove. Null until someone asks for
+     * it when the position came from somewhere else (setBoard, an older saved game).
+     */
+    GameStatus status;
+    /**
+     * Plies since the last capture or pawn move, for the fifty-move rule
+     */
+    int halfmoveClock = 0;
+    /**
+     * The move number of a FEN, starting at 1 and counting up after each black move
+     */
+    int fullmoveNumber = 1;
+    /**
+     * Zobrist keys of the positions since the last capture or pawn move, oldest first.
+     * Nothing before that move can repeat, so the array is cleared there and never
+     * holds more than the fifty-move rule allows.
+     */
+    long[] positionKeys;
+    int positionCount = 0;
+    private transient MoveGeneration moveGeneration = defaultMoveGeneration();
+    /**
+     * Endings every game looks up, null for none
+     */
+    private static volatile Tablebase tablebase;
 
     @Override
     public boolean equals(Object o) {
@@ -44,10 +74,10 @@ public class ChessGame {
     public ChessGame() {
         isWhiteTurn = true;
         board.resetBoard();
-        whiteKing = board.getPiece(new ChessPosition(1,5));
-        whiteKingPos = new ChessPosition(1,5);
-        blackKing = board.getPiece(new ChessPosition(8,5));
-        blackKingPos = new ChessPosition(8,5);
+        whiteKing = board.getPiece(ChessPosition.of(1,5));
+        whiteKingPos = ChessPosition.of(1,5);
+        blackKing = board.getPiece(ChessPosition.of(8,5));
+        blackKingPos = ChessPosition.of(8,5);
     }
 
     /**
@@ -61,24 +91,23 @@ public class ChessGame {
         }
     }
 
-    private ChessPosition stringToPosition(String key) {
-        String[] parts = key.split("_");
-        int row = Integer.parseInt(parts[0]);
-        int col = Integer.parseInt(parts[1]);
-        return new ChessPosition(row, col);
-    }
-
     /**
      * Set's which teams turn it is
      *
      * @param team the team whose turn it is
      */
     public void setTeamTurn(TeamColor team) {
+        if (team != getTeamTurn()) {
+            // a different side to move is a different position, the old keys no longer apply
+            positionCount = 0;
+            status = null;
+        }
         if (team == TeamColor.WHITE) {
             isWhiteTurn = true;
         } else {
             isWhiteTurn = false;
         }
+        board.setTeamTurn(team);
     }
 
     /**
@@ -89,6 +118,156 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where the game stands for the side to move
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW;
+
+        public boolean isOver() {
+            return this == CHECKMATE || this == STALEMATE || this == DRAW;
+        }
+    }
+
+    /**
+     * @return the status after the last move, computed once by makeMove so callers do
+     * not have to run the check, checkmate and stalemate tests again
+     */
+    public GameStatus getGameStatus() {
+        if (status == null) {
+            AttackMap attackMap = AttackMap.of(board, getTeamTurn());
+            status = drawReason != null ? GameStatus.DRAW : statusOf(attackMap);
+        }
+        return status;
+    }
+
+    private static GameStatus statusOf(AttackMap attackMap) {
+        if (attackMap.hasLegalMove()) {
+            return attackMap.inCheck() ? GameStatus.CHECK : GameStatus.ONGOING;
+        }
+        return attackMap.inCheck() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+    }
+
+    /**
+     * Draws declared automatically by makeMove
+     */
+    public enum DrawReason {
+        THREEFOLD_REPETITION("Draw by threefold repetition"),
+        FIFTY_MOVE_RULE("Draw by the fifty-move rule"),
+        DEAD_POSITION("Draw, neither side can mate");
+
+        private final String description;
+
+        DrawReason(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * @return why the game was drawn, or null if it was not drawn by rule
+     */
+    public DrawReason getDrawReason() {
+        return drawReason;
+    }
+
+    /**
+     * Installs the tablebase every game consults. With one, makeMove also ends games
+     * as drawn once the material left can not mate from any position, like a lone
+     * knight against a king.
+     *
+     * @param tablebase the tables to use, null to go back to none
+     */
+    public static void useTablebase(Tablebase tablebase) {
+        ChessGame.tablebase = tablebase;
+    }
+
+    /**
+     * @return the exact value of the position for the side to move if the installed
+     * tablebase covers it, null otherwise
+     */
+    public TablebaseResult getEndgameResult() {
+        Tablebase tables = tablebase;
+        return tables == null ? null : tables.probe(board);
+    }
+
+    /**
+     * Starts a game from a position, see {@link Fen}
+     *
+     * @param fen like "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"
+     * @throws IllegalArgumentException if the text is not a FEN
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the current position with castling rights, en passant square and move
+     * counters as a FEN
+     */
+    public String toFen() {
+        return Fen.format(this);
+    }
+
+    /**
+     * @return the move number, 1 before white's first move and counting up after
+     * each black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return plies played since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the Zobrist keys of the positions since the last capture or pawn move,
+     * oldest first and ending with the current one once a move has been made. Empty for a
+     * game that has not moved since it was set up.
+     */
+    public long[] getPositionKeys() {
+        return positionKeys == null ? new long[0] : Arrays.copyOf(positionKeys, positionCount);
+    }
+
+    /**
+     * Which move generator validMoves (and so makeMove) uses. CROSS_CHECK runs both
+     * generators and throws an IllegalStateException as soon as they disagree.
+     * The default can be picked with -Dchess.movegen=legacy|bitboard|cross_check
+     */
+    public enum MoveGeneration {
+        LEGACY,
+        BITBOARD,
+        CROSS_CHECK
+    }
+
+    private static MoveGeneration defaultMoveGeneration() {
+        String configured = System.getProperty("chess.movegen");
+        if (configured == null) {
+            return MoveGeneration.LEGACY;
+        }
+        return MoveGeneration.valueOf(configured.toUpperCase());
+    }
+
+    public MoveGeneration getMoveGeneration() {
+        return moveGeneration;
+    }
+
+    public void setMoveGeneration(MoveGeneration moveGeneration) {
+        this.moveGeneration = moveGeneration;
+    }
+
 
     /**
      * Gets a valid moves for a piece at the given location
@@ -103,40 +282,48 @@ public class ChessGame {
         if (tempPiece == null) {
             return realPossibleMoves;
         }
-        Collection<ChessMove> possibleMoves = tempPiece.pieceMoves(board, startPosition);
+        AttackMap attackMap = AttackMap.of(board, tempPiece.getTeamColor());
+        Collection<ChessMove> possibleMoves = pieceMoves(tempPiece, startPosition);
         for (ChessMove move : possibleMoves) {
-            ChessGame temp = new ChessGame();
-            temp.setBoard(this.board);
-            tempPiece = temp.board.getPiece(startPosition);
-            ChessPiece king = temp.whiteKing;
-            ChessPosition kingPosition = temp.whiteKingPos;
-            if (tempPiece.getTeamColor() == TeamColor.BLACK) {
-                king = temp.blackKing;
-                kingPosition = temp.blackKingPos;
-            }
-            temp.board.getAllPieces().put(ChessBoard.positionToString(move.getEndPosition()), tempPiece);
-            temp.board.getAllPieces().remove(ChessBoard.positionToString(move.getStartPosition()));
-            if (tempPiece.getPieceType() == ChessPiece.PieceType.KING) {
-                kingPosition = move.getEndPosition();
-                king = tempPiece;
-            }
-
-            if (king.kingCanMove(temp.board, kingPosition)) {
+            if (attackMap.isLegal(move)) {
                 realPossibleMoves.add(move);
             }
         }
         return realPossibleMoves;
     }
 
+    /**
+     * Pseudo-legal moves of a piece from whichever generator this game is set to use.
+     * Like ChessPiece.pieceMoves, the list always starts with the piece "moving" to its
+     * own square, which the client relies on to highlight the selected piece.
+     */
+    private Collection<ChessMove> pieceMoves(ChessPiece piece, ChessPosition position) {
+        if (moveGeneration == MoveGeneration.LEGACY) {
+            return piece.pieceMoves(board, position);
+        }
+        Collection<ChessMove> moves = new ArrayList<>();
+        moves.add(ChessMove.of(position, position, null));
+        moves.addAll(BitboardMoveGenerator.pieceMoves(board, position));
+        if (moveGeneration == MoveGeneration.CROSS_CHECK) {
+            Collection<ChessMove> legacy = piece.pieceMoves(board, position);
+            if (legacy.size() != moves.size() || !legacy.containsAll(moves)) {
+                throw new IllegalStateException("Move generators disagree for " + piece + " at " + position
+                        + "\nlegacy:   " + legacy + "\nbitboard: " + moves + "\n" + board);
+            }
+        }
+        return moves;
+    }
+
     public void getKingPosition() {
-        for (Map.Entry<String, ChessPiece> piece : board.getAllPieces().entrySet()) {
-            if (piece.getValue().type == ChessPiece.PieceType.KING) {
-                if (piece.getValue().faction == TeamColor.WHITE) {
-                    whiteKingPos = stringToPosition(piece.getKey());
-                    whiteKing = piece.getValue();
+        for (int i = 0; i < 64; i++) {
+            ChessPiece piece = board.squares[i];
+            if (piece != null && piece.type == ChessPiece.PieceType.KING) {
+                if (piece.faction == TeamColor.WHITE) {
+                    whiteKingPos = ChessPosition.of(i);
+                    whiteKing = piece;
                 } else {
-                    blackKingPos = stringToPosition(piece.getKey());
-                    blackKing = piece.getValue();
+                    blackKingPos = ChessPosition.of(i);
+                    blackKing = piece;
                 }
             }
         }
@@ -162,70 +349,76 @@ public class ChessGame {
             throw new InvalidMoveException();
         }
 
-        ChessPiece movingPiece = board.getPiece(move.getStartPosition());
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        TeamColor side = ChessGame.TeamColor.WHITE;
-        TeamColor enemy = ChessGame.TeamColor.BLACK;
-        int movingRow = 1;
-        if (movingPiece.getTeamColor() == TeamColor.BLACK) {
-            movingRow = 8;
-            side = ChessGame.TeamColor.BLACK;
-            enemy = ChessGame.TeamColor.WHITE;
+        TeamColor enemy = ChessGame.TeamColor.WHITE;
+        ChessPiece mover = board.getPiece(move.getStartPosition());
+        if (mover.getTeamColor() == TeamColor.WHITE) {
+            enemy = ChessGame.TeamColor.BLACK;
+        }
+        if (positionCount == 0) {
+            // through getBoard, which tells a freshly loaded board whose turn it is
+            recordPosition(getBoard().zobristKey());
         }
+        boolean irreversible = mover.getPieceType() == ChessPiece.PieceType.PAWN
+                || board.getPiece(move.getEndPosition()) != null;
+        board.makeMove(move);
+        getKingPosition();
+        // one look at the reply position settles check, checkmate and stalemate, stopping
+        // at the first legal reply
+        AttackMap replies = AttackMap.of(board, enemy);
+        setInCheck(enemy, replies.inCheck());
+        status = statusOf(replies);
+        if (status.isOver()) {
+            gameOver = true;
+        }
+        isWhiteTurn = !isWhiteTurn;
 
-        //Castling Moves
-        if (movingPiece.getPieceType() == ChessPiece.PieceType.KING) {
-            if (!movingPiece.moved & move.getStartPosition().getColumn() == 5) {
-                int moveDistance = move.getStartPosition().getColumn() - end.getColumn();
-                if (abs(moveDistance) == 2) {
-                    int rookSpot = 8;
-                    if (moveDistance == 2) {
-                        rookSpot = 1;
-                    }
-                    ChessPiece movingRook = board.getAllPieces().get(ChessBoard.positionToString(new ChessPosition(movingRow, rookSpot)));
-                    board.getAllPieces().put(ChessBoard.positionToString(new ChessPosition(movingRow, (end.getColumn() + (moveDistance / 2)))),
-                            movingRook);
-                    board.getAllPieces().remove(ChessBoard.positionToString(new ChessPosition(movingRow, rookSpot)));
-                    movingRook.moved = true;
-                }
-            }
+        if (enemy == TeamColor.WHITE) {
+            fullmoveNumber++;
+        }
+        if (irreversible) {
+            halfmoveClock = 0;
+            positionCount = 0;
         } else {
-            if (movingPiece.getPieceType() == ChessPiece.PieceType.PAWN) {
-                if ((movingPiece.faction == TeamColor.WHITE
-                        & board.blackPawnDoubleMove) || (movingPiece.faction == TeamColor.BLACK
-                        & board.whitePawnDoubleMove)) {
-                    if (end.getColumn() == board.enPassantPosition.getColumn() & (end.getRow() == 3 || end.getRow() == 6)) {
-                        board.getAllPieces().remove(ChessBoard.positionToString(board.enPassantPosition));
-                    }
-                }
-                if (abs((start.getRow()) - (end.getRow())) == 2) {
-                    if (getTeamTurn() == TeamColor.WHITE) {
-                        board.whitePawnDoubleMove = true;
-                    } else {
-                        board.blackPawnDoubleMove = true;
-                    }
-                    board.enPassantPosition = move.getEndPosition();
-                } else if (end.getRow() == 8 || end.getRow() == 1) {
-                    movingPiece.type = move.pawnUpgrade;
-                } else {
-                    board.whitePawnDoubleMove = false;
-                    board.blackPawnDoubleMove = false;
-                    board.enPassantPosition = null;
-                }
-            }
+            halfmoveClock++;
         }
-        movingPiece.moved = true;
-        board.getAllPieces().put(ChessBoard.positionToString(end), movingPiece);
-        board.getAllPieces().remove(ChessBoard.positionToString(move.getStartPosition()));
-        getKingPosition();
-        if(isInCheck(enemy)) {
-            if (isInCheckmate(enemy)) {
+        recordPosition(getBoard().zobristKey());
+        if (!gameOver) {
+            if (halfmoveClock >= 100) {
+                drawReason = DrawReason.FIFTY_MOVE_RULE;
+            } else if (repetitions() >= 3) {
+                drawReason = DrawReason.THREEFOLD_REPETITION;
+            } else if (irreversible && tablebase != null && tablebase.isDeadDraw(board)) {
+                drawReason = DrawReason.DEAD_POSITION;
+            }
+            if (drawReason != null) {
+                status = GameStatus.DRAW;
                 gameOver = true;
             }
         }
-        isInStalemate(enemy);
-        isWhiteTurn = !isWhiteTurn;
+    }
+
+    private void recordPosition(long key) {
+        if (positionKeys == null) {
+            positionKeys = new long[16];
+        } else if (positionCount == positionKeys.length) {
+            positionKeys = Arrays.copyOf(positionKeys, positionCount * 2);
+        }
+        positionKeys[positionCount++] = key;
+    }
+
+    /**
+     * Counts how often the current position has occurred, itself included. Only positions
+     * with the same side to move can match, so every other entry is skipped.
+     */
+    private int repetitions() {
+        long current = positionKeys[positionCount - 1];
+        int count = 1;
+        for (int i = positionCount - 3; i >= 0; i -= 2) {
+            if (positionKeys[i] == current) {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -235,16 +428,16 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
+        boolean inCheck = board.isKingAttacked(teamColor);
+        setInCheck(teamColor, inCheck);
+        return inCheck;
+    }
+
+    private void setInCheck(TeamColor teamColor, boolean inCheck) {
         if (teamColor == TeamColor.BLACK) {
-            if (!blackKing.kingCanMove(board, blackKingPos)) {
-                blackInCheck = true;
-            }
-            return blackInCheck;
+            blackInCheck = inCheck;
         } else {
-            if (!whiteKing.kingCanMove(board, whiteKingPos)) {
-                whiteInCheck = true;
-            }
-            return whiteInCheck;
+            whiteInCheck = inCheck;
         }
     }
 
@@ -255,34 +448,30 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            ChessPiece king = whiteKing;
-            int currentRow = whiteKingPos.getRow();
-            int currentCol = whiteKingPos.getColumn();
-            if (teamColor == TeamColor.BLACK) {
-                king = blackKing;
-                currentRow = blackKingPos.getRow();
-                currentCol = blackKingPos.getColumn();
-            }
-            return noMovesPossible(teamColor);
-        }
-        return false;
+        return isInCheck(teamColor) && noMovesPossible(teamColor);
     }
 
     public boolean noMovesPossible(TeamColor teamColor) {
-        boolean noMovesPossible = true;
-        Set<ChessPosition> allFactionPieces = new HashSet<>();
-        for (Map.Entry<String, ChessPiece> piece : board.getAllPieces().entrySet()) {
-            if (piece.getValue().faction == teamColor) {
-                allFactionPieces.add(stringToPosition(piece.getKey()));
-            }
+        AttackMap attackMap = AttackMap.of(board, teamColor);
+        if (moveGeneration != MoveGeneration.CROSS_CHECK) {
+            // both generators agree (that is what CROSS_CHECK verifies), so take the one
+            // that does not allocate
+            return !attackMap.hasLegalMove();
         }
-        for (ChessPosition piece : allFactionPieces) {
-            if (!validMoves(piece).isEmpty()) {
-                noMovesPossible = false;
+        for (int i = 0; i < 64; i++) {
+            ChessPiece piece = board.squares[i];
+            if (piece == null || piece.faction != teamColor) {
+                continue;
+            }
+            ChessPosition position = ChessPosition.of(i);
+            for (ChessMove move : pieceMoves(piece, position)) {
+                // the piece's own square is only there for highlighting, it is not a real move
+                if (!move.getEndPosition().equals(position) && attackMap.isLegal(move)) {
+                    return false;
+                }
             }
         }
-        return noMovesPossible;
+        return true;
     }
 
     /**
@@ -311,6 +500,10 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board.clone();
+        this.board.setTeamTurn(getTeamTurn());
+        halfmoveClock = 0;
+        positionCount = 0;
+        status = null;
         getKingPosition();
     }
 
@@ -320,6 +513,8 @@ public class ChessGame {
      * @return the chessboard
      */
     public ChessBoard getBoard() {
+        // Gson fills isWhiteTurn directly, so a loaded game's board may not know whose turn it is yet
+        board.setTeamTurn(getTeamTurn());
         return board;
     }
 }
@@ -10,9 +10,36 @@ import java.util.Objects;
  */
 public class ChessMove {
 
-    ChessPiece.PieceType pawnUpgrade = null;
-    ChessPosition start;
-    ChessPosition destination;
+    /**
+     * Shared instances of every move a piece could ever make (queen lines, knight jumps,
+     * the four promotions), indexed by Moves.key
+     */
+    private static final ChessMove[] TABLE = new ChessMove[1 << 15];
+    private static final ChessPiece.PieceType[] PROMOTIONS = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK};
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            long targets = Bitboards.queenAttacks(from, 0L) | Bitboards.KNIGHT_ATTACKS[from] | (1L << from);
+            for (; targets != 0L; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                TABLE[Moves.of(from, to)] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), null);
+                int fromRow = from >> 3;
+                int toRow = to >> 3;
+                if (Math.abs((to & 7) - (from & 7)) <= 1
+                        && (fromRow == 6 && toRow == 7 || fromRow == 1 && toRow == 0)) {
+                    for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                        TABLE[Moves.of(from, to, promotion, 0)] =
+                                new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotion);
+                    }
+                }
+            }
+        }
+    }
+
+    final ChessPiece.PieceType pawnUpgrade;
+    final ChessPosition start;
+    final ChessPosition destination;
 
     public ChessMove(ChessPosition startPosition, ChessPosition endPosition,
                      ChessPiece.PieceType promotionPiece) {
@@ -21,6 +48,37 @@ public class ChessMove {
         destination = endPosition;
     }
 
+    /**
+     * Same as the constructor, but moves between two squares on the board come from a
+     * shared table instead of being allocated
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        int startRow = startPosition.getRow();
+        int startCol = startPosition.getColumn();
+        int endRow = endPosition.getRow();
+        int endCol = endPosition.getColumn();
+        if (ChessBoard.onBoard(startRow, startCol) && ChessBoard.onBoard(endRow, endCol)) {
+            ChessMove shared = TABLE[Moves.of(ChessBoard.index(startRow, startCol), ChessBoard.index(endRow, endCol),
+                    promotionPiece, 0)];
+            if (shared != null) {
+                return shared;
+            }
+        }
+        return new ChessMove(startPosition, endPosition, promotionPiece);
+    }
+
+    /**
+     * @return the shared move for a packed move's squares and promotion, see Moves.key
+     */
+    static ChessMove of(int key) {
+        ChessMove shared = TABLE[key];
+        if (shared != null) {
+            return shared;
+        }
+        return new ChessMove(ChessPosition.of(Moves.from(key)), ChessPosition.of(Moves.to(key)), Moves.promotion(key));
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -56,7 +114,10 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pawnUpgrade, start, destination);
+        // same value as Objects.hash(pawnUpgrade, start, destination) without the varargs array
+        int result = 31 + Objects.hashCode(pawnUpgrade);
+        result = 31 * result + Objects.hashCode(start);
+        return 31 * result + Objects.hashCode(destination);
     }
 
     @Override
@@ -86,69 +86,16 @@ public class ChessPiece implements Cloneable {
     }
 
     /**
-     * Calculates all the positions the threaten the king
+     * Tells whether a king of this piece's color would be safe on the given square, i.e.
+     * no enemy piece attacks it. Uses the board's attack tables rather than walking rays.
      *
-     *
-     * @return Collection of valid moves
+     * @return true if no enemy piece attacks myPosition
      */
     public boolean kingCanMove(ChessBoard board,
                                ChessPosition myPosition) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        if (!linearKingChecks(board, row, col)) {
-            return false;
-        } else if (!diagonalKingChecks(board, row, col)) {
-            return false;
-        }
-        int holder1 = 1;
-        int holder2 = 2;
-        for (int i = -1; i < 2; i += 2) {
-            for (int j = -1; j < 2; j += 2) {
-                int rowCheck = row + (holder1 * i);
-                int colCheck = col + (holder2 * j);
-                ChessPosition temp = new ChessPosition(rowCheck, colCheck);
-                for (int k = 0; k < 2; k++) {
-                    if (withinBoard(rowCheck, colCheck)
-                        && isSpaceFilled(board, temp)
-                            && isSpaceEnemy(board, temp)
-                                && (board.getAllPieces().get(board.positionToString(temp)).getPieceType() == PieceType.KNIGHT)) {
-                                    return false;
-                    }
-                    rowCheck = row + (holder2 * i);
-                    colCheck = col + (holder1 * j);
-                    temp = new ChessPosition(rowCheck, colCheck);
-                }
-            }
-        }
-        int pawnDirectionCheck = -1;
-        if (faction == ChessGame.TeamColor.WHITE) {
-            pawnDirectionCheck = 1;
-        }
-        for (int i = -1; i < 2; i += 2) {
-            ChessPosition pawnCheck = new ChessPosition(row + pawnDirectionCheck, col + i);
-            if (isSpaceFilled(board, pawnCheck)) {
-                if (isSpaceEnemy(board, pawnCheck) && board.getAllPieces().get(board.positionToString(pawnCheck)).getPieceType() == PieceType.PAWN) {
-                    return false;
-                }
-            }
-        }
-
-        for (int i = -1; i < 2; i++) {
-            for (int j = -1; j < 2; j++) {
-                if (i == 0 & j == 0) {
-                    j++;
-                }
-                ChessPosition temp = new ChessPosition(row + i, col + j);
-                if (withinBoard(row + i, col + j)
-                    && (isSpaceFilled(board, temp)
-                    && (isSpaceEnemy(board, temp)
-                    && (board.getAllPieces().get(board.positionToString(temp)).getPieceType() == PieceType.KING)))) {
-                        return false;
-                }
-            }
-        }
-        return true;
+        ChessGame.TeamColor enemy = faction == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return !BitboardMoveGenerator.isAttacked(board, Moves.square(myPosition), enemy);
     }
 
     public Collection<ChessMove> pieceMoves(ChessBoard board,
@@ -156,7 +103,7 @@ public class ChessPiece implements Cloneable {
         Set<ChessMove> possibleMoves = new HashSet<>();
         int row = myPosition.getRow();
         int col = myPosition.getColumn();
-        possibleMoves.add(new ChessMove(myPosition, myPosition, null));
+        possibleMoves.add(ChessMove.of(myPosition, myPosition, null));
         if (type == PieceType.PAWN) {
             possibleMoves = pawnMoves(board, myPosition, possibleMoves);
         } else if (type == PieceType.ROOK) {
@@ -169,39 +116,39 @@ public class ChessPiece implements Cloneable {
         } else if (type == PieceType.KING) {
             for (int i = -1; i < 2; i++) {
                 for (int j = -1; j < 2; j++) {
-                    ChessPosition temp = new ChessPosition(row + i, col + j);
+                    ChessPosition temp = ChessPosition.of(row + i, col + j);
                     if (withinBoard(row + i, col + j)
                             && !isSpaceFilled(board, temp)) {
-                                possibleMoves.add(new ChessMove(myPosition, temp, null));
+                                possibleMoves.add(ChessMove.of(myPosition, temp, null));
                     } else if (withinBoard(row + i, col + j)
                             && isSpaceEnemy(board, temp)) {
-                                possibleMoves.add(new ChessMove(myPosition, temp, null));
+                                possibleMoves.add(ChessMove.of(myPosition, temp, null));
                     }
                 }
             }
-            //This if statement adds castling move. It needs to check that each space in between is safe to move to.
-            if (!moved & kingCanMove(board, myPosition)) {
-                if (board.getPiece(new ChessPosition(row, 1)) != null
-                    && (board.getPiece(new ChessPosition(row, 1)).getPieceType() == PieceType.ROOK
-                        & board.getPiece(new ChessPosition(row, 1)).getTeamColor() == this.faction)
-                        && (!board.getPiece(new ChessPosition(row, 1)).moved)
-                        && (board.getPiece(new ChessPosition(row, 2)) == null
-                            & kingCanMove(board, new ChessPosition(row, 2))
-                            & board.getPiece(new ChessPosition(row, 3)) == null
-                            & kingCanMove(board, new ChessPosition(row, 3))
-                            & board.getPiece(new ChessPosition(row, 4)) == null
-                            & kingCanMove(board, new ChessPosition(row, 4)))) {
-                            possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row, 3), null));
+            //This if statement adds castling move. It needs to check that each space the king crosses is safe to move to.
+            int homeRow = faction == ChessGame.TeamColor.WHITE ? 1 : 8;
+            if (!moved & row == homeRow & col == 5 && kingCanMove(board, myPosition)) {
+                if (board.getPiece(ChessPosition.of(row, 1)) != null
+                    && (board.getPiece(ChessPosition.of(row, 1)).getPieceType() == PieceType.ROOK
+                        & board.getPiece(ChessPosition.of(row, 1)).getTeamColor() == this.faction)
+                        && (!board.getPiece(ChessPosition.of(row, 1)).moved)
+                        && (board.getPiece(ChessPosition.of(row, 2)) == null
+                            & board.getPiece(ChessPosition.of(row, 3)) == null
+                            & kingCanMove(board, ChessPosition.of(row, 3))
+                            & board.getPiece(ChessPosition.of(row, 4)) == null
+                            & kingCanMove(board, ChessPosition.of(row, 4)))) {
+                            possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row, 3), null));
                 }
-                if (board.getPiece(new ChessPosition(row, 8)) != null
-                    && (board.getPiece(new ChessPosition(row, 8)).getPieceType() == PieceType.ROOK
-                        & board.getPiece(new ChessPosition(row, 8)).getTeamColor() == this.faction)
-                        && (!board.getPiece(new ChessPosition(row, 8)).moved)
-                            && (board.getPiece(new ChessPosition(row, 6)) == null
-                                & kingCanMove(board, new ChessPosition(row, 6))
-                                & board.getPiece(new ChessPosition(row, 7)) == null
-                                & kingCanMove(board, new ChessPosition(row, 7)))) {
-                                    possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row, 7), null));
+                if (board.getPiece(ChessPosition.of(row, 8)) != null
+                    && (board.getPiece(ChessPosition.of(row, 8)).getPieceType() == PieceType.ROOK
+                        & board.getPiece(ChessPosition.of(row, 8)).getTeamColor() == this.faction)
+                        && (!board.getPiece(ChessPosition.of(row, 8)).moved)
+                            && (board.getPiece(ChessPosition.of(row, 6)) == null
+                                & kingCanMove(board, ChessPosition.of(row, 6))
+                                & board.getPiece(ChessPosition.of(row, 7)) == null
+                                & kingCanMove(board, ChessPosition.of(row, 7)))) {
+                                    possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row, 7), null));
                 }
             }
         } else if (type == PieceType.KNIGHT) {
@@ -211,7 +158,7 @@ public class ChessPiece implements Cloneable {
                 for (int j = -1; j < 2; j += 2) {
                     int rowCheck = row + (holder1 * i);
                     int colCheck = col + (holder2 * j);
-                    ChessPosition temp = new ChessPosition(rowCheck, colCheck);
+                    ChessPosition temp = ChessPosition.of(rowCheck, colCheck);
                     for (int k = 0; k < 2; k++) {
                         possibleMoves = knightHelper(rowCheck,
                                 colCheck, board, temp, possibleMoves, myPosition, row, col, holder1, holder2, i, j);
@@ -237,14 +184,14 @@ public class ChessPiece implements Cloneable {
         for (int k = 0; k < 2; k++) {
             if (withinBoard(rowCheck, colCheck)
                     && (!isSpaceFilled(board, temp))) {
-                possibleMoves.add(new ChessMove(myPosition, temp, null));
+                possibleMoves.add(ChessMove.of(myPosition, temp, null));
             } else if (withinBoard(rowCheck, colCheck)
                     && isSpaceEnemy(board, temp)) {
-                possibleMoves.add(new ChessMove(myPosition, temp, null));
+                possibleMoves.add(ChessMove.of(myPosition, temp, null));
             }
             rowCheck = row + (holder2 * i);
             colCheck = col + (holder1 * j);
-            temp = new ChessPosition(rowCheck, colCheck);
+            temp = ChessPosition.of(rowCheck, colCheck);
         }
         return possibleMoves;
     }
@@ -260,47 +207,49 @@ public class ChessPiece implements Cloneable {
         }
         boolean ranIntoSomething = false;
         if (row == 2 & pawnDirection == 1 || row == 7 & pawnDirection == -1) {
-            if (!isSpaceFilled(board, new ChessPosition(row + pawnDirection, col))) {
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), null));
+            if (!isSpaceFilled(board, ChessPosition.of(row + pawnDirection, col))) {
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), null));
             } else {
                 ranIntoSomething = true;
             }
-            if (!isSpaceFilled(board, new ChessPosition(row + (pawnDirection * 2), col)) & !ranIntoSomething) {
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + (pawnDirection * 2), col), null));
+            if (!isSpaceFilled(board, ChessPosition.of(row + (pawnDirection * 2), col)) & !ranIntoSomething) {
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + (pawnDirection * 2), col), null));
             }
         } else if (row == 2 & pawnDirection == -1 || row == 7 & pawnDirection == 1) {
-            if (!isSpaceFilled(board, new ChessPosition(row + pawnDirection, col))) {
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), PieceType.QUEEN));
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), PieceType.BISHOP));
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), PieceType.KNIGHT));
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), PieceType.ROOK));
+            if (!isSpaceFilled(board, ChessPosition.of(row + pawnDirection, col))) {
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), PieceType.QUEEN));
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), PieceType.BISHOP));
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), PieceType.KNIGHT));
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), PieceType.ROOK));
             }
         } else {
-            if (!isSpaceFilled(board, new ChessPosition(row + pawnDirection, col))) {
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, col), null));
+            if (!isSpaceFilled(board, ChessPosition.of(row + pawnDirection, col))) {
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, col), null));
             }
         }
         for (int i = -1; i < 2; i += 2) {
             int rowCheck = row + pawnDirection;
             int colCheck = col + i;
-            ChessPosition temp = new ChessPosition(rowCheck, colCheck);
+            ChessPosition temp = ChessPosition.of(rowCheck, colCheck);
             if (withinBoard(rowCheck, colCheck)) {
                 if (isSpaceFilled(board, temp) && (isSpaceEnemy(board, temp))) {
                     if (rowCheck == 1 || rowCheck == 8) {
-                        possibleMoves.add(new ChessMove(myPosition, new ChessPosition(rowCheck, colCheck), PieceType.QUEEN));
-                        possibleMoves.add(new ChessMove(myPosition, new ChessPosition(rowCheck, colCheck), PieceType.BISHOP));
-                        possibleMoves.add(new ChessMove(myPosition, new ChessPosition(rowCheck, colCheck), PieceType.KNIGHT));
-                        possibleMoves.add(new ChessMove(myPosition, new ChessPosition(rowCheck, colCheck), PieceType.ROOK));
+                        possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(rowCheck, colCheck), PieceType.QUEEN));
+                        possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(rowCheck, colCheck), PieceType.BISHOP));
+                        possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(rowCheck, colCheck), PieceType.KNIGHT));
+                        possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(rowCheck, colCheck), PieceType.ROOK));
                     } else {
-                        possibleMoves.add(new ChessMove(myPosition, temp, null));
+                        possibleMoves.add(ChessMove.of(myPosition, temp, null));
                     }
                 }
             }
         }
 
-        if (board.enPassantPosition != null) {
-            if (row == board.enPassantPosition.getRow() & abs(col - board.enPassantPosition.getColumn()) == 1) {
-                possibleMoves.add(new ChessMove(myPosition, new ChessPosition(row + pawnDirection, board.enPassantPosition.getColumn()), null));
+        ChessPiece passedPawn = board.enPassantPosition == null ? null : board.getPiece(board.enPassantPosition);
+        if (passedPawn != null && passedPawn.type == PieceType.PAWN && passedPawn.faction != faction) {
+            if (row == board.enPassantPosition.getRow() & abs(col - board.enPassantPosition.getColumn()) == 1
+                    && board.getPiece(row + pawnDirection, board.enPassantPosition.getColumn()) == null) {
+                possibleMoves.add(ChessMove.of(myPosition, ChessPosition.of(row + pawnDirection, board.enPassantPosition.getColumn()), null));
             }
         }
         return possibleMoves;
@@ -320,35 +269,6 @@ public class ChessPiece implements Cloneable {
         return possibleMoves;
     }
 
-    boolean linearKingChecks(ChessBoard board,
-                             int row,
-                             int col) {
-        for (int i = -1; i < 2; i += 2) {
-            if(!kingMovesInADirection(board, row, col, i, 0, PieceType.ROOK)) {
-                return false;
-            }
-        }
-        for (int j = -1; j < 2; j += 2) {
-            if (!kingMovesInADirection(board, row, col, 0, j, PieceType.ROOK)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    boolean diagonalKingChecks(ChessBoard board,
-                               int row,
-                               int col) {
-        for (int i = -1; i < 2; i += 2) {
-            for (int j = -1; j < 2; j += 2) {
-                if (!kingMovesInADirection(board, row, col, i, j, PieceType.BISHOP)) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
     Set<ChessMove> diagonalChecks(ChessBoard board,
                                   ChessPosition myPosition,
                                   Set<ChessMove> possibleMoves,
@@ -371,21 +291,21 @@ public class ChessPiece implements Cloneable {
                                      int colChange) {
         int row = rowStart + rowChange;
         int col = colStart + colChange;
-        ChessPosition temp = new ChessPosition(row, col);
+        ChessPosition temp = ChessPosition.of(row, col);
         boolean ranIntoSomething = false;
         while (!ranIntoSomething) {
             if (withinBoard(row, col)) {
                 if (isSpaceFilled(board, temp)) {
                     if (isSpaceEnemy(board, temp)) {
-                        possibleMoves.add(new ChessMove(myPosition, temp, null));
+                        possibleMoves.add(ChessMove.of(myPosition, temp, null));
                     }
                     ranIntoSomething = true;
                 } else {
-                    possibleMoves.add(new ChessMove(myPosition, temp, null));
+                    possibleMoves.add(ChessMove.of(myPosition, temp, null));
                 }
                 row += rowChange;
                 col += colChange;
-                temp = new ChessPosition(row, col);
+                temp = ChessPosition.of(row, col);
             } else {
                 ranIntoSomething = true;
             }
@@ -393,44 +313,14 @@ public class ChessPiece implements Cloneable {
         return possibleMoves;
     }
 
-    boolean kingMovesInADirection(ChessBoard board,
-                                  int rowStart,
-                                  int colStart,
-                                  int rowChange,
-                                  int colChange,
-                                  PieceType checking) {
-        int row = rowStart + rowChange;
-        int col = colStart + colChange;
-        ChessPosition temp = new ChessPosition(row, col);
-        boolean ranIntoSomething = false;
-        while (!ranIntoSomething) {
-            if (withinBoard(row, col)) {
-                if (isSpaceFilled(board, temp)) {
-                    if (isSpaceEnemy(board, temp)
-                        && (board.getAllPieces().get(board.positionToString(temp)).getPieceType() == checking
-                            || board.getAllPieces().get(board.positionToString(temp)).getPieceType() == PieceType.QUEEN)) {
-                            return false;
-                    }
-                    ranIntoSomething = true;
-                }
-                row += rowChange;
-                col += colChange;
-                temp = new ChessPosition(row, col);
-            } else {
-                ranIntoSomething = true;
-            }
-        }
-        return true;
-    }
-
     Boolean isSpaceFilled(ChessBoard board,
                           ChessPosition target) {
-        return board.getAllPieces().get(board.positionToString(target)) != null;
+        return board.getPiece(target) != null;
     }
 
     Boolean isSpaceEnemy(ChessBoard board,
                          ChessPosition target) {
-        return (board.getAllPieces().get(board.positionToString(target)).faction != this.faction);
+        return (board.getPiece(target).faction != this.faction);
     }
 
     Boolean withinBoard(int row,
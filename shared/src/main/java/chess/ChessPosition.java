@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -10,16 +8,46 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
-    int letter;
-    int number;
+    /**
+     * One shared instance per square, indexed like the ChessBoard mailbox (a1 = 0)
+     */
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            SQUARES[sq] = new ChessPosition((sq >> 3) + 1, (sq & 7) + 1);
+        }
+    }
+
+    final int letter;
+    final int number;
 
     public ChessPosition(int row, int col) {
         letter = col;
         number = row;
     }
 
-    public ChessPosition() {
+    /**
+     * Same as the constructor, but squares on the board come from a shared table instead
+     * of being allocated. Positions are never modified, so sharing them is safe.
+     */
+    public static ChessPosition of(int row, int col) {
+        if (!ChessBoard.onBoard(row, col)) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[ChessBoard.index(row, col)];
+    }
+
+    /**
+     * @return the shared position of a mailbox square (a1 = 0, h8 = 63)
+     */
+    static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
 
+    public ChessPosition() {
+        letter = 0;
+        number = 0;
     }
 
     /**
@@ -50,7 +78,8 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(letter, number);
+        // same value as Objects.hash(letter, number), without boxing both into an array
+        return (31 + letter) * 31 + number;
     }
 
     @Override
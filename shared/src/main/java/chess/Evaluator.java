@@ -0,0 +1,286 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Static evaluation in centipawns. Every piece scores its material plus a bonus for the
+ * square it stands on, once for the middlegame and once for the endgame. ChessBoard keeps
+ * the totals up to date as pieces come and go, the same way it keeps its Zobrist key, so
+ * reading them costs nothing. The two totals are blended by how much material is left.
+ * <p>
+ * Pawn structure (doubled, isolated and passed pawns) is worked out from the pawn
+ * bitboards. Pawns move far less often than everything else, so the result is cached in
+ * a pawn hash table keyed by the pawns' own Zobrist key. Entries are verified the same
+ * way as the engine's transposition table, which makes one evaluator safe to share
+ * between threads.
+ */
+public final class Evaluator {
+
+    public static final int DEFAULT_PAWN_ENTRIES = 1 << 14;
+    /**
+     * Phase of the starting position, anything above counts as a full middlegame
+     */
+    static final int MAX_PHASE = 24;
+
+    /**
+     * Indexed by PieceType ordinal. The king is never traded so it has no material value.
+     */
+    private static final int[] MATERIAL_MIDDLEGAME = {0, 900, 330, 320, 500, 100};
+    private static final int[] MATERIAL_ENDGAME = {0, 950, 320, 300, 540, 120};
+    /**
+     * How much each piece counts towards the game still being a middlegame
+     */
+    private static final int[] PHASE = {0, 4, 1, 1, 2, 0};
+
+    /**
+     * Material plus square bonus, indexed [ChessBoard.boardIndex(color, type) * 64 +
+     * square]. Black's entries are negative so a board's total is white minus black.
+     */
+    static final int[] MIDDLEGAME = new int[12 * 64];
+    static final int[] ENDGAME = new int[12 * 64];
+    /**
+     * Indexed by ChessBoard.boardIndex(color, type)
+     */
+    static final int[] PHASE_WEIGHT = new int[12];
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    /**
+     * Bonus for a passed pawn by how many ranks it has advanced from its starting rank
+     */
+    private static final int[] PASSED_MIDDLEGAME = {0, 0, 5, 10, 20, 35, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 0, 10, 20, 40, 70, 120, 0};
+
+    private static final long FILE_A = 0x0101010101010101L;
+    /**
+     * Squares that can stop a pawn on the given square from queening: the ones ahead of
+     * it on its own and the neighbouring files. Indexed [color][square].
+     */
+    private static final long[][] PASSED_SPAN = new long[2][64];
+
+    static {
+        int[][] middlegame = new int[6][];
+        int[][] endgame = new int[6][];
+        // written the way the board is drawn, rank 8 on top, from white's point of view
+        middlegame[PieceType.KING.ordinal()] = table(
+                -30, -40, -40, -50, -50, -40, -40, -30,
+                -30, -40, -40, -50, -50, -40, -40, -30,
+                -30, -40, -40, -50, -50, -40, -40, -30,
+                -30, -40, -40, -50, -50, -40, -40, -30,
+                -20, -30, -30, -40, -40, -30, -30, -20,
+                -10, -20, -20, -20, -20, -20, -20, -10,
+                20, 20, 0, 0, 0, 0, 20, 20,
+                20, 30, 10, 0, 0, 10, 30, 20);
+        endgame[PieceType.KING.ordinal()] = table(
+                -50, -40, -30, -20, -20, -30, -40, -50,
+                -30, -20, -10, 0, 0, -10, -20, -30,
+                -30, -10, 20, 30, 30, 20, -10, -30,
+                -30, -10, 30, 40, 40, 30, -10, -30,
+                -30, -10, 30, 40, 40, 30, -10, -30,
+                -30, -10, 20, 30, 30, 20, -10, -30,
+                -30, -30, 0, 0, 0, 0, -30, -30,
+                -50, -30, -30, -30, -30, -30, -30, -50);
+        middlegame[PieceType.QUEEN.ordinal()] = table(
+                -20, -10, -10, -5, -5, -10, -10, -20,
+                -10, 0, 0, 0, 0, 0, 0, -10,
+                -10, 0, 5, 5, 5, 5, 0, -10,
+                -5, 0, 5, 5, 5, 5, 0, -5,
+                0, 0, 5, 5, 5, 5, 0, -5,
+                -10, 5, 5, 5, 5, 5, 0, -10,
+                -10, 0, 5, 0, 0, 0, 0, -10,
+                -20, -10, -10, -5, -5, -10, -10, -20);
+        middlegame[PieceType.BISHOP.ordinal()] = table(
+                -20, -10, -10, -10, -10, -10, -10, -20,
+                -10, 0, 0, 0, 0, 0, 0, -10,
+                -10, 0, 5, 10, 10, 5, 0, -10,
+                -10, 5, 5, 10, 10, 5, 5, -10,
+                -10, 0, 10, 10, 10, 10, 0, -10,
+                -10, 10, 10, 10, 10, 10, 10, -10,
+                -10, 5, 0, 0, 0, 0, 5, -10,
+                -20, -10, -10, -10, -10, -10, -10, -20);
+        middlegame[PieceType.KNIGHT.ordinal()] = table(
+                -50, -40, -30, -30, -30, -30, -40, -50,
+                -40, -20, 0, 0, 0, 0, -20, -40,
+                -30, 0, 10, 15, 15, 10, 0, -30,
+                -30, 5, 15, 20, 20, 15, 5, -30,
+                -30, 0, 15, 20, 20, 15, 0, -30,
+                -30, 5, 10, 15, 15, 10, 5, -30,
+                -40, -20, 0, 5, 5, 0, -20, -40,
+                -50, -40, -30, -30, -30, -30, -40, -50);
+        middlegame[PieceType.ROOK.ordinal()] = table(
+                0, 0, 0, 0, 0, 0, 0, 0,
+                5, 10, 10, 10, 10, 10, 10, 5,
+                -5, 0, 0, 0, 0, 0, 0, -5,
+                -5, 0, 0, 0, 0, 0, 0, -5,
+                -5, 0, 0, 0, 0, 0, 0, -5,
+                -5, 0, 0, 0, 0, 0, 0, -5,
+                -5, 0, 0, 0, 0, 0, 0, -5,
+                0, 0, 0, 5, 5, 0, 0, 0);
+        middlegame[PieceType.PAWN.ordinal()] = table(
+                0, 0, 0, 0, 0, 0, 0, 0,
+                50, 50, 50, 50, 50, 50, 50, 50,
+                10, 10, 20, 30, 30, 20, 10, 10,
+                5, 5, 10, 25, 25, 10, 5, 5,
+                0, 0, 0, 20, 20, 0, 0, 0,
+                5, -5, -10, 0, 0, -10, -5, 5,
+                5, 10, 10, -20, -20, 10, 10, 5,
+                0, 0, 0, 0, 0, 0, 0, 0);
+        endgame[PieceType.PAWN.ordinal()] = table(
+                0, 0, 0, 0, 0, 0, 0, 0,
+                80, 80, 80, 80, 80, 80, 80, 80,
+                50, 50, 50, 50, 50, 50, 50, 50,
+                30, 30, 30, 30, 30, 30, 30, 30,
+                15, 15, 15, 15, 15, 15, 15, 15,
+                5, 5, 5, 5, 5, 5, 5, 5,
+                0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 0);
+        // the minor pieces and the heavy ones want the same squares in both phases
+        for (PieceType type : new PieceType[]{PieceType.QUEEN, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK}) {
+            endgame[type.ordinal()] = middlegame[type.ordinal()];
+        }
+
+        for (PieceType type : PieceType.values()) {
+            int t = type.ordinal();
+            for (int sq = 0; sq < 64; sq++) {
+                int white = ChessBoard.boardIndex(TeamColor.WHITE, type) * 64 + sq;
+                int black = ChessBoard.boardIndex(TeamColor.BLACK, type) * 64 + sq;
+                MIDDLEGAME[white] = MATERIAL_MIDDLEGAME[t] + middlegame[t][sq];
+                ENDGAME[white] = MATERIAL_ENDGAME[t] + endgame[t][sq];
+                MIDDLEGAME[black] = -(MATERIAL_MIDDLEGAME[t] + middlegame[t][sq ^ 56]);
+                ENDGAME[black] = -(MATERIAL_ENDGAME[t] + endgame[t][sq ^ 56]);
+            }
+            PHASE_WEIGHT[ChessBoard.boardIndex(TeamColor.WHITE, type)] = PHASE[t];
+            PHASE_WEIGHT[ChessBoard.boardIndex(TeamColor.BLACK, type)] = PHASE[t];
+        }
+
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            long files = FILE_A << file;
+            if (file > 0) {
+                files |= FILE_A << (file - 1);
+            }
+            if (file < 7) {
+                files |= FILE_A << (file + 1);
+            }
+            int rank = sq >> 3;
+            long above = rank == 7 ? 0L : -1L << ((rank + 1) * 8);
+            long below = (1L << (rank * 8)) - 1;
+            PASSED_SPAN[0][sq] = files & above;
+            PASSED_SPAN[1][sq] = files & below;
+        }
+    }
+
+    /**
+     * Two longs per entry: the pawn key XORed with the data, then the data
+     */
+    private final long[] pawnTable;
+    private final int pawnMask;
+
+    public Evaluator() {
+        this(DEFAULT_PAWN_ENTRIES);
+    }
+
+    /**
+     * @param pawnEntries size of the pawn hash table, rounded down to a power of two
+     */
+    public Evaluator(int pawnEntries) {
+        if (pawnEntries < 1) {
+            throw new IllegalArgumentException("The pawn table needs at least one entry");
+        }
+        int entries = Integer.highestOneBit(pawnEntries);
+        pawnTable = new long[entries * 2];
+        pawnMask = entries - 1;
+    }
+
+    /**
+     * @return the material value of a piece in centipawns, 0 for the king
+     */
+    public static int value(PieceType type) {
+        return MATERIAL_MIDDLEGAME[type.ordinal()];
+    }
+
+    /**
+     * @return the score from the point of view of the side to move, what a search wants
+     */
+    public int evaluate(ChessBoard board) {
+        int score = whiteScore(board);
+        return board.getTeamTurn() == TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * @return the score from white's point of view, positive when white is better, what
+     * someone watching the game wants
+     */
+    public int whiteScore(ChessBoard board) {
+        long pawns = pawnStructure(board);
+        int middlegame = board.middlegame + (short) pawns;
+        int endgame = board.endgame + (short) (pawns >>> 16);
+        int phase = Math.min(board.phase, MAX_PHASE);
+        return (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+
+    /**
+     * @return the pawn structure terms, middlegame in the low 16 bits and endgame in the
+     * next 16, with bit 32 set so an entry is never 0
+     */
+    private long pawnStructure(ChessBoard board) {
+        long key = board.pawnKey;
+        int slot = ((int) key & pawnMask) * 2;
+        long data = pawnTable[slot + 1];
+        if (data != 0L && (pawnTable[slot] ^ data) == key) {
+            return data;
+        }
+        data = pawnTerms(board.pieces(TeamColor.WHITE, PieceType.PAWN), board.pieces(TeamColor.BLACK, PieceType.PAWN));
+        pawnTable[slot] = key ^ data;
+        pawnTable[slot + 1] = data;
+        return data;
+    }
+
+    static long pawnTerms(long white, long black) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int color = 0; color < 2; color++) {
+            long own = color == 0 ? white : black;
+            long enemy = color == 0 ? black : white;
+            int sign = color == 0 ? 1 : -1;
+            for (int file = 0; file < 8; file++) {
+                int count = Long.bitCount(own & (FILE_A << file));
+                if (count == 0) {
+                    continue;
+                }
+                long neighbours = (file > 0 ? FILE_A << (file - 1) : 0L) | (file < 7 ? FILE_A << (file + 1) : 0L);
+                if (count > 1) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                    endgame += sign * DOUBLED_ENDGAME * (count - 1);
+                }
+                if ((own & neighbours) == 0L) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME * count;
+                    endgame += sign * ISOLATED_ENDGAME * count;
+                }
+            }
+            for (long pawns = own; pawns != 0L; pawns &= pawns - 1) {
+                int sq = Long.numberOfTrailingZeros(pawns);
+                if ((PASSED_SPAN[color][sq] & enemy) == 0L) {
+                    int advanced = color == 0 ? sq >> 3 : 7 - (sq >> 3);
+                    middlegame += sign * PASSED_MIDDLEGAME[advanced];
+                    endgame += sign * PASSED_ENDGAME[advanced];
+                }
+            }
+        }
+        return (middlegame & 0xFFFFL) | ((endgame & 0xFFFFL) << 16) | (1L << 32);
+    }
+
+    /**
+     * Flips a table written rank 8 first into square order
+     */
+    private static int[] table(int... drawn) {
+        int[] squares = new int[64];
+        for (int sq = 0; sq < 64; sq++) {
+            squares[sq] = drawn[sq ^ 56];
+        }
+        return squares;
+    }
+}
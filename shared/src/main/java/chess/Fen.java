@@ -0,0 +1,313 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Forsyth-Edwards Notation, one line holding everything needed to carry on a game:
+ * <pre>
+ *   rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1
+ * </pre>
+ * the pieces from a8 to h1, the side to move, castling rights, the square behind a pawn
+ * that just moved two squares, the halfmove clock and the move number. The parser reads
+ * the text where it is, without splitting or copying it. The last four fields may be
+ * left out, as in EPD, and default to none, none, 0 and 1.
+ * <p>
+ * A FEN does not hold the positions played before, so a game read from one can not
+ * see a repetition of anything before it.
+ */
+public final class Fen {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a FEN
+     */
+    public static ChessGame parse(CharSequence fen) {
+        Cursor cursor = new Cursor(fen);
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        while (true) {
+            char c = cursor.next();
+            if (c == '/' || c == ' ') {
+                if (col != 9) {
+                    throw cursor.error("rank " + row + " does not have eight squares");
+                }
+                if (c == ' ') {
+                    break;
+                }
+                row--;
+                col = 1;
+                if (row < 1) {
+                    throw cursor.error("more than eight ranks");
+                }
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw cursor.error("unexpected '" + c + "'");
+                }
+                ChessPiece piece = new ChessPiece(Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK,
+                        pieceType(type));
+                // castling rights are given back below
+                piece.moved = piece.type == PieceType.KING || piece.type == PieceType.ROOK;
+                board.addPiece(ChessPosition.of(row, col), piece);
+                col++;
+            }
+            if (col > 9) {
+                throw cursor.error("rank " + row + " has more than eight squares");
+            }
+        }
+        if (row != 1) {
+            throw cursor.error("fewer than eight ranks");
+        }
+
+        char side = cursor.next();
+        if ((side != 'w' && side != 'b') || !cursor.endOfField()) {
+            throw cursor.error("side to move is not w or b");
+        }
+        TeamColor turn = side == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+
+        if (!cursor.atEnd()) {
+            parseCastling(cursor, board);
+        }
+        if (!cursor.atEnd()) {
+            parseEnPassant(cursor, board, turn);
+        }
+        int halfmoveClock = cursor.atEnd() ? 0 : cursor.number();
+        int fullmoveNumber = cursor.atEnd() ? 1 : cursor.number();
+        if (!cursor.atEnd()) {
+            throw cursor.error("unexpected text after the move number");
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.halfmoveClock = halfmoveClock;
+        game.fullmoveNumber = Math.max(1, fullmoveNumber);
+        return game;
+    }
+
+    /**
+     * @return the game's position as a FEN
+     */
+    public static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(pieceIndex(piece.type));
+                fen.append(piece.faction == TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(game.getTeamTurn() == TeamColor.WHITE ? " w " : " b ");
+
+        int rights = board.castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    fen.append("KQkq".charAt(i));
+                }
+            }
+        }
+
+        ChessPosition passed = board.enPassantPosition;
+        ChessPiece pawn = passed == null ? null : board.getPiece(passed);
+        if (pawn != null && pawn.type == PieceType.PAWN && pawn.faction != game.getTeamTurn()) {
+            int behind = pawn.faction == TeamColor.WHITE ? passed.getRow() - 1 : passed.getRow() + 1;
+            fen.append(' ').append((char) ('a' + passed.getColumn() - 1)).append((char) ('0' + behind));
+        } else {
+            fen.append(" -");
+        }
+        return fen.append(' ').append(game.halfmoveClock).append(' ').append(game.fullmoveNumber).toString();
+    }
+
+    private static void parseCastling(Cursor cursor, ChessBoard board) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+        } else {
+            while (!cursor.atEnd() && cursor.peek() != ' ') {
+                char c = cursor.next();
+                switch (c) {
+                    case 'K' -> allowCastling(board, 1, 8);
+                    case 'Q' -> allowCastling(board, 1, 1);
+                    case 'k' -> allowCastling(board, 8, 8);
+                    case 'q' -> allowCastling(board, 8, 1);
+                    default -> throw cursor.error("unexpected '" + c + "' in the castling rights");
+                }
+            }
+        }
+        if (!cursor.endOfField()) {
+            throw cursor.error("castling rights are not - or KQkq");
+        }
+    }
+
+    /**
+     * Castling rights map onto the moved flags of the king and the corner rook. A right
+     * without the pieces on their squares is ignored.
+     */
+    static void allowCastling(ChessBoard board, int row, int rookCol) {
+        ChessPiece king = board.getPiece(row, 5);
+        ChessPiece rook = board.getPiece(row, rookCol);
+        TeamColor color = row == 1 ? TeamColor.WHITE : TeamColor.BLACK;
+        if (king != null && king.type == PieceType.KING && king.faction == color
+                && rook != null && rook.type == PieceType.ROOK && rook.faction == color) {
+            king.moved = false;
+            rook.moved = false;
+        }
+    }
+
+    private static void parseEnPassant(Cursor cursor, ChessBoard board, TeamColor turn) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+        } else {
+            char file = cursor.next();
+            char rank = cursor.atEnd() ? ' ' : cursor.next();
+            int expected = turn == TeamColor.WHITE ? '6' : '3';
+            if (file < 'a' || file > 'h' || rank != expected) {
+                throw cursor.error("en passant square is not on the " + (char) expected + " rank");
+            }
+            // the board remembers the pawn that just moved two squares, not the square behind it
+            int col = file - 'a' + 1;
+            if (turn == TeamColor.BLACK) {
+                board.whitePawnDoubleMove = true;
+                board.enPassantPosition = ChessPosition.of(4, col);
+            } else {
+                board.blackPawnDoubleMove = true;
+                board.enPassantPosition = ChessPosition.of(5, col);
+            }
+        }
+        if (!cursor.endOfField()) {
+            throw cursor.error("en passant square is not - or a square");
+        }
+    }
+
+    private static PieceType pieceType(int index) {
+        return switch (index) {
+            case 0 -> PieceType.KING;
+            case 1 -> PieceType.QUEEN;
+            case 2 -> PieceType.BISHOP;
+            case 3 -> PieceType.KNIGHT;
+            case 4 -> PieceType.ROOK;
+            default -> PieceType.PAWN;
+        };
+    }
+
+    private static int pieceIndex(PieceType type) {
+        return switch (type) {
+            case KING -> 0;
+            case QUEEN -> 1;
+            case BISHOP -> 2;
+            case KNIGHT -> 3;
+            case ROOK -> 4;
+            case PAWN -> 5;
+        };
+    }
+
+    /**
+     * Reads a FEN in place. Fields are separated by single spaces, leading and trailing
+     * whitespace is skipped.
+     */
+    private static final class Cursor {
+        private final CharSequence text;
+        private final int end;
+        private int position;
+
+        Cursor(CharSequence text) {
+            this.text = text;
+            int start = 0;
+            int last = text.length();
+            while (start < last && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            while (last > start && Character.isWhitespace(text.charAt(last - 1))) {
+                last--;
+            }
+            position = start;
+            end = last;
+        }
+
+        boolean atEnd() {
+            return position >= end;
+        }
+
+        char peek() {
+            return text.charAt(position);
+        }
+
+        /**
+         * @return the next character, a space past the end so the placement ends cleanly
+         */
+        char next() {
+            if (atEnd()) {
+                if (position++ == end) {
+                    return ' ';
+                }
+                throw error("ends too soon");
+            }
+            return text.charAt(position++);
+        }
+
+        /**
+         * Steps over the space after a field
+         *
+         * @return false if the field went on
+         */
+        boolean endOfField() {
+            if (atEnd()) {
+                return true;
+            }
+            if (text.charAt(position) != ' ') {
+                return false;
+            }
+            while (position < end && text.charAt(position) == ' ') {
+                position++;
+            }
+            return true;
+        }
+
+        int number() {
+            int start = position;
+            int value = 0;
+            while (position < end && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+                value = value * 10 + text.charAt(position++) - '0';
+                if (value > 1_000_000) {
+                    throw error("number too large");
+                }
+            }
+            if (position == start || !endOfField()) {
+                throw error("expected a number");
+            }
+            return value;
+        }
+
+        IllegalArgumentException error(String problem) {
+            return new IllegalArgumentException("Bad FEN at " + position + ", " + problem + ": " + text);
+        }
+    }
+}
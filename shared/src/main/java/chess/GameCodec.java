@@ -0,0 +1,216 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A compact binary form of a game, for storing and sending it where JSON of the whole
+ * object graph runs to kilobytes. Version 1, big-endian:
+ * <pre>
+ *   0  "CG" and the version byte
+ *   3  flags: bit 0 black to move, 1 game over, 2 white in check, 3 black in check,
+ *      bits 4-5 the draw reason's ordinal + 1, 0 for none
+ *   4  castling rights in the low nibble (1 K, 2 Q, 4 k, 8 q), en passant file + 1
+ *      in the high nibble, 0 for none
+ *   5  halfmove clock and move number, two bytes each
+ *   9  the board, a nibble per square from a1 to h8, a1 in the low nibble of the first
+ *      byte: 0 empty, 1-6 a white king, queen, bishop, knight, rook or pawn, 9-14 black
+ *   41 the count and Zobrist keys, eight bytes each, of the positions since the last
+ *      capture or pawn move, so a repetition still counts after a round trip
+ *   .. the count and moves, two bytes each, played from the position above on decode
+ * </pre>
+ * A snapshot with no history comes to 45 bytes. The format carries the rules state of
+ * a game, not its move generator setting or cached status, which start fresh.
+ */
+public final class GameCodec {
+
+    public static final int VERSION = 1;
+
+    private static final short MAGIC = 0x4347;
+    private static final int HEADER_BYTES = 9;
+    private static final int BOARD_BYTES = 32;
+    private static final int BLACK = 8;
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final ChessGame.DrawReason[] DRAW_REASONS = ChessGame.DrawReason.values();
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return the game's current state with no moves to replay
+     */
+    public static byte[] encode(ChessGame game) {
+        return encode(game, List.of());
+    }
+
+    /**
+     * @param start the position the moves are played from, left as it is
+     * @param moves moves to play from it on decode, checked only then
+     */
+    public static byte[] encode(ChessGame start, List<ChessMove> moves) {
+        int keys = start.positionKeys == null ? 0 : start.positionCount;
+        if (keys > 0xFFFF || moves.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many positions or moves to encode");
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + BOARD_BYTES + 2 + keys * 8 + 2 + moves.size() * 2);
+        ChessBoard board = start.getBoard();
+        out.putShort(MAGIC).put((byte) VERSION);
+
+        int flags = start.getTeamTurn() == TeamColor.BLACK ? 1 : 0;
+        flags |= start.gameOver ? 2 : 0;
+        flags |= start.whiteInCheck ? 4 : 0;
+        flags |= start.blackInCheck ? 8 : 0;
+        flags |= start.drawReason == null ? 0 : (start.drawReason.ordinal() + 1) << 4;
+        out.put((byte) flags);
+
+        ChessPosition passed = board.enPassantPosition;
+        ChessPiece pawn = passed == null ? null : board.getPiece(passed);
+        int enPassant = pawn != null && pawn.type == PieceType.PAWN ? passed.getColumn() : 0;
+        out.put((byte) (board.castlingRights() | enPassant << 4));
+        out.putShort((short) Math.min(start.halfmoveClock, 0xFFFF));
+        out.putShort((short) Math.min(start.fullmoveNumber, 0xFFFF));
+
+        for (int sq = 0; sq < 64; sq += 2) {
+            out.put((byte) (nibble(board.getPiece(ChessPosition.of(sq))) | nibble(board.getPiece(ChessPosition.of(sq + 1))) << 4));
+        }
+
+        out.putShort((short) keys);
+        for (int i = 0; i < keys; i++) {
+            out.putLong(start.positionKeys[i]);
+        }
+        out.putShort((short) moves.size());
+        for (ChessMove move : moves) {
+            out.putShort(encodeMove(move));
+        }
+        return out.array();
+    }
+
+    /**
+     * @return the game, with any moves after the position played through makeMove
+     * @throws IllegalArgumentException if the bytes are not a game of a known version or a
+     *                                  move can't be played
+     */
+    public static ChessGame decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getShort() != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded game");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown game encoding version " + version);
+            }
+            int flags = in.get() & 0xFF;
+            int rights = in.get() & 0xFF;
+            int halfmoveClock = in.getShort() & 0xFFFF;
+            int fullmoveNumber = in.getShort() & 0xFFFF;
+
+            ChessBoard board = new ChessBoard();
+            for (int sq = 0; sq < 64; sq += 2) {
+                int pair = in.get() & 0xFF;
+                addPiece(board, sq, pair & 0xF);
+                addPiece(board, sq + 1, pair >>> 4);
+            }
+            // castling rights map onto the moved flags, as in a FEN
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    Fen.allowCastling(board, i < 2 ? 1 : 8, i % 2 == 0 ? 8 : 1);
+                }
+            }
+            TeamColor turn = (flags & 1) != 0 ? TeamColor.BLACK : TeamColor.WHITE;
+            int enPassant = rights >>> 4;
+            if (enPassant > 8) {
+                throw new IllegalArgumentException("Bad en passant file " + enPassant);
+            }
+            if (enPassant > 0) {
+                // the pawn that just moved two squares belongs to the side not to move
+                board.whitePawnDoubleMove = turn == TeamColor.BLACK;
+                board.blackPawnDoubleMove = turn == TeamColor.WHITE;
+                board.enPassantPosition = ChessPosition.of(turn == TeamColor.BLACK ? 4 : 5, enPassant);
+            }
+
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            game.setTeamTurn(turn);
+            game.gameOver = (flags & 2) != 0;
+            game.whiteInCheck = (flags & 4) != 0;
+            game.blackInCheck = (flags & 8) != 0;
+            int drawReason = (flags >>> 4) & 3;
+            game.drawReason = drawReason == 0 ? null : DRAW_REASONS[drawReason - 1];
+            game.halfmoveClock = halfmoveClock;
+            game.fullmoveNumber = Math.max(1, fullmoveNumber);
+
+            int keys = in.getShort() & 0xFFFF;
+            if (keys > 0) {
+                game.positionKeys = new long[Math.max(16, keys)];
+                for (int i = 0; i < keys; i++) {
+                    game.positionKeys[i] = in.getLong();
+                }
+                game.positionCount = keys;
+            }
+
+            int moves = in.getShort() & 0xFFFF;
+            for (int i = 0; i < moves; i++) {
+                ChessMove move = decodeMove(in.getShort());
+                try {
+                    game.makeMove(move);
+                } catch (InvalidMoveException ex) {
+                    throw new IllegalArgumentException("Move " + (i + 1) + ", " + move + ", can't be played", ex);
+                }
+            }
+            return game;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Encoded game ends too soon", ex);
+        }
+    }
+
+    /**
+     * @return the move's squares and promotion in two bytes, see {@link Moves#key(int)}
+     */
+    public static short encodeMove(ChessMove move) {
+        return (short) Moves.key(Moves.of(move));
+    }
+
+    public static ChessMove decodeMove(short move) {
+        return Moves.toChessMove(move & 0x7FFF);
+    }
+
+    /**
+     * @return the encoded game as text, for columns and messages that hold strings
+     */
+    public static String encodeToString(ChessGame game) {
+        return Base64.getEncoder().encodeToString(encode(game));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not Base64 of an encoded game
+     */
+    public static ChessGame decodeString(String encoded) {
+        return decode(Base64.getDecoder().decode(encoded));
+    }
+
+    private static int nibble(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        return piece.type.ordinal() + 1 + (piece.faction == TeamColor.BLACK ? BLACK : 0);
+    }
+
+    private static void addPiece(ChessBoard board, int sq, int nibble) {
+        if (nibble == 0) {
+            return;
+        }
+        int type = (nibble & 7) - 1;
+        if (type >= TYPES.length) {
+            throw new IllegalArgumentException("Bad piece " + nibble + " on square " + sq);
+        }
+        ChessPiece piece = new ChessPiece((nibble & BLACK) != 0 ? TeamColor.BLACK : TeamColor.WHITE, TYPES[type]);
+        piece.moved = piece.type == PieceType.KING || piece.type == PieceType.ROOK;
+        board.addPiece(ChessPosition.of(sq), piece);
+    }
+}
@@ -0,0 +1,106 @@
+package chess;
+
+/**
+ * Packs a move into an int so the bitboard generator can fill plain int arrays
+ * instead of allocating ChessMove objects.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (mailbox numbering, a1 = 0)
+ * and bits 12-14 the promotion piece as a PieceType ordinal, 0 meaning no promotion
+ * (a pawn can never promote to a king). The remaining bits are flags describing the move.
+ */
+public final class Moves {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Moves() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int move = from | (to << 6) | flags;
+        if (promotion != null) {
+            move |= promotion.ordinal() << 12;
+        }
+        return move;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the promotion piece, or null when the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int type = (move >>> 12) & 7;
+        return type == 0 ? null : TYPES[type];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * @return the 15 bits that identify the move (squares and promotion) without the flags
+     */
+    public static int key(int move) {
+        return move & 0x7FFF;
+    }
+
+    public static ChessPosition position(int sq) {
+        return ChessPosition.of(sq);
+    }
+
+    public static int square(ChessPosition position) {
+        return ChessBoard.index(position.getRow(), position.getColumn());
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(key(move));
+    }
+
+    /**
+     * @return the packed squares and promotion of a ChessMove, without any flags
+     */
+    public static int of(ChessMove move) {
+        return of(square(move.getStartPosition()), square(move.getEndPosition()), move.getPromotionPiece(), 0);
+    }
+
+    public static String toString(int move) {
+        StringBuilder text = new StringBuilder(5);
+        text.append((char) ('a' + (from(move) & 7))).append((from(move) >> 3) + 1);
+        text.append((char) ('a' + (to(move) & 7))).append((to(move) >> 3) + 1);
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            text.append(switch (promotion) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                default -> 'n';
+            });
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,257 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree from a position (perft). The counts for
+ * the reference positions below are well known, so any change to move generation or
+ * make/unmake that breaks a rule shows up as a wrong number.
+ * <p>
+ * Run main to print node counts and nodes per second for every reference position.
+ */
+public final class Perft {
+
+    /**
+     * Standard perft test positions with their known node counts, index 0 is depth 1
+     */
+    public enum ReferencePosition {
+        START("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -",
+                20, 400, 8902, 197281, 4865609),
+        KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                48, 2039, 97862, 4085603),
+        EN_PASSANT_ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                14, 191, 2812, 43238, 674624),
+        CASTLING_AND_PROMOTIONS("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -",
+                6, 264, 9467, 422333),
+        DISCOVERED_CHECKS("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -",
+                44, 1486, 62379, 2103487),
+        MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -",
+                46, 2079, 89890, 3894594),
+        EN_PASSANT_PIN("3k4/3p4/8/K1P4r/8/8/8/8 b - -",
+                18, 92, 1670, 10138, 185429, 1134888),
+        EN_PASSANT_GIVES_CHECK("8/8/1k6/2b5/2pP4/8/5K2/8 b - d3",
+                15, 126, 1928, 13931, 206379, 1440467),
+        CASTLING_GIVES_CHECK("5k2/8/8/8/8/8/8/4K2R w K -",
+                15, 66, 1198, 6399, 120330, 661072),
+        CASTLING_PREVENTED("r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq -",
+                44, 1494, 50509, 1720476);
+
+        private final String fen;
+        private final long[] nodes;
+
+        ReferencePosition(String fen, long... nodes) {
+            this.fen = fen;
+            this.nodes = nodes;
+        }
+
+        public String fen() {
+            return fen;
+        }
+
+        /**
+         * @return the number of reference counts known for this position
+         */
+        public int maxDepth() {
+            return nodes.length;
+        }
+
+        public long expectedNodes(int depth) {
+            return nodes[depth - 1];
+        }
+
+        public ChessGame game() {
+            return ChessGame.fromFen(fen);
+        }
+    }
+
+    /**
+     * Node count of one run along with how long it took
+     */
+    public record Result(long nodes, long nanos) {
+        public long nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+    }
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf nodes depth plies below the game's current position, on the
+     * calling thread. The game is left as it was.
+     */
+    public static long perft(ChessGame game, int depth) {
+        return new Counter(game.getBoard(), depth).count(game.getTeamTurn(), depth);
+    }
+
+    /**
+     * Same as perft, but split by root move so a wrong total can be narrowed down
+     * against another engine
+     *
+     * @return leaf counts keyed by root move in coordinate notation (e2e4, a7a8q)
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        ChessBoard board = game.getBoard();
+        TeamColor side = game.getTeamTurn();
+        Counter counter = new Counter(board, depth);
+        for (int move : legalMoves(board, side)) {
+            board.makeMove(move);
+            counts.put(Moves.toString(move), depth <= 1 ? 1L : counter.count(opponent(side), depth - 1));
+            board.unmakeMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Counts leaf nodes with one task per root move on the given pool, each task
+     * working on its own copy of the board
+     */
+    public static Result run(ChessGame game, int depth, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long nodes = pool.invoke(new RootTask(game.getBoard(), game.getTeamTurn(), depth));
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    public static Result run(ChessGame game, int depth) {
+        return run(game, depth, ForkJoinPool.commonPool());
+    }
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        boolean allPassed = true;
+        for (ReferencePosition position : ReferencePosition.values()) {
+            int depth = Math.min(maxDepth, position.maxDepth());
+            Result result = run(position.game(), depth);
+            boolean passed = result.nodes() == position.expectedNodes(depth);
+            allPassed &= passed;
+            totalNodes += result.nodes();
+            totalNanos += result.nanos();
+            System.out.printf("%-24s depth %d %,14d nodes %,8d ms %,12d nps %s%n", position, depth, result.nodes(),
+                    result.nanos() / 1_000_000, result.nodesPerSecond(),
+                    passed ? "ok" : "WRONG, expected " + position.expectedNodes(depth));
+        }
+        System.out.printf("total %,d nodes in %,d ms, %,d nps%n", totalNodes, totalNanos / 1_000_000,
+                new Result(totalNodes, totalNanos).nodesPerSecond());
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    static List<Integer> legalMoves(ChessBoard board, TeamColor side) {
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+        AttackMap attackMap = AttackMap.of(board, side);
+        List<Integer> legal = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (attackMap.isLegal(moves[i])) {
+                legal.add(moves[i]);
+            }
+        }
+        return legal;
+    }
+
+    private static TeamColor opponent(TeamColor side) {
+        return side == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * Recursive counter with one preallocated move buffer and attack map per ply, so
+     * the count itself does not allocate
+     */
+    private static class Counter {
+        private final ChessBoard board;
+        private final int[][] buffers;
+        private final AttackMap[] attackMaps;
+
+        Counter(ChessBoard board, int depth) {
+            this.board = board;
+            this.buffers = new int[Math.max(depth, 1) + 1][BitboardMoveGenerator.MAX_MOVES];
+            this.attackMaps = new AttackMap[buffers.length];
+            for (int i = 0; i < attackMaps.length; i++) {
+                attackMaps[i] = new AttackMap();
+            }
+        }
+
+        long count(TeamColor side, int depth) {
+            if (depth == 0) {
+                return 1;
+            }
+            int[] moves = buffers[depth];
+            int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+            AttackMap attackMap = attackMaps[depth].reset(board, side);
+            TeamColor next = opponent(side);
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                if (!attackMap.isLegal(moves[i])) {
+                    continue;
+                }
+                if (depth == 1) {
+                    nodes++;
+                } else {
+                    board.makeMove(moves[i]);
+                    nodes += count(next, depth - 1);
+                    board.unmakeMove();
+                }
+            }
+            return nodes;
+        }
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final TeamColor side;
+        private final int depth;
+
+        RootTask(ChessBoard board, TeamColor side, int depth) {
+            this.board = board;
+            this.side = side;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) {
+                return 1L;
+            }
+            List<MoveTask> tasks = new ArrayList<>();
+            for (int move : legalMoves(board, side)) {
+                tasks.add(new MoveTask(board.clone(), side, move, depth - 1));
+            }
+            long nodes = 0;
+            for (MoveTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    private static class MoveTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final TeamColor side;
+        private final int move;
+        private final int depth;
+
+        MoveTask(ChessBoard board, TeamColor side, int move, int depth) {
+            this.board = board;
+            this.side = side;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            board.makeMove(move);
+            return new Counter(board, depth).count(opponent(side), depth);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Standard algebraic notation, the move format of PGN files: "Nf3", "exd5", "O-O",
+ * "e8=Q+". Moves are resolved against the position they are played in, the notation
+ * alone does not say where a piece comes from, and written the same way.
+ */
+public final class San {
+
+    /**
+     * Piece letters in PieceType order
+     */
+    private static final String LETTERS = "KQBNRP";
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move the notation describes. Check and annotation marks ("+", "#",
+     * "!", "?") are ignored, so is a missing "=" before a promotion piece.
+     *
+     * @return the move packed as by {@link Moves}
+     * @throws IllegalArgumentException if no legal move or more than one fits
+     */
+    public static int parse(ChessBoard board, CharSequence san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        TeamColor side = board.getTeamTurn();
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+        AttackMap attackMap = AttackMap.of(board, side);
+
+        if (isCastle(san, end)) {
+            boolean queenside = end == 5;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (Moves.isCastle(move) && (Moves.to(move) < Moves.from(move)) == queenside
+                        && attackMap.isLegal(move)) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Can't castle that way here: " + san);
+        }
+
+        PieceType promotion = null;
+        if (end > 0 && pieceType(san.charAt(end - 1)) != null) {
+            promotion = pieceType(san.charAt(end - 1));
+            end -= end > 1 && san.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        if (end < 2) {
+            throw new IllegalArgumentException("Not a move: " + san);
+        }
+        int toFile = san.charAt(end - 2) - 'a';
+        int toRank = san.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            throw new IllegalArgumentException("Not a move: " + san);
+        }
+        int start = 0;
+        PieceType type = PieceType.PAWN;
+        if (pieceType(san.charAt(0)) != null) {
+            type = pieceType(san.charAt(0));
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                throw new IllegalArgumentException("Not a move: " + san);
+            }
+        }
+
+        int to = toRank * 8 + toFile;
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Moves.from(move);
+            if (Moves.to(move) != to || Moves.promotion(move) != promotion
+                    || (fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >> 3) != fromRank)
+                    || board.squares[from].type != type || Moves.isCastle(move) || !attackMap.isLegal(move)) {
+                continue;
+            }
+            if (found != 0) {
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if (found == 0) {
+            throw new IllegalArgumentException("No such move: " + san);
+        }
+        return found;
+    }
+
+    /**
+     * Writes a legal move the way PGN wants it: only as much of the starting square as
+     * tells it apart from the same piece's other moves there, and "+" or "#" when it
+     * checks or mates
+     *
+     * @param move a legal move of the side to move, packed as by {@link Moves}
+     */
+    public static String format(ChessBoard board, int move) {
+        TeamColor side = board.getTeamTurn();
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        PieceType type = board.squares[from].type;
+        StringBuilder san = new StringBuilder(8);
+        if (type == PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            san.append((to & 7) > (from & 7) ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = board.squares[to] != null || Moves.isEnPassant(move)
+                    || (type == PieceType.PAWN && (to & 7) != (from & 7));
+            if (type == PieceType.PAWN) {
+                if (capture) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                san.append(LETTERS.charAt(type.ordinal()));
+                disambiguate(board, move, type, san);
+            }
+            if (capture) {
+                san.append('x');
+            }
+            san.append((char) ('a' + (to & 7))).append((char) ('1' + (to >> 3)));
+            if (Moves.promotion(move) != null) {
+                san.append('=').append(LETTERS.charAt(Moves.promotion(move).ordinal()));
+            }
+        }
+        board.makeMove(move);
+        AttackMap replies = AttackMap.of(board, side == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+        if (replies.inCheck()) {
+            san.append(replies.hasLegalMove() ? '+' : '#');
+        }
+        board.unmakeMove();
+        return san.toString();
+    }
+
+    /**
+     * Adds the file, the rank or both of the starting square when another piece of the
+     * same type can also go to the target
+     */
+    private static void disambiguate(ChessBoard board, int move, PieceType type, StringBuilder san) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        TeamColor side = board.getTeamTurn();
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+        AttackMap attackMap = AttackMap.of(board, side);
+        boolean others = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = Moves.from(moves[i]);
+            if (other == from || Moves.to(moves[i]) != to || board.squares[other].type != type
+                    || !attackMap.isLegal(moves[i])) {
+                continue;
+            }
+            others = true;
+            sameFile |= (other & 7) == (from & 7);
+            sameRank |= (other >> 3) == (from >> 3);
+        }
+        if (!others) {
+            return;
+        }
+        if (!sameFile) {
+            san.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            san.append((char) ('1' + (from >> 3)));
+        } else {
+            san.append((char) ('a' + (from & 7))).append((char) ('1' + (from >> 3)));
+        }
+    }
+
+    private static boolean isCastle(CharSequence san, int end) {
+        if (end != 3 && end != 5) {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = san.charAt(i);
+            if (i % 2 == 1 ? c != '-' : c != 'O' && c != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static PieceType pieceType(char c) {
+        return switch (c) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'R' -> PieceType.ROOK;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+}
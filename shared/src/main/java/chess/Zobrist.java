@@ -0,0 +1,79 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of one key per piece on
+ * a square, one for black to move, one for the castling rights and one for the en
+ * passant file.
+ * <p>
+ * The keys come from a fixed seed so they are the same on every run. Anything written
+ * to disk keyed by position (opening books, tablebases) depends on that.
+ */
+final class Zobrist {
+
+    /**
+     * Indexed [ChessBoard.boardIndex(color, type) * 64 + square]
+     */
+    static final long[] PIECE_SQUARE = new long[12 * 64];
+    static final long BLACK_TO_MOVE;
+    /**
+     * Indexed by a 4 bit rights mask, see ChessBoard.castlingRights
+     */
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x2B992DDFA23249D6L);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = random.nextLong();
+        }
+        // each right gets its own key so losing one right is a single XOR, like the pieces
+        for (int mask = 1; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(ChessPiece piece, int sq) {
+        return PIECE_SQUARE[(ChessBoard.boardIndex(piece.faction, piece.type) << 6) | sq];
+    }
+
+    /**
+     * Computes a board's key from scratch. ChessBoard keeps its key up to date move by
+     * move, this is the reference it has to agree with.
+     */
+    static long of(ChessBoard board) {
+        long key = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            if (board.squares[sq] != null) {
+                key ^= piece(board.squares[sq], sq);
+            }
+        }
+        if (board.getTeamTurn() == TeamColor.BLACK) {
+            key ^= BLACK_TO_MOVE;
+        }
+        key ^= CASTLING[board.castlingRights()];
+        int file = board.enPassantFile();
+        if (file >= 0) {
+            key ^= EN_PASSANT_FILE[file];
+        }
+        return key;
+    }
+}
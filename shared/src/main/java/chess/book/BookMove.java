@@ -0,0 +1,12 @@
+package chess.book;
+
+import chess.ChessMove;
+
+/**
+ * A move the opening book knows for a position
+ *
+ * @param weight how good the games that played it went for the side making it, only
+ *               meaningful next to the weights of the position's other moves
+ */
+public record BookMove(ChessMove move, int weight) {
+}
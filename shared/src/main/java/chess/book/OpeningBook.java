@@ -0,0 +1,171 @@
+package chess.book;
+
+import chess.AttackMap;
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Moves;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only opening book, a file written by {@link OpeningBookBuilder} and mapped into
+ * memory, so opening one costs next to nothing and the operating system shares the
+ * pages between processes.
+ * <p>
+ * The file is a header followed by fixed size entries sorted by position key:
+ * <pre>
+ *   header  int magic "CHBK", int version, int entry count, int plies
+ *   entry   long Zobrist key, short move (Moves.key), unsigned short weight
+ * </pre>
+ * all big-endian. A lookup is a binary search over the entries. Keys are 64 bits, so
+ * a collision is unlikely but the moves are still checked against the position before
+ * they are handed out. Safe to share between threads.
+ */
+public final class OpeningBook {
+
+    static final int MAGIC = 0x4348424B;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 12;
+
+    private final ByteBuffer entries;
+    private final int size;
+    private final int plies;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported opening book version " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        plies = buffer.getInt(12);
+        if (size < 0 || (long) size * ENTRY_BYTES != buffer.capacity() - HEADER_BYTES) {
+            throw new IOException("Opening book is truncated");
+        }
+        entries = buffer.slice(HEADER_BYTES, size * ENTRY_BYTES);
+    }
+
+    /**
+     * Maps the book file into memory. The file must not change while the book is in use.
+     *
+     * @throws IOException if the file can't be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Opening book is too big to map");
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of position and move pairs in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many plies into each game the book was built from
+     */
+    public int plies() {
+        return plies;
+    }
+
+    public List<BookMove> moves(ChessGame game) {
+        return game.gameOver ? List.of() : moves(game.getBoard());
+    }
+
+    /**
+     * @return the book's legal moves for the position, heaviest first, empty if the
+     * position is not in the book
+     */
+    public List<BookMove> moves(ChessBoard board) {
+        long key = board.zobristKey();
+        int index = firstIndex(key);
+        if (index < 0) {
+            return List.of();
+        }
+        int[] generated = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, board.getTeamTurn(), generated, 0);
+        AttackMap attackMap = AttackMap.of(board, board.getTeamTurn());
+        List<BookMove> result = new ArrayList<>();
+        for (; index < size && keyAt(index) == key; index++) {
+            int move = entries.getShort(index * ENTRY_BYTES + 8) & 0x7FFF;
+            for (int i = 0; i < count; i++) {
+                if (Moves.key(generated[i]) == move && attackMap.isLegal(generated[i])) {
+                    result.add(new BookMove(Moves.toChessMove(move), entries.getChar(index * ENTRY_BYTES + 10)));
+                    break;
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(BookMove::weight).reversed());
+        return result;
+    }
+
+    /**
+     * @return the heaviest book move, null if the position is not in the book
+     */
+    public ChessMove best(ChessGame game) {
+        List<BookMove> moves = moves(game);
+        return moves.isEmpty() ? null : moves.get(0).move();
+    }
+
+    /**
+     * Picks a book move at random, each with a chance in proportion to its weight, so a
+     * player using the book does not always open the same way
+     *
+     * @return the move, null if the position is not in the book
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = moves(game);
+        long total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+        long roll = random.nextLong(total);
+        int i = 0;
+        while (roll >= moves.get(i).weight()) {
+            roll -= moves.get(i).weight();
+            i++;
+        }
+        return moves.get(i).move();
+    }
+
+    /**
+     * @return the index of the first entry with the key, -1 if there is none
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < size && keyAt(low) == key ? low : -1;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+}
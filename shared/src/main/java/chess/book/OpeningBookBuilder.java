@@ -0,0 +1,173 @@
+package chess.book;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Moves;
+import chess.San;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} file from games, usually read from PGN files.
+ * <p>
+ * Every position in the first plies of a game gets the move played there. A move
+ * scores 2 for each game the side that played it won, 1 for a draw or an unknown result
+ * and nothing for a loss. Moves that only ever lost are left out of the book.
+ * <p>
+ * Run main to build a book from the command line:
+ * <pre>
+ *   OpeningBookBuilder out.book games1.pgn games2.pgn ...
+ * </pre>
+ */
+public final class OpeningBookBuilder {
+
+    /**
+     * Twelve moves for each side, deep enough to get out of most openings
+     */
+    public static final int DEFAULT_PLIES = 24;
+
+    private record Entry(long key, int move) {
+    }
+
+    private final int plies;
+    private final Map<Entry, Long> weights = new HashMap<>();
+    private int games;
+    private int rejected;
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_PLIES);
+    }
+
+    /**
+     * @param plies how far into each game positions are added
+     */
+    public OpeningBookBuilder(int plies) {
+        if (plies < 1) {
+            throw new IllegalArgumentException("A book needs at least one ply");
+        }
+        this.plies = plies;
+    }
+
+    /**
+     * Adds a game's opening. A game with a move that is not legal is added up to that
+     * move and counted as rejected.
+     *
+     * @param moves  the game's moves in standard algebraic notation
+     * @param result "1-0", "0-1", "1/2-1/2" or "*" for unknown
+     */
+    public void addGame(List<String> moves, String result) {
+        games++;
+        ChessBoard board = new ChessGame().getBoard();
+        int whiteScore = switch (result) {
+            case "1-0" -> 2;
+            case "0-1" -> 0;
+            default -> 1;
+        };
+        for (int ply = 0; ply < plies && ply < moves.size(); ply++) {
+            int move;
+            try {
+                move = San.parse(board, moves.get(ply));
+            } catch (IllegalArgumentException ex) {
+                rejected++;
+                return;
+            }
+            int score = board.getTeamTurn() == ChessGame.TeamColor.WHITE ? whiteScore : 2 - whiteScore;
+            weights.merge(new Entry(board.zobristKey(), Moves.key(move)), (long) score, Long::sum);
+            board.makeMove(move);
+        }
+    }
+
+    /**
+     * Adds every game of a PGN file, see {@link PgnReader}. Only the moves and the
+     * result are used.
+     *
+     * @return the number of games read
+     */
+    public int addPgn(Reader pgn) throws IOException {
+        PgnReader reader = new PgnReader(pgn);
+        int read = 0;
+        for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+            addGame(game.moves(), game.result());
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * @return the number of games added so far
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * @return the number of games cut short by a move that was not legal
+     */
+    public int rejected() {
+        return rejected;
+    }
+
+    /**
+     * Writes the book. Weights above what the file can hold are scaled down with the
+     * rest of their position's weights, so their proportions stay about the same.
+     */
+    public void write(Path path) throws IOException {
+        Map<Long, Long> heaviest = new HashMap<>();
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Entry, Long> weight : weights.entrySet()) {
+            if (weight.getValue() > 0) {
+                entries.add(weight.getKey());
+                heaviest.merge(weight.getKey().key(), weight.getValue(), Math::max);
+            }
+        }
+        entries.sort((a, b) -> a.key() != b.key() ? Long.compareUnsigned(a.key(), b.key())
+                : Integer.compare(a.move(), b.move()));
+
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(plies);
+            for (Entry entry : entries) {
+                long weight = weights.get(entry);
+                long max = heaviest.get(entry.key());
+                if (max > 0xFFFF) {
+                    weight = Math.max(1, weight * 0xFFFF / max);
+                }
+                out.writeLong(entry.key());
+                out.writeShort(entry.move());
+                out.writeShort((int) weight);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: OpeningBookBuilder <book file> <pgn file>...");
+            System.exit(2);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        for (int i = 1; i < args.length; i++) {
+            try (Reader reader = Files.newBufferedReader(Path.of(args[i]), StandardCharsets.ISO_8859_1)) {
+                builder.addPgn(reader);
+            }
+        }
+        builder.write(Path.of(args[0]));
+        System.out.printf("%,d games, %,d cut short, %,d book entries%n", builder.games(), builder.rejected(),
+                builder.weights.size());
+    }
+}
@@ -0,0 +1,466 @@
+package chess.engine;
+
+import chess.AttackMap;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.Evaluator;
+import chess.Moves;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds the best move in a position: negamax with alpha-beta pruning, run with
+ * iterative deepening and finished off with a quiescence search of captures so it does
+ * not stop counting in the middle of an exchange. What each node found goes into a
+ * {@link TranspositionTable}, which can be shared with other engines. Given an
+ * {@link OpeningBook}, the engine plays the book's heaviest move without searching for
+ * as long as the game stays in the book. Given a {@link Tablebase}, positions it covers
+ * are scored exactly instead of being searched any further.
+ * <p>
+ * An engine searches one game at a time and keeps its buffers between searches, so
+ * the search itself does not allocate. Use one engine per thread. {@link #stop()} may
+ * be called from any thread, and interrupting the searching thread has the same
+ * effect. Either way search returns the deepest iteration it finished.
+ * <p>
+ * A new engine given a depth or node limit is deterministic: the same position always
+ * gets the same result. That is the mode to test with. A time limit, a table shared
+ * with other searches or a {@link SearchPool} running several threads all make the
+ * result depend on timing.
+ */
+public final class Engine {
+
+    /**
+     * Score of mating on the spot. A mate n plies away scores MATE - n.
+     */
+    public static final int MATE = 30_000;
+    /**
+     * Deepest line the search follows, quiescence included
+     */
+    static final int MAX_PLY = 128;
+
+    private static final int INFINITY = 32_000;
+    private static final AtomicBoolean NOT_CANCELLED = new AtomicBoolean();
+    /**
+     * Limits are looked at every this many nodes plus one, often enough to stay well
+     * inside a millisecond
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    private final MoveHistory history = new MoveHistory();
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final AttackMap[] attackMaps = new AttackMap[MAX_PLY];
+    /**
+     * Triangular table, row ply holds the best line found from that ply on
+     */
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+    private boolean followPv;
+    /**
+     * Plies since a capture or pawn move, per ply of the current line
+     */
+    private final int[] clocks = new int[MAX_PLY + 1];
+    /**
+     * Keys of the game so far followed by the keys of the current line, for spotting
+     * repetitions
+     */
+    private long[] keys = new long[MAX_PLY + 1];
+    private int rootIndex;
+
+    private final TranspositionTable table;
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final Evaluator evaluator = new Evaluator();
+    private ChessBoard board;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private AtomicBoolean cancelled = NOT_CANCELLED;
+
+    /**
+     * Makes an engine with a transposition table of its own
+     */
+    public Engine() {
+        this(new TranspositionTable());
+    }
+
+    public Engine(TranspositionTable table) {
+        this(table, null);
+    }
+
+    /**
+     * @param book consulted before every search, null for none
+     */
+    public Engine(TranspositionTable table, OpeningBook book) {
+        this(table, book, null);
+    }
+
+    /**
+     * @param book      consulted before every search, null for none
+     * @param tablebase probed at every node below the root, null for none
+     */
+    public Engine(TranspositionTable table, OpeningBook book, Tablebase tablebase) {
+        this.table = table;
+        this.book = book;
+        this.tablebase = tablebase;
+        for (int i = 0; i < MAX_PLY; i++) {
+            attackMaps[i] = new AttackMap();
+            pickers[i] = new MovePicker(history);
+        }
+    }
+
+    /**
+     * Searches the position of a game for the side to move. The game itself is not
+     * touched, the search runs on a copy of its board.
+     *
+     * @return the best line found, with an empty line if the game is already decided. A
+     * book move comes back as a line of one move with depth 0 and no nodes.
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        SearchResult booked = fromBook(book, game);
+        if (booked != null) {
+            return booked;
+        }
+        stopRequested = false;
+        table.newSearch();
+        return search(SearchRoot.of(game), limits, 1, NOT_CANCELLED);
+    }
+
+    /**
+     * Runs the iterations from firstDepth on, stopping early when cancelled is set. Lazy
+     * SMP helpers start at different depths so they fill the table ahead of each other.
+     */
+    SearchResult search(SearchRoot root, SearchLimits limits, int firstDepth, AtomicBoolean cancelled) {
+        long start = System.nanoTime();
+        this.cancelled = cancelled;
+        aborted = false;
+        nodes = 0;
+        nodeLimit = limits.nodes() == 0 ? Long.MAX_VALUE : limits.nodes();
+        deadline = limits.millis() == 0 ? Long.MAX_VALUE : start + limits.millis() * 1_000_000L;
+        board = root.board().clone();
+        loadHistory(root);
+        history.newSearch();
+
+        List<ChessMove> line = List.of();
+        int score = 0;
+        int completed = 0;
+        if (!root.over()) {
+            previousPvLength = 0;
+            for (int depth = Math.min(firstDepth, limits.depth()); depth <= limits.depth(); depth++) {
+                followPv = true;
+                int result = negamax(depth, 0, -INFINITY, INFINITY);
+                if (aborted) {
+                    break;
+                }
+                score = result;
+                completed = depth;
+                previousPvLength = pvLength[0];
+                System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+                line = toChessMoves(previousPv, previousPvLength);
+                if (line.isEmpty() || MATE - Math.abs(score) <= depth) {
+                    // no moves, or a mate that no deeper iteration can make shorter
+                    break;
+                }
+            }
+            if (completed == 0) {
+                line = fallback();
+                score = line.isEmpty() ? 0 : evaluator.evaluate(board);
+            }
+        }
+        board = null;
+        this.cancelled = NOT_CANCELLED;
+        return new SearchResult(line, score, completed, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the book's heaviest move for the game as a result, null without a book or
+     * when the position is not in it
+     */
+    static SearchResult fromBook(OpeningBook book, ChessGame game) {
+        if (book == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ChessMove move = book.best(game);
+        return move == null ? null : new SearchResult(List.of(move), 0, 0, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Asks the search in progress to stop as soon as it can. Safe to call from any
+     * thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (outOfBudget()) {
+            return 0;
+        }
+        if (ply > 0 && (clocks[ply] >= 100 || repeated(ply))) {
+            return 0;
+        }
+        if (ply > 0 && tablebase != null) {
+            int code = tablebase.probeCode(board);
+            if (code >= 0) {
+                return tablebaseScore(code, ply);
+            }
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+        AttackMap attackMap = attackMaps[ply].reset(board, board.getTeamTurn());
+        boolean inCheck = attackMap.inCheck();
+        if (inCheck) {
+            // never stand pat in check, look one ply further instead
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+
+        long key = board.zobristKey();
+        long entry = table.probe(key);
+        if (entry != 0L && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            // the root always searches, it has to come back with a line
+            int stored = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && stored >= beta)
+                    || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+                return stored;
+            }
+        }
+
+        int originalAlpha = alpha;
+        MovePicker picker = picker(ply, TranspositionTable.move(entry), false);
+        int legal = 0;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            if (!attackMap.isLegal(move)) {
+                continue;
+            }
+            legal++;
+            make(move, ply);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!Moves.isCapture(move) && Moves.promotion(move) != PieceType.QUEEN) {
+                            history.cutoff(board.getTeamTurn() == ChessGame.TeamColor.WHITE ? 0 : 1,
+                                    move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, Moves.key(bestMove), toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (outOfBudget()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+        AttackMap attackMap = attackMaps[ply].reset(board, board.getTeamTurn());
+        boolean inCheck = attackMap.inCheck();
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = evaluator.evaluate(board);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        // in check every evasion is searched, otherwise only captures and promotions
+        MovePicker picker = picker(ply, 0, !inCheck);
+        int legal = 0;
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            if (!attackMap.isLegal(move)) {
+                continue;
+            }
+            legal++;
+            make(move, ply);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (inCheck && legal == 0) {
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    /**
+     * Readies the ply's picker. While the search is still on the previous iteration's
+     * line, that line's move goes first instead of the table's.
+     *
+     * @param hashMove key of the move the transposition table suggests, 0 for none
+     */
+    private MovePicker picker(int ply, int hashMove, boolean tacticalOnly) {
+        boolean onPv = followPv && ply < previousPvLength;
+        int first = onPv ? Moves.key(previousPv[ply]) : hashMove;
+        MovePicker picker = pickers[ply].reset(board, first, ply, tacticalOnly);
+        followPv = onPv && picker.hasHashMove();
+        return picker;
+    }
+
+    private void make(int move, int ply) {
+        ChessPiece mover = board.getPiece(Moves.position(Moves.from(move)));
+        boolean irreversible = Moves.isCapture(move) || mover.getPieceType() == PieceType.PAWN;
+        clocks[ply + 1] = irreversible ? 0 : clocks[ply] + 1;
+        board.makeMove(move);
+        keys[rootIndex + ply + 1] = board.zobristKey();
+    }
+
+    /**
+     * A position seen before on the current line or in the game counts as a draw, the
+     * side that is better will avoid it and the other can not be stopped from taking it
+     */
+    private boolean repeated(int ply) {
+        int index = rootIndex + ply;
+        long key = keys[index];
+        int oldest = Math.max(0, index - clocks[ply]);
+        for (int i = index - 2; i >= oldest; i -= 2) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Turns a tablebase entry into a score on the search's mate scale
+     */
+    private static int tablebaseScore(int code, int ply) {
+        if (code == 0) {
+            return 0;
+        }
+        int plies = code - 1;
+        return plies % 2 == 1 ? MATE - ply - plies : -MATE + ply + plies;
+    }
+
+    /**
+     * Mate scores are stored counted from the node rather than from the root, so they
+     * stay right when the position turns up again at another ply
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] row = pv[ply];
+        int[] child = pv[ply + 1];
+        row[ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(child, ply + 1, row, ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private boolean outOfBudget() {
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            if (stopRequested || cancelled.get() || nodes >= nodeLimit || System.nanoTime() >= deadline
+                    || Thread.currentThread().isInterrupted()) {
+                aborted = true;
+            }
+        }
+        return aborted;
+    }
+
+    private void loadHistory(SearchRoot root) {
+        long[] history = root.history();
+        long rootKey = board.zobristKey();
+        boolean rootRecorded = history.length > 0 && history[history.length - 1] == rootKey;
+        int size = history.length + (rootRecorded ? 0 : 1);
+        if (keys.length < size + MAX_PLY) {
+            keys = new long[size + MAX_PLY];
+        }
+        System.arraycopy(history, 0, keys, 0, history.length);
+        rootIndex = size - 1;
+        keys[rootIndex] = rootKey;
+        clocks[0] = root.halfmoveClock();
+    }
+
+    /**
+     * Used when the limits did not leave time for even one iteration: the first legal
+     * move in search order
+     */
+    private List<ChessMove> fallback() {
+        AttackMap attackMap = attackMaps[0].reset(board, board.getTeamTurn());
+        followPv = false;
+        MovePicker picker = picker(0, 0, false);
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            if (attackMap.isLegal(move)) {
+                return List.of(Moves.toChessMove(move));
+            }
+        }
+        return List.of();
+    }
+
+    private static List<ChessMove> toChessMoves(int[] line, int length) {
+        List<ChessMove> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(Moves.toChessMove(line[i]));
+        }
+        return List.copyOf(result);
+    }
+}
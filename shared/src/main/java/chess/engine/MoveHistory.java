@@ -0,0 +1,74 @@
+package chess.engine;
+
+import chess.Moves;
+
+import java.util.Arrays;
+
+/**
+ * What the search has learned about quiet moves, for ordering them: two killer moves
+ * per ply (quiet moves that caused a cutoff at the same ply in a sibling node) and a
+ * history score per side, from square and to square that grows every time the move
+ * causes a cutoff anywhere in the tree.
+ */
+final class MoveHistory {
+
+    /**
+     * Scores are halved once any of them gets this big, which keeps them inside the
+     * range the picker sorts on and lets old knowledge fade
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final int[] killers = new int[Engine.MAX_PLY * 2];
+    private final int[] history = new int[2 * 64 * 64];
+
+    /**
+     * Forgets the killers, which belong to the previous root, and halves the history
+     * scores so the new search can overrule them quickly
+     */
+    void newSearch() {
+        Arrays.fill(killers, 0);
+        age();
+    }
+
+    /**
+     * @param slot 0 for the most recent killer, 1 for the one before it
+     * @return the killer move, 0 if there is none
+     */
+    int killer(int ply, int slot) {
+        return killers[ply * 2 + slot];
+    }
+
+    /**
+     * @param side 0 for white, 1 for black
+     */
+    int score(int side, int move) {
+        return history[index(side, move)];
+    }
+
+    /**
+     * Records a quiet move that failed high. Deeper cutoffs weigh more since they
+     * saved more work.
+     */
+    void cutoff(int side, int move, int ply, int depth) {
+        int slot = ply * 2;
+        if (Moves.key(killers[slot]) != Moves.key(move)) {
+            killers[slot + 1] = killers[slot];
+            killers[slot] = move;
+        }
+        int index = index(side, move);
+        history[index] += depth * depth;
+        if (history[index] >= HISTORY_LIMIT) {
+            age();
+        }
+    }
+
+    private void age() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    private static int index(int side, int move) {
+        return (side << 12) | (Moves.from(move) << 6) | Moves.to(move);
+    }
+}
@@ -0,0 +1,234 @@
+package chess.engine;
+
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.Evaluator;
+import chess.Moves;
+
+/**
+ * Hands out the pseudo-legal moves of one node, most promising first, generating them
+ * in stages so that a node that cuts off early never pays for the rest:
+ * <ol>
+ *     <li>the hash move, checked against the position but not generated with the rest
+ *     <li>captures and queen promotions, most valuable victim first and least
+ *     valuable attacker among those
+ *     <li>the two killer moves of the ply
+ *     <li>the remaining quiet moves by history score
+ * </ol>
+ * Each ply of the search owns a picker and reuses it, moves live in arrays the picker
+ * allocates once. Legality is left to the caller.
+ */
+final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int GENERATE_TACTICAL = 1;
+    private static final int TACTICAL = 2;
+    private static final int KILLERS = 3;
+    private static final int GENERATE_QUIET = 4;
+    private static final int QUIET = 5;
+    private static final int DONE = 6;
+
+    private final MoveHistory history;
+    private final int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[BitboardMoveGenerator.MAX_MOVES];
+    /**
+     * Moves of a single piece, for checking a hash move or killer against the position
+     */
+    private final int[] pieceMoves = new int[64];
+
+    private ChessBoard board;
+    private TeamColor side;
+    private int ply;
+    private boolean tacticalOnly;
+    private int stage;
+    private int hashMove;
+    private int killer;
+    private int index;
+    private int end;
+
+    MovePicker(MoveHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Starts picking in a new node. Nothing is generated yet.
+     *
+     * @param hashKey      {@link Moves#key} of a move to try first, 0 for none. It is
+     *                     dropped if it is not a move in this position.
+     * @param tacticalOnly pick only captures and queen promotions, for quiescence
+     */
+    MovePicker reset(ChessBoard board, int hashKey, int ply, boolean tacticalOnly) {
+        this.board = board;
+        this.side = board.getTeamTurn();
+        this.ply = ply;
+        this.tacticalOnly = tacticalOnly;
+        stage = HASH;
+        killer = 0;
+        hashMove = hashKey == 0 ? 0 : find(hashKey);
+        if (tacticalOnly && hashMove != 0 && !isTactical(hashMove)) {
+            hashMove = 0;
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the hash move given to reset is playable here and comes first
+     */
+    boolean hasHashMove() {
+        return hashMove != 0;
+    }
+
+    /**
+     * @return the next move, 0 once every move was handed out
+     */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH -> {
+                    stage = GENERATE_TACTICAL;
+                    if (hashMove != 0) {
+                        return hashMove;
+                    }
+                }
+                case GENERATE_TACTICAL -> {
+                    end = BitboardMoveGenerator.tacticalMoves(board, side, moves, 0);
+                    for (int i = 0; i < end; i++) {
+                        scores[i] = mvvLva(moves[i]);
+                    }
+                    index = 0;
+                    stage = TACTICAL;
+                }
+                case TACTICAL -> {
+                    if (index < end) {
+                        int move = select();
+                        if (Moves.key(move) != Moves.key(hashMove)) {
+                            return move;
+                        }
+                    } else {
+                        stage = tacticalOnly ? DONE : KILLERS;
+                    }
+                }
+                case KILLERS -> {
+                    if (killer < 2) {
+                        int move = playableKiller(history.killer(ply, killer++));
+                        if (move != 0) {
+                            return move;
+                        }
+                    } else {
+                        stage = GENERATE_QUIET;
+                    }
+                }
+                case GENERATE_QUIET -> {
+                    // captures are all handed out, the quiet moves take their place
+                    end = BitboardMoveGenerator.quietMoves(board, side, moves, 0);
+                    int color = side == TeamColor.WHITE ? 0 : 1;
+                    for (int i = 0; i < end; i++) {
+                        scores[i] = history.score(color, moves[i]);
+                    }
+                    index = 0;
+                    stage = QUIET;
+                }
+                case QUIET -> {
+                    if (index < end) {
+                        int move = select();
+                        if (!alreadyPicked(move)) {
+                            return move;
+                        }
+                    } else {
+                        stage = DONE;
+                    }
+                }
+                default -> {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the best scored of the remaining moves to the front and returns it. Cheaper
+     * than sorting since most nodes cut off after a few moves.
+     */
+    private int select() {
+        int best = index;
+        for (int j = index + 1; j < end; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+
+    private int mvvLva(int move) {
+        int score = 0;
+        if (Moves.isCapture(move)) {
+            ChessPiece victim = board.getPiece(Moves.position(Moves.to(move)));
+            // en passant is the one capture whose victim is not on the target square
+            int victimValue = Evaluator.value(victim == null ? PieceType.PAWN : victim.getPieceType());
+            ChessPiece attacker = board.getPiece(Moves.position(Moves.from(move)));
+            score = victimValue * 16 - Evaluator.value(attacker.getPieceType()) / 10;
+        }
+        PieceType promotion = Moves.promotion(move);
+        if (promotion != null) {
+            score += Evaluator.value(promotion) * 16;
+        }
+        return score;
+    }
+
+    private int playableKiller(int move) {
+        if (move == 0 || Moves.key(move) == Moves.key(hashMove)) {
+            return 0;
+        }
+        int playable = find(Moves.key(move));
+        if (playable == 0 || isTactical(playable) || Moves.key(playable) == Moves.key(hashMove)) {
+            // the tactical stage already had it
+            return 0;
+        }
+        return playable;
+    }
+
+    private boolean alreadyPicked(int move) {
+        int key = Moves.key(move);
+        if (key == Moves.key(hashMove)) {
+            return true;
+        }
+        for (int i = 0; i < killer; i++) {
+            if (key == Moves.key(history.killer(ply, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks the move up among the moves of the piece it starts from, which also fills in
+     * its flags
+     *
+     * @return the move as the generator makes it, 0 if the side to move has no such move
+     */
+    private int find(int key) {
+        int from = Moves.from(key);
+        ChessPiece piece = board.getPiece(Moves.position(from));
+        if (piece == null || piece.getTeamColor() != side) {
+            return 0;
+        }
+        int count = BitboardMoveGenerator.pieceMoves(board, from, pieceMoves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Moves.key(pieceMoves[i]) == key) {
+                return pieceMoves[i];
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isTactical(int move) {
+        return Moves.isCapture(move) || Moves.promotion(move) == PieceType.QUEEN;
+    }
+}
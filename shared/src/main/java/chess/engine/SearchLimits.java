@@ -0,0 +1,51 @@
+package chess.engine;
+
+/**
+ * How far a search may go. The search stops at whichever limit it reaches first and
+ * answers with the deepest iteration it finished.
+ *
+ * @param depth  deepest iteration to run, in plies
+ * @param nodes  positions to visit before stopping, 0 for no limit
+ * @param millis wall clock time the search may take, 0 for no limit. This is a hard
+ *               deadline, the search gives up mid-iteration to meet it.
+ */
+public record SearchLimits(int depth, long nodes, long millis) {
+
+    /**
+     * Deepest iteration a search will run, whatever the limits say
+     */
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException("Node and time limits can not be negative");
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, 0);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(MAX_DEPTH, 0, millis);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+}
@@ -0,0 +1,179 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs searches for many callers on a fixed set of threads sharing one transposition
+ * table, so a burst of analysis requests queues up instead of oversubscribing the
+ * machine.
+ * <p>
+ * A search may use several threads (Lazy SMP). One thread runs the search whose
+ * answer is returned, the helpers search the same position starting at staggered
+ * depths. They do not talk to each other, but they all write to the shared table, so
+ * the main thread keeps finding results the helpers got to first. Helpers only take
+ * threads that are idle, they never wait in the queue behind other requests, and they
+ * are stopped as soon as the main thread is done.
+ * <p>
+ * With an {@link OpeningBook}, positions the book knows are answered from it without
+ * taking a thread at all. With a {@link Tablebase}, every engine scores the endings it
+ * covers exactly.
+ */
+public final class SearchPool implements AutoCloseable {
+
+    /**
+     * Searches that may wait for a thread, per thread in the pool
+     */
+    private static final int QUEUE_PER_THREAD = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final TranspositionTable table;
+    private final OpeningBook book;
+    private final int threadsPerSearch;
+    private final ThreadLocal<Engine> engines;
+
+    /**
+     * A pool with a thread per core and a default sized table, every search may use all
+     * of them
+     */
+    public SearchPool() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+                new TranspositionTable());
+    }
+
+    /**
+     * @param threads          threads in the pool, shared by all searches
+     * @param threadsPerSearch most threads one search may use, 1 for no helpers
+     * @param table            the table every search shares
+     */
+    public SearchPool(int threads, int threadsPerSearch, TranspositionTable table) {
+        this(threads, threadsPerSearch, table, null);
+    }
+
+    /**
+     * @param book consulted before every search, null for none
+     */
+    public SearchPool(int threads, int threadsPerSearch, TranspositionTable table, OpeningBook book) {
+        this(threads, threadsPerSearch, table, book, null);
+    }
+
+    /**
+     * @param book      consulted before every search, null for none
+     * @param tablebase probed by every search, null for none
+     */
+    public SearchPool(int threads, int threadsPerSearch, TranspositionTable table, OpeningBook book,
+                      Tablebase tablebase) {
+        if (threads < 1 || threadsPerSearch < 1) {
+            throw new IllegalArgumentException("A search pool needs at least one thread");
+        }
+        this.table = table;
+        this.book = book;
+        this.threadsPerSearch = Math.min(threadsPerSearch, threads);
+        this.engines = ThreadLocal.withInitial(() -> new Engine(table, null, tablebase));
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "search-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), factory);
+    }
+
+    /**
+     * Searches with as many threads as this pool allows per search
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) throws InterruptedException {
+        return search(game, limits, threadsPerSearch);
+    }
+
+    /**
+     * Searches the game's position, blocking until the limits are reached. A time limit
+     * counts from this call, time spent waiting for a free thread included.
+     *
+     * @param threads threads to use, capped at the pool's per search limit
+     * @throws RejectedExecutionException if too many searches are already waiting
+     * @throws InterruptedException       if the calling thread is interrupted, the search
+     *                                    is cancelled first
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, int threads) throws InterruptedException {
+        SearchResult booked = Engine.fromBook(book, game);
+        if (booked != null) {
+            return booked;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.millis());
+        SearchRoot root = SearchRoot.of(game);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        table.newSearch();
+        Future<SearchResult> main = executor.submit(
+                () -> engines.get().search(root, remaining(limits, deadline), 1, cancelled));
+
+        List<Future<?>> helpers = new ArrayList<>();
+        int helperCount = Math.min(Math.max(threads, 1), threadsPerSearch) - 1;
+        for (int i = 1; i <= helperCount && idleThreads() > 0; i++) {
+            int firstDepth = 1 + (i & 1);
+            try {
+                helpers.add(executor.submit(() -> engines.get().search(root,
+                        remaining(limits, deadline).withDepth(SearchLimits.MAX_DEPTH), firstDepth, cancelled)));
+            } catch (RejectedExecutionException ex) {
+                break;
+            }
+        }
+
+        try {
+            return main.get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Search failed", ex.getCause());
+        } finally {
+            cancelled.set(true);
+            main.cancel(false);
+            for (Future<?> helper : helpers) {
+                helper.cancel(false);
+            }
+        }
+    }
+
+    public TranspositionTable table() {
+        return table;
+    }
+
+    /**
+     * @return the pool's opening book, null if it has none
+     */
+    public OpeningBook book() {
+        return book;
+    }
+
+    /**
+     * Stops taking searches, the ones running finish normally
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private int idleThreads() {
+        return executor.getMaximumPoolSize() - executor.getActiveCount() - executor.getQueue().size();
+    }
+
+    private static SearchLimits remaining(SearchLimits limits, long deadline) {
+        if (limits.millis() == 0) {
+            return limits;
+        }
+        long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return limits.withMillis(Math.max(left, 1));
+    }
+}
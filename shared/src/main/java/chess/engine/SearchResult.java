@@ -0,0 +1,45 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What a search found
+ *
+ * @param principalVariation the best line for both sides, starting with the move to
+ *                           play. Empty when the side to move has no legal move.
+ * @param score              centipawns from the point of view of the side to move,
+ *                           see {@link #isMate()} for mate scores
+ * @param depth              the deepest iteration that finished, 0 if none did
+ * @param nodes              positions visited
+ * @param nanos              time spent
+ */
+public record SearchResult(List<ChessMove> principalVariation, int score, int depth, long nodes, long nanos) {
+
+    /**
+     * @return the move to play, or null if there is none
+     */
+    public ChessMove bestMove() {
+        return principalVariation.isEmpty() ? null : principalVariation.get(0);
+    }
+
+    /**
+     * @return true if the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate, positive when the side to move mates and negative when
+     * it gets mated, 0 if the score is not a mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Engine.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+}
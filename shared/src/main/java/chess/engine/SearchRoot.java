@@ -0,0 +1,20 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * What a search needs to know about a game, copied out once so several threads can
+ * start from it without touching the game
+ *
+ * @param board         the position, never moved on, each engine searches a copy
+ * @param history       keys of the positions since the last capture or pawn move
+ * @param halfmoveClock plies since the last capture or pawn move
+ * @param over          true if the game has already ended
+ */
+record SearchRoot(ChessBoard board, long[] history, int halfmoveClock, boolean over) {
+
+    static SearchRoot of(ChessGame game) {
+        return new SearchRoot(game.getBoard().clone(), game.getPositionKeys(), game.getHalfmoveClock(), game.gameOver);
+    }
+}
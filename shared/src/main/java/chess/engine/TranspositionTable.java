@@ -0,0 +1,190 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers what earlier searches found out about positions, keyed by Zobrist hash.
+ * Meant to be shared: by the iterations of one search, by several threads searching the
+ * same game and by searches for different users looking at the same game.
+ * <p>
+ * Everything lives in one flat long[] of buckets, so memory use is fixed when the
+ * table is made. A bucket holds two entries. The first one is depth-preferred and only
+ * gives way to a search at least as deep, or to anything once it is left over from an
+ * older search. The second one always takes the newest entry that did not fit in the
+ * first.
+ * <p>
+ * There are no locks. An entry is two longs, the key XORed with the data and the data
+ * itself, written one after the other. When two threads write the same entry at once
+ * the halves can come from different writes, and the XOR no longer gives back the key,
+ * so a probe sees a miss instead of another position's data.
+ */
+public final class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    /**
+     * The score is exact
+     */
+    public static final int EXACT = 1;
+    /**
+     * The search failed high, the real score is at least this
+     */
+    public static final int LOWER = 2;
+    /**
+     * The search failed low, the real score is at most this
+     */
+    public static final int UPPER = 3;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int LONGS_PER_BUCKET = 2 * LONGS_PER_ENTRY;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    /**
+     * Buckets one after the other: depth-preferred key, its data, always-replace key, its
+     * data
+     */
+    private final long[] table;
+    private final int mask;
+    private volatile int generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Hits and misses count probes, collisions count entries for one position thrown
+     * out to make room for another
+     */
+    public record Stats(long hits, long misses, long collisions) {
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param megabytes how much memory the table may use, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 1 << 14) {
+            throw new IllegalArgumentException("Table size must be between 1 MB and 16 GB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        // a Java array tops out just under 2^31 longs
+        buckets = Math.min(buckets, 1L << 28);
+        table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+        mask = (int) buckets - 1;
+    }
+
+    /**
+     * Looks a position up
+     *
+     * @return the entry's data, to be read with the static accessors, or 0 if the table
+     * knows nothing about the position
+     */
+    public long probe(long key) {
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + LONGS_PER_BUCKET; i += LONGS_PER_ENTRY) {
+            long data = table[i + 1];
+            if (data != 0L && (table[i] ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0L;
+    }
+
+    /**
+     * Records what a search found about a position
+     *
+     * @param move  the best move found as a Moves.key, or 0 if there was none
+     * @param score the score, with mates counted from this position
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int current = generation;
+        long data = pack(move, score, depth, bound, current);
+        int bucket = bucket(key);
+        long preferred = table[bucket + 1];
+        int slot;
+        if (preferred == 0L || (table[bucket] ^ preferred) == key || depth >= depth(preferred)
+                || generation(preferred) != current) {
+            slot = bucket;
+        } else {
+            slot = bucket + LONGS_PER_ENTRY;
+        }
+        long old = table[slot + 1];
+        if (old != 0L && (table[slot] ^ old) != key) {
+            collisions.increment();
+        } else if (old != 0L && move == 0) {
+            // a fail-low result has no move of its own, keep the one known before
+            data |= move(old);
+        }
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier ones give way to new
+     * results regardless of depth
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), collisions.sum());
+    }
+
+    /**
+     * @return how many entries the table holds at most
+     */
+    public int capacity() {
+        return table.length / LONGS_PER_ENTRY;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+
+    /**
+     * Bits 0-15 move, 16-31 score, 32-39 depth, 40-41 bound, 42-49 generation. The bound
+     * is never 0, so neither is a packed entry.
+     */
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) Math.min(depth, 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+    }
+
+    private int bucket(long key) {
+        return ((int) key & mask) * LONGS_PER_BUCKET;
+    }
+}
@@ -0,0 +1,103 @@
+package chess.pgn;
+
+import chess.AttackMap;
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Moves;
+import chess.San;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game of a PGN file, as text: its tags in file order, its moves in standard
+ * algebraic notation and its result. Nothing is checked until the game is replayed.
+ *
+ * @param result "1-0", "0-1", "1/2-1/2" or "*" for unknown or still going
+ */
+public record PgnGame(Map<String, String> tags, List<String> moves, String result) {
+
+    public PgnGame {
+        tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        moves = List.copyOf(moves);
+    }
+
+    /**
+     * Records moves played from a position as a game with their SAN
+     *
+     * @param start the position before the first move, left as it is
+     * @param moves legal moves in the order they were played
+     * @throws IllegalArgumentException if a move is not legal where it is played
+     */
+    public static PgnGame of(Map<String, String> tags, ChessGame start, List<ChessMove> moves, String result) {
+        Map<String, String> allTags = new LinkedHashMap<>(tags);
+        String fen = start.toFen();
+        if (!fen.equals(new ChessGame().toFen())) {
+            allTags.put("SetUp", "1");
+            allTags.put("FEN", fen);
+        }
+        allTags.put("Result", result);
+        ChessBoard board = start.getBoard().clone();
+        List<String> san = new ArrayList<>(moves.size());
+        for (ChessMove move : moves) {
+            int packed = legalMove(board, move);
+            san.add(San.format(board, packed));
+            board.makeMove(packed);
+        }
+        return new PgnGame(allTags, san, result);
+    }
+
+    /**
+     * @return the tag's value, null if the game does not have it
+     */
+    public String tag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return the position the game starts from, the FEN tag's if it has one
+     * @throws IllegalArgumentException if the FEN tag is not a FEN
+     */
+    public ChessGame startingPosition() {
+        String fen = tags.get("FEN");
+        return fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+    }
+
+    /**
+     * Plays the moves out with every rule applied, so the game comes back with its
+     * status, draw and move counters as if it had been played here
+     *
+     * @throws IllegalArgumentException naming the move if one is not legal
+     */
+    public ChessGame replay() {
+        ChessGame game = startingPosition();
+        for (String san : moves) {
+            try {
+                game.makeMove(Moves.toChessMove(San.parse(game.getBoard(), san)));
+            } catch (IllegalArgumentException | InvalidMoveException ex) {
+                String number = game.getFullmoveNumber() + (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? ". " : "... ");
+                throw new IllegalArgumentException("Move " + number + san + " can't be played", ex);
+            }
+        }
+        return game;
+    }
+
+    private static int legalMove(ChessBoard board, ChessMove move) {
+        int key = Moves.key(Moves.of(move));
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, board.getTeamTurn(), moves, 0);
+        AttackMap attackMap = AttackMap.of(board, board.getTeamTurn());
+        for (int i = 0; i < count; i++) {
+            if (Moves.key(moves[i]) == key && attackMap.isLegal(moves[i])) {
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException("Not a legal move: " + move);
+    }
+}
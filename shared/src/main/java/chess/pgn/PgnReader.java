@@ -0,0 +1,324 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Reads PGN files a game at a time, so an archive of any size takes no more memory
+ * than its longest game. Comments, variations, annotation glyphs and escaped lines are
+ * skipped; move numbers may be glued to the moves ("12.e4"). A game ends at its result
+ * ("1-0", "0-1", "1/2-1/2" or "*"), or where the next game's tags start if the result
+ * is missing. The moves are not checked here, see {@link PgnGame#replay()}.
+ * <p>
+ * Reading the text is cheap next to replaying the moves, so {@link #forEach(int, Consumer)}
+ * reads on the calling thread and hands batches of games to worker threads.
+ */
+public final class PgnReader implements Closeable {
+
+    /**
+     * Games per task handed to a worker thread
+     */
+    static final int BATCH = 256;
+    /**
+     * Batches that may wait for a worker thread, per thread
+     */
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private static final Set<String> RESULTS = Set.of("1-0", "0-1", "1/2-1/2", "*");
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private final StringBuilder token = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean lineStart = true;
+    private long games;
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next game, null at the end of the input
+     */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+        String result = null;
+        int c;
+        while ((c = peek()) >= 0) {
+            if (c == '%' && lineStart) {
+                skipLine();
+            } else if (Character.isWhitespace(c)) {
+                read();
+            } else if (c == '[') {
+                if (!moves.isEmpty()) {
+                    // the next game's tags, this one never gave its result
+                    break;
+                }
+                read();
+                readTag(tags);
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == ';') {
+                skipLine();
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readSymbol();
+            } else {
+                String word = readSymbol();
+                if (RESULTS.contains(word)) {
+                    result = word;
+                    break;
+                }
+                String move = withoutMoveNumber(word);
+                if (!move.isEmpty()) {
+                    moves.add(move);
+                }
+            }
+        }
+        if (result == null) {
+            if (tags.isEmpty() && moves.isEmpty()) {
+                return null;
+            }
+            result = tags.getOrDefault("Result", "*");
+        }
+        games++;
+        return new PgnGame(tags, moves, result);
+    }
+
+    /**
+     * @return games read so far
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * Reads every remaining game and runs the action on each, spread over worker
+     * threads in batches. Reading stops waiting for the workers when enough batches are
+     * queued, and runs a batch itself instead, so memory stays bounded however fast the
+     * file reads. Games are not handed to the action in file order.
+     *
+     * @param threads worker threads, 1 runs everything on the calling thread
+     * @param action  called from several threads at once
+     * @return the number of games read
+     * @throws RuntimeException the first exception the action threw, after the rest of
+     *                          the file was skipped
+     */
+    public long forEach(int threads, Consumer<? super PgnGame> action) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Reading needs at least one thread");
+        }
+        long start = games;
+        if (threads == 1) {
+            for (PgnGame game = next(); game != null; game = next()) {
+                action.accept(game);
+            }
+            return games - start;
+        }
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), task -> {
+                    Thread thread = new Thread(task, "pgn-reader");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            List<PgnGame> batch = new ArrayList<>(BATCH);
+            for (PgnGame game = next(); game != null && failure.get() == null; game = next()) {
+                batch.add(game);
+                if (batch.size() == BATCH) {
+                    executor.execute(task(batch, action, failure));
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty()) {
+                executor.execute(task(batch, action, failure));
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return games - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static Runnable task(List<PgnGame> batch, Consumer<? super PgnGame> action,
+                                 AtomicReference<RuntimeException> failure) {
+        return () -> {
+            try {
+                for (PgnGame game : batch) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    action.accept(game);
+                }
+            } catch (RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+            }
+        };
+    }
+
+    /**
+     * Reads the rest of a tag pair after its "[": a name, a quoted value with \" and \\
+     * escapes, and the "]"
+     */
+    private void readTag(Map<String, String> tags) throws IOException {
+        skipSpaces();
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            token.append((char) read());
+        }
+        String name = token.toString();
+        skipSpaces();
+        token.setLength(0);
+        if (peek() == '"') {
+            read();
+            while ((c = read()) >= 0 && c != '"' && c != '\n') {
+                if (c == '\\') {
+                    c = read();
+                }
+                if (c >= 0) {
+                    token.append((char) c);
+                }
+            }
+        }
+        while ((c = read()) >= 0 && c != ']' && c != '\n') {
+            // whatever is left of a malformed tag
+        }
+        if (!name.isEmpty()) {
+            tags.put(name, token.toString());
+        }
+    }
+
+    /**
+     * @return the run of characters up to the next space or PGN delimiter
+     */
+    private String readSymbol() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "[]{}();".indexOf(c) < 0) {
+            token.append((char) read());
+        }
+        if (token.isEmpty()) {
+            // a stray "]" or ")"
+            read();
+        }
+        return token.toString();
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '}') {
+            // comments do not nest
+        }
+    }
+
+    /**
+     * Skips a variation, which may hold comments and further variations
+     */
+    private void skipVariation() throws IOException {
+        read();
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = peek()) >= 0) {
+            if (c == '{') {
+                skipComment();
+                continue;
+            }
+            if (c == ';') {
+                skipLine();
+                continue;
+            }
+            read();
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            // up to the end of the line
+        }
+    }
+
+    private void skipSpaces() throws IOException {
+        while (peek() == ' ' || peek() == '\t') {
+            read();
+        }
+    }
+
+    /**
+     * Strips a move number, "12." or "12...", which may be glued to the move
+     */
+    private static String withoutMoveNumber(String word) {
+        int digits = 0;
+        while (digits < word.length() && Character.isDigit(word.charAt(digits))) {
+            digits++;
+        }
+        int start = digits;
+        while (start < word.length() && word.charAt(start) == '.') {
+            start++;
+        }
+        // "0-0" starts with a digit too, only a number followed by dots is a move number
+        return start > digits || (digits == 0 && start > 0) ? word.substring(start) : word;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        lineStart = c == '\n';
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
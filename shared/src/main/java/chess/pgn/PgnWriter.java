@@ -0,0 +1,108 @@
+package chess.pgn;
+
+import chess.ChessGame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games in PGN export format: the seven standard tags first and in their order,
+ * with "?" for the unknown ones, then the game's other tags, a blank line and the moves
+ * with their numbers, wrapped before 80 columns and ending with the result.
+ */
+public final class PgnWriter {
+
+    private static final List<String> SEVEN_TAG_ROSTER = List.of("Event", "Site", "Date", "Round", "White",
+            "Black", "Result");
+    private static final int LINE_LENGTH = 79;
+
+    private final Writer out;
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a game followed by a blank line, so games can be written one after another
+     */
+    public void write(PgnGame game) throws IOException {
+        out.write(format(game));
+        out.write('\n');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * @return the game as PGN text ending with a line break
+     */
+    public static String format(PgnGame game) {
+        StringBuilder pgn = new StringBuilder(256 + game.moves().size() * 6);
+        Map<String, String> tags = game.tags();
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? game.result() : tags.get(name);
+            if (value == null) {
+                value = name.equals("Date") ? "????.??.??" : "?";
+            }
+            appendTag(pgn, name, value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!SEVEN_TAG_ROSTER.contains(tag.getKey())) {
+                appendTag(pgn, tag.getKey(), tag.getValue());
+            }
+        }
+        pgn.append('\n');
+
+        ChessGame start = game.startingPosition();
+        int number = start.getFullmoveNumber();
+        boolean white = start.getTeamTurn() == ChessGame.TeamColor.WHITE;
+        int lineStart = pgn.length();
+        boolean first = true;
+        for (String move : game.moves()) {
+            if (white) {
+                lineStart = appendWord(pgn, lineStart, number + ".");
+            } else if (first) {
+                lineStart = appendWord(pgn, lineStart, number + "...");
+            }
+            lineStart = appendWord(pgn, lineStart, move);
+            if (!white) {
+                number++;
+            }
+            white = !white;
+            first = false;
+        }
+        appendWord(pgn, lineStart, game.result());
+        return pgn.append('\n').toString();
+    }
+
+    private static void appendTag(StringBuilder pgn, String name, String value) {
+        pgn.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                pgn.append('\\');
+            }
+            pgn.append(c);
+        }
+        pgn.append("\"]\n");
+    }
+
+    /**
+     * @return where the current line starts after adding the word
+     */
+    private static int appendWord(StringBuilder pgn, int lineStart, String word) {
+        if (pgn.length() > lineStart) {
+            if (pgn.length() - lineStart + 1 + word.length() > LINE_LENGTH) {
+                pgn.append('\n');
+                lineStart = pgn.length();
+            } else {
+                pgn.append(' ');
+            }
+        }
+        pgn.append(word);
+        return lineStart;
+    }
+}
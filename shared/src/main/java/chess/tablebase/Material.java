@@ -0,0 +1,134 @@
+package chess.tablebase;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * The pieces of an ending, named the usual way: "KQvKR" is king and queen against king
+ * and rook, white's pieces before the "v". A table lists its pieces in a fixed order,
+ * each side's king first and then queens, rooks, bishops, knights and pawns, which is
+ * also the order squares are combined into an index.
+ */
+final class Material {
+
+    static final PieceType[] ORDER = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT,
+            PieceType.PAWN};
+    private static final String LETTERS = "QRBNP";
+
+    final String name;
+    final TeamColor[] colors;
+    final PieceType[] types;
+    /**
+     * Four bits of count per color and non-king type, white in the low bits
+     */
+    final long key;
+
+    private Material(int[] counts) {
+        int size = 2;
+        for (int count : counts) {
+            size += count;
+        }
+        colors = new TeamColor[size];
+        types = new PieceType[size];
+        StringBuilder builder = new StringBuilder();
+        int i = 0;
+        for (int color = 0; color < 2; color++) {
+            TeamColor team = color == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+            builder.append(color == 0 ? "K" : "vK");
+            colors[i] = team;
+            types[i++] = PieceType.KING;
+            for (int k = 0; k < ORDER.length; k++) {
+                for (int n = 0; n < counts[color * ORDER.length + k]; n++) {
+                    builder.append(LETTERS.charAt(k));
+                    colors[i] = team;
+                    types[i++] = ORDER[k];
+                }
+            }
+        }
+        name = builder.toString();
+        key = key(counts);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is not two sides each starting with
+     *                                  a king
+     */
+    static Material parse(String name) {
+        String[] sides = name.split("v");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Not an ending: " + name);
+        }
+        int[] counts = new int[2 * ORDER.length];
+        for (int color = 0; color < 2; color++) {
+            for (int i = 1; i < sides[color].length(); i++) {
+                int k = LETTERS.indexOf(sides[color].charAt(i));
+                if (k < 0) {
+                    throw new IllegalArgumentException("Not an ending: " + name);
+                }
+                counts[color * ORDER.length + k]++;
+            }
+        }
+        return new Material(counts);
+    }
+
+    /**
+     * @param counts pieces per color and type, indexed color * 5 + index in ORDER
+     */
+    static Material of(int[] counts) {
+        return new Material(counts);
+    }
+
+    static long key(int[] counts) {
+        long key = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            key |= (long) counts[i] << (4 * i);
+        }
+        return key;
+    }
+
+    /**
+     * @return the key of the same pieces with the colors swapped
+     */
+    static long mirror(long key) {
+        long white = key & ((1L << (4 * ORDER.length)) - 1);
+        return (key >>> (4 * ORDER.length)) | (white << (4 * ORDER.length));
+    }
+
+    static int orderIndex(PieceType type) {
+        for (int k = 0; k < ORDER.length; k++) {
+            if (ORDER[k] == type) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException("Kings are not counted");
+    }
+
+    int size() {
+        return types.length;
+    }
+
+    /**
+     * @return positions in a table of this material, both sides to move
+     */
+    long positions() {
+        return 2L << (6 * size());
+    }
+
+    /**
+     * @return the counts this material was made from
+     */
+    int[] counts() {
+        int[] counts = new int[2 * ORDER.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != PieceType.KING) {
+                counts[(colors[i] == TeamColor.WHITE ? 0 : ORDER.length) + orderIndex(types[i])]++;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,123 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One ending's table on disk, mapped into memory. After a fixed header
+ * <pre>
+ *   int magic "CHTB", int version, int pieces, int bits per entry, int largest code,
+ *   8 bytes material name (ASCII, zero padded), 4 bytes padding
+ * </pre>
+ * come the entries, one per index, packed into big-endian longs with as few bits as
+ * the largest code needs: entry i starts at bit i * bits, counted from the low bit of
+ * the first long. An entry is 0 for a draw (or a position that can not happen) and
+ * otherwise the plies to mate plus one, see {@link Tablebase#probeCode}.
+ */
+final class TableFile {
+
+    static final int MAGIC = 0x43485442;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int NAME_BYTES = 8;
+
+    final Material material;
+    final int maxCode;
+    private final ByteBuffer data;
+    private final int bits;
+    private final long mask;
+
+    private TableFile(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tablebase file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(4));
+        }
+        byte[] name = new byte[NAME_BYTES];
+        buffer.get(20, name);
+        int length = 0;
+        while (length < NAME_BYTES && name[length] != 0) {
+            length++;
+        }
+        try {
+            material = Material.parse(new String(name, 0, length, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Tablebase file has no valid material", ex);
+        }
+        bits = buffer.getInt(12);
+        maxCode = buffer.getInt(16);
+        if (buffer.getInt(8) != material.size() || bits < 1 || bits > 16 || maxCode >= 1 << bits) {
+            throw new IOException("Tablebase header for " + material + " is inconsistent");
+        }
+        long longs = (material.positions() * bits + 63) / 64;
+        if (buffer.capacity() != HEADER_BYTES + longs * 8) {
+            throw new IOException("Tablebase file for " + material + " is truncated");
+        }
+        data = buffer.slice(HEADER_BYTES, (int) (longs * 8));
+        mask = (1L << bits) - 1;
+    }
+
+    static TableFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tablebase file is too big to map: " + path);
+            }
+            return new TableFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Packs codes, one byte each read as unsigned, and writes them as a table
+     */
+    static void write(Path path, Material material, byte[] codes) throws IOException {
+        int maxCode = 0;
+        for (byte code : codes) {
+            maxCode = Math.max(maxCode, code & 0xFF);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxCode));
+        long longs = ((long) codes.length * bits + 63) / 64;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + longs * 8));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(material.size()).putInt(bits).putInt(maxCode);
+        buffer.put(material.name.getBytes(StandardCharsets.US_ASCII));
+        long word = 0L;
+        int filled = 0;
+        buffer.position(HEADER_BYTES);
+        for (byte b : codes) {
+            long code = b & 0xFF;
+            word |= code << filled;
+            filled += bits;
+            if (filled >= 64) {
+                buffer.putLong(word);
+                filled -= 64;
+                // what did not fit in the last long starts the next one
+                word = filled == 0 ? 0L : code >>> (bits - filled);
+            }
+        }
+        if (filled > 0) {
+            buffer.putLong(word);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    int code(long index) {
+        long bit = index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = data.getLong(word * 8) >>> shift;
+        if (shift + bits > 64) {
+            value |= data.getLong(word * 8 + 8) << (64 - shift);
+        }
+        return (int) (value & mask);
+    }
+}
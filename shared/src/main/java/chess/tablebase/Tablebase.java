@@ -0,0 +1,218 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact values for endings with few pieces, read from the tables
+ * {@link TablebaseGenerator} writes. Every table file in a directory is mapped into
+ * memory when the tablebase is opened, a probe then reads a few bits from the table of
+ * the position's material.
+ * <p>
+ * A table covers its material with either color: the tables for king and rook against
+ * king answer for black's rook too, by looking at the board upside down with the colors
+ * swapped. Positions where castling or an en passant capture is still possible are not
+ * in any table. The values ignore the fifty-move rule. Safe to share between threads.
+ */
+public final class Tablebase {
+
+    /**
+     * File name ending of table files, the rest of the name is the material
+     */
+    public static final String EXTENSION = ".tb";
+
+    private static final TeamColor[] WHITE_FIRST = {TeamColor.WHITE, TeamColor.BLACK};
+    private static final TeamColor[] BLACK_FIRST = {TeamColor.BLACK, TeamColor.WHITE};
+
+    private volatile TableFile[] tables = new TableFile[0];
+    private volatile int maxPieces = 2;
+
+    Tablebase() {
+    }
+
+    /**
+     * Maps every table file in the directory
+     *
+     * @throws IOException if the directory or one of its tables can't be read
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Tablebase tablebase = new Tablebase();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                tablebase.add(TableFile.open(file));
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * @return the most pieces, kings included, of any ending this tablebase has
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the names of the endings this tablebase has, like "KRvK"
+     */
+    public List<String> endings() {
+        List<String> names = new ArrayList<>();
+        for (TableFile table : tables) {
+            names.add(table.material.name);
+        }
+        return names;
+    }
+
+    /**
+     * @return the position's exact value, null if no table covers it
+     */
+    public TablebaseResult probe(ChessBoard board) {
+        int code = probeCode(board);
+        return code < 0 ? null : TablebaseResult.of(code);
+    }
+
+    /**
+     * The allocation free probe for searches
+     *
+     * @return -1 if no table covers the position, 0 for a draw and otherwise the plies
+     * to mate plus one. An odd number of plies means the side to move mates, an even
+     * number that it gets mated, 0 plies that it is mated already.
+     */
+    public int probeCode(ChessBoard board) {
+        if (board.pieceCount() > maxPieces || board.hasCastlingRights() || board.hasEnPassantCapture()) {
+            return -1;
+        }
+        long key = materialKey(board);
+        if (key == 0L) {
+            // bare kings
+            return 0;
+        }
+        boolean mirrored = false;
+        TableFile table = find(key);
+        if (table == null) {
+            table = find(Material.mirror(key));
+            mirrored = true;
+        }
+        if (table == null) {
+            return -1;
+        }
+        int flip = mirrored ? 56 : 0;
+        TeamColor first = mirrored ? TeamColor.BLACK : TeamColor.WHITE;
+        long index = board.getTeamTurn() == first ? 0 : 1;
+        for (TeamColor team : first == TeamColor.WHITE ? WHITE_FIRST : BLACK_FIRST) {
+            index = (index << 6) | (Long.numberOfTrailingZeros(board.pieces(team, PieceType.KING)) ^ flip);
+            for (PieceType type : Material.ORDER) {
+                long bits = board.pieces(team, type);
+                while (bits != 0L) {
+                    index = (index << 6) | (Long.numberOfTrailingZeros(bits) ^ flip);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return table.code(index);
+    }
+
+    /**
+     * @return true if a table covers the position's material and nobody can win with
+     * it from any position, like a lone knight against a king
+     */
+    public boolean isDeadDraw(ChessBoard board) {
+        if (probeCode(board) != 0) {
+            return false;
+        }
+        long key = materialKey(board);
+        if (key == 0L) {
+            return true;
+        }
+        TableFile table = find(key);
+        if (table == null) {
+            table = find(Material.mirror(key));
+        }
+        return table != null && table.maxCode == 0;
+    }
+
+    /**
+     * Looks up a position given as a list of pieces in any order, for the generator
+     *
+     * @return the code as in {@link #probeCode}, -1 if no table covers the material
+     */
+    int code(TeamColor[] colors, PieceType[] types, int[] squares, int count, TeamColor side) {
+        int[] counts = new int[2 * Material.ORDER.length];
+        for (int i = 0; i < count; i++) {
+            if (types[i] != PieceType.KING) {
+                counts[(colors[i] == TeamColor.WHITE ? 0 : Material.ORDER.length) + Material.orderIndex(types[i])]++;
+            }
+        }
+        long key = Material.key(counts);
+        if (key == 0L) {
+            return 0;
+        }
+        boolean mirrored = false;
+        TableFile table = find(key);
+        if (table == null) {
+            table = find(Material.mirror(key));
+            mirrored = true;
+        }
+        if (table == null) {
+            return -1;
+        }
+        int flip = mirrored ? 56 : 0;
+        TeamColor first = mirrored ? TeamColor.BLACK : TeamColor.WHITE;
+        long index = side == first ? 0 : 1;
+        for (TeamColor team : first == TeamColor.WHITE ? WHITE_FIRST : BLACK_FIRST) {
+            for (int t = -1; t < Material.ORDER.length; t++) {
+                PieceType type = t < 0 ? PieceType.KING : Material.ORDER[t];
+                for (int i = 0; i < count; i++) {
+                    if (colors[i] == team && types[i] == type) {
+                        index = (index << 6) | (squares[i] ^ flip);
+                    }
+                }
+            }
+        }
+        return table.code(index);
+    }
+
+    /**
+     * @return true if there is a table for the material, with either color
+     */
+    boolean has(Material material) {
+        return find(material.key) != null || find(Material.mirror(material.key)) != null;
+    }
+
+    synchronized void add(TableFile table) {
+        TableFile[] grown = Arrays.copyOf(tables, tables.length + 1);
+        grown[tables.length] = table;
+        tables = grown;
+        maxPieces = Math.max(maxPieces, table.material.size());
+    }
+
+    private static long materialKey(ChessBoard board) {
+        long key = 0L;
+        for (int color = 0; color < 2; color++) {
+            TeamColor team = color == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+            for (int k = 0; k < Material.ORDER.length; k++) {
+                key |= (long) Long.bitCount(board.pieces(team, Material.ORDER[k]))
+                        << (4 * (color * Material.ORDER.length + k));
+            }
+        }
+        return key;
+    }
+
+    private TableFile find(long key) {
+        for (TableFile table : tables) {
+            if (table.material.key == key) {
+                return table;
+            }
+        }
+        return null;
+    }
+}
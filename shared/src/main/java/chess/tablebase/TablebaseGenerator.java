@@ -0,0 +1,484 @@
+package chess.tablebase;
+
+import chess.BitboardMoveGenerator;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves endings by retrograde analysis and writes their tables to a directory, see
+ * {@link Tablebase} for reading them.
+ * <p>
+ * A table has an entry for every placement of its pieces with either side to move,
+ * with no symmetry folding, so four pieces take 2 * 64^4 entries. Solving starts from
+ * the positions one move decides: checkmates, and moves that capture or promote into a
+ * smaller ending, which is solved first. From there it works backwards one ply at a
+ * time, un-making moves: a position that can move to a loss for the opponent is a win
+ * one ply longer, a position whose every move goes to a win for the opponent is lost
+ * one ply after the longest of them. Whatever is left when nothing changes any more is
+ * a draw. Castling and en passant are left out, the tables do not cover positions where
+ * they are possible.
+ * <p>
+ * Run main to build tables from the command line:
+ * <pre>
+ *   TablebaseGenerator directory [ending...]
+ * </pre>
+ * Without endings it builds every three piece ending. Four piece endings such as KQvKR
+ * take a few hundred megabytes of memory and some time each.
+ */
+public final class TablebaseGenerator {
+
+    public static final int MAX_PIECES = 4;
+    public static final List<String> THREE_PIECE_ENDINGS = List.of("KQvK", "KRvK", "KBvK", "KNvK", "KPvK");
+
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP,
+            PieceType.KNIGHT};
+    private static final byte ILLEGAL = -1;
+    /**
+     * Exit entry of a position whose best capture or promotion draws, 0 means it has
+     * none
+     */
+    private static final int EXIT_DRAW = 0xFF;
+
+    private final Path directory;
+    private final Tablebase known;
+
+    /**
+     * @param directory where tables are written, tables already there are used instead
+     *                  of being solved again
+     */
+    public TablebaseGenerator(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        known = Tablebase.open(directory);
+    }
+
+    /**
+     * Solves an ending and every smaller ending it can turn into, skipping those that
+     * already have a table
+     *
+     * @param ending material like "KRvK", white's pieces first
+     * @throws IllegalArgumentException if the name is not an ending of at most
+     *                                  {@link #MAX_PIECES} pieces
+     */
+    public void generate(String ending) throws IOException {
+        generate(Material.parse(ending));
+    }
+
+    /**
+     * @return the tables in the directory, including the ones solved by this generator
+     */
+    public Tablebase tablebase() {
+        return known;
+    }
+
+    private void generate(Material material) throws IOException {
+        if (material.size() > MAX_PIECES) {
+            throw new IllegalArgumentException(material + " has more than " + MAX_PIECES + " pieces");
+        }
+        if (material.size() == 2 || known.has(material)) {
+            return;
+        }
+        for (Material child : children(material)) {
+            generate(child);
+        }
+        Path file = directory.resolve(material.name + Tablebase.EXTENSION);
+        TableFile.write(file, material, new Solver(material).solve());
+        known.add(TableFile.open(file));
+    }
+
+    /**
+     * @return the endings one capture or promotion away
+     */
+    private static List<Material> children(Material material) {
+        int[] counts = material.counts();
+        List<Material> children = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            counts[i]--;
+            children.add(Material.of(counts));
+            boolean pawn = i % Material.ORDER.length == Material.ORDER.length - 1;
+            if (pawn) {
+                int side = i / Material.ORDER.length * Material.ORDER.length;
+                for (int k = 0; k < PROMOTIONS.length; k++) {
+                    counts[side + Material.orderIndex(PROMOTIONS[k])]++;
+                    children.add(Material.of(counts));
+                    // promoting with a capture
+                    int enemy = Material.ORDER.length - side;
+                    for (int j = enemy; j < enemy + Material.ORDER.length; j++) {
+                        if (counts[j] > 0) {
+                            counts[j]--;
+                            children.add(Material.of(counts));
+                            counts[j]++;
+                        }
+                    }
+                    counts[side + Material.orderIndex(PROMOTIONS[k])]--;
+                }
+            }
+            counts[i]++;
+        }
+        return children;
+    }
+
+    /**
+     * Working state for one table. Entries are bytes: the code of a solved position,
+     * the number of moves not yet known to lose and the best capture or promotion.
+     */
+    private final class Solver {
+        private final Material material;
+        private final int pieces;
+        private final TeamColor[] colors;
+        private final PieceType[] types;
+        private final int blackKing;
+        private final byte[] codes;
+        private final byte[] counters;
+        private final byte[] exits;
+        private final int[] squares;
+        private final TeamColor[] childColors;
+        private final PieceType[] childTypes;
+        private final int[] childSquares;
+        private int deepest;
+
+        Solver(Material material) {
+            this.material = material;
+            pieces = material.size();
+            colors = material.colors;
+            types = material.types;
+            int king = 1;
+            while (colors[king] != TeamColor.BLACK) {
+                king++;
+            }
+            blackKing = king;
+            int size = (int) material.positions();
+            codes = new byte[size];
+            counters = new byte[size];
+            exits = new byte[size];
+            squares = new int[pieces];
+            childColors = new TeamColor[pieces];
+            childTypes = new PieceType[pieces];
+            childSquares = new int[pieces];
+        }
+
+        byte[] solve() {
+            for (int index = 0; index < codes.length; index++) {
+                examine(index);
+            }
+            for (int level = 0; level <= deepest; level++) {
+                int code = level + 1;
+                if (code >= EXIT_DRAW) {
+                    throw new IllegalStateException(material + " has mates too long for the table format");
+                }
+                if (level % 2 == 1) {
+                    // wins by a capture or promotion stand unless a quicker one turned up
+                    for (int index = 0; index < codes.length; index++) {
+                        if (codes[index] == 0 && counters[index] != ILLEGAL && (exits[index] & 0xFF) == code) {
+                            codes[index] = (byte) code;
+                        }
+                    }
+                }
+                for (int index = 0; index < codes.length; index++) {
+                    if ((codes[index] & 0xFF) == code) {
+                        retract(index, level);
+                    }
+                }
+            }
+            for (int index = 0; index < codes.length; index++) {
+                if (counters[index] == ILLEGAL) {
+                    codes[index] = 0;
+                }
+            }
+            return codes;
+        }
+
+        /**
+         * First look at a position: is it legal, is it mate, how many moves stay in this
+         * ending and where do the others lead
+         */
+        private void examine(int index) {
+            TeamColor side = decode(index);
+            TeamColor other = opponent(side);
+            if (!legal(side)) {
+                counters[index] = ILLEGAL;
+                return;
+            }
+            int stays = 0;
+            int bestExit = 0;
+            boolean anyMove = false;
+            for (int i = 0; i < pieces; i++) {
+                if (colors[i] != side) {
+                    continue;
+                }
+                int from = squares[i];
+                long targets = targets(i, side);
+                while (targets != 0L) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int captured = pieceOn(to);
+                    squares[i] = to;
+                    if (!attacked(squares[king(side)], other, captured)) {
+                        anyMove = true;
+                        boolean promotes = types[i] == PieceType.PAWN && (to >> 3 == 0 || to >> 3 == 7);
+                        if (captured < 0 && !promotes) {
+                            stays++;
+                        } else if (promotes) {
+                            for (PieceType promotion : PROMOTIONS) {
+                                bestExit = better(bestExit, exitCode(i, promotion, captured, other));
+                            }
+                        } else {
+                            bestExit = better(bestExit, exitCode(i, types[i], captured, other));
+                        }
+                    }
+                    squares[i] = from;
+                }
+            }
+            if (!anyMove) {
+                // mated, or stalemate which is a draw and needs nothing
+                if (attacked(squares[king(side)], other, -1)) {
+                    codes[index] = 1;
+                }
+                return;
+            }
+            counters[index] = (byte) stays;
+            exits[index] = (byte) bestExit;
+            if (bestExit != 0 && bestExit != EXIT_DRAW) {
+                deepest = Math.max(deepest, bestExit - 1);
+                if (stays == 0 && (bestExit - 1) % 2 == 0) {
+                    // every move leaves the ending and all of them lose
+                    codes[index] = (byte) bestExit;
+                }
+            }
+        }
+
+        /**
+         * Walks back from a position solved at the given level to the positions that can
+         * move to it
+         */
+        private void retract(int index, int level) {
+            TeamColor side = decode(index);
+            TeamColor mover = opponent(side);
+            long occupied = occupied(-1);
+            for (int i = 0; i < pieces; i++) {
+                if (colors[i] != mover) {
+                    continue;
+                }
+                int to = squares[i];
+                long sources;
+                if (types[i] == PieceType.PAWN) {
+                    sources = pawnSources(to, mover, occupied);
+                } else {
+                    sources = BitboardMoveGenerator.attacks(mover, types[i], to, occupied) & ~occupied;
+                }
+                while (sources != 0L) {
+                    squares[i] = Long.numberOfTrailingZeros(sources);
+                    sources &= sources - 1;
+                    if (!attacked(squares[king(side)], mover, -1)) {
+                        solvedChild(encode(mover), level);
+                    }
+                }
+                squares[i] = to;
+            }
+        }
+
+        /**
+         * A position with a move to a position just solved at the given level
+         */
+        private void solvedChild(int parent, int level) {
+            if (codes[parent] != 0 || counters[parent] == ILLEGAL) {
+                return;
+            }
+            if (level % 2 == 0) {
+                // the child's side to move is lost, so moving there wins
+                codes[parent] = (byte) (level + 2);
+                deepest = Math.max(deepest, level + 1);
+                return;
+            }
+            if (counters[parent] <= 0 || --counters[parent] > 0) {
+                return;
+            }
+            int exit = exits[parent] & 0xFF;
+            if (exit == 0 || (exit != EXIT_DRAW && (exit - 1) % 2 == 0)) {
+                // every move loses, the longest way is the one to take
+                int plies = Math.max(level + 1, exit == 0 ? 0 : exit - 1);
+                codes[parent] = (byte) (plies + 1);
+                deepest = Math.max(deepest, plies);
+            }
+        }
+
+        /**
+         * @return the code, from the mover's side, of moving piece i (now standing on its
+         * target) as the given type after capturing piece captured
+         */
+        private int exitCode(int i, PieceType type, int captured, TeamColor other) {
+            int count = 0;
+            for (int j = 0; j < pieces; j++) {
+                if (j != captured) {
+                    childColors[count] = colors[j];
+                    childTypes[count] = j == i ? type : types[j];
+                    childSquares[count] = squares[j];
+                    count++;
+                }
+            }
+            int child = known.code(childColors, childTypes, childSquares, count, other);
+            if (child < 0) {
+                throw new IllegalStateException("No table for an ending " + material + " turns into");
+            }
+            return child == 0 ? EXIT_DRAW : child + 1;
+        }
+
+        private long targets(int i, TeamColor side) {
+            long occupied = occupied(-1);
+            long own = 0L;
+            for (int j = 0; j < pieces; j++) {
+                if (colors[j] == side) {
+                    own |= 1L << squares[j];
+                }
+            }
+            int from = squares[i];
+            if (types[i] != PieceType.PAWN) {
+                return BitboardMoveGenerator.attacks(side, types[i], from, occupied) & ~own;
+            }
+            long targets = BitboardMoveGenerator.attacks(side, PieceType.PAWN, from, occupied) & occupied & ~own;
+            int forward = side == TeamColor.WHITE ? 8 : -8;
+            int push = from + forward;
+            if ((occupied & (1L << push)) == 0L) {
+                targets |= 1L << push;
+                int startRank = side == TeamColor.WHITE ? 1 : 6;
+                if (from >> 3 == startRank && (occupied & (1L << (push + forward))) == 0L) {
+                    targets |= 1L << (push + forward);
+                }
+            }
+            return targets;
+        }
+
+        private long pawnSources(int to, TeamColor mover, long occupied) {
+            int back = mover == TeamColor.WHITE ? -8 : 8;
+            int from = to + back;
+            int rank = from >> 3;
+            if (rank < 1 || rank > 6 || (occupied & (1L << from)) != 0L) {
+                return 0L;
+            }
+            long sources = 1L << from;
+            int doubleStepRank = mover == TeamColor.WHITE ? 3 : 4;
+            if (to >> 3 == doubleStepRank && (occupied & (1L << (from + back))) == 0L) {
+                sources |= 1L << (from + back);
+            }
+            return sources;
+        }
+
+        private boolean legal(TeamColor side) {
+            long seen = 0L;
+            for (int i = 0; i < pieces; i++) {
+                long bit = 1L << squares[i];
+                if ((seen & bit) != 0L) {
+                    return false;
+                }
+                seen |= bit;
+                if (types[i] == PieceType.PAWN && (squares[i] >> 3 == 0 || squares[i] >> 3 == 7)) {
+                    return false;
+                }
+            }
+            // the side that just moved can not have left its king in check
+            return !attacked(squares[king(opponent(side))], side, -1);
+        }
+
+        /**
+         * @param removed a piece to leave out, one that was just captured, or -1
+         */
+        private boolean attacked(int target, TeamColor by, int removed) {
+            long occupied = occupied(removed);
+            for (int i = 0; i < pieces; i++) {
+                if (i != removed && colors[i] == by
+                        && (BitboardMoveGenerator.attacks(by, types[i], squares[i], occupied) & (1L << target)) != 0L) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long occupied(int removed) {
+            long occupied = 0L;
+            for (int i = 0; i < pieces; i++) {
+                if (i != removed) {
+                    occupied |= 1L << squares[i];
+                }
+            }
+            return occupied;
+        }
+
+        /**
+         * @return the piece standing on sq other than one just moved there, or -1
+         */
+        private int pieceOn(int sq) {
+            for (int i = 0; i < pieces; i++) {
+                if (squares[i] == sq) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int king(TeamColor color) {
+            return color == TeamColor.WHITE ? 0 : blackKing;
+        }
+
+        private TeamColor decode(int index) {
+            for (int i = pieces - 1; i >= 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            return index == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+        }
+
+        private int encode(TeamColor side) {
+            int index = side == TeamColor.WHITE ? 0 : 1;
+            for (int i = 0; i < pieces; i++) {
+                index = (index << 6) | squares[i];
+            }
+            return index;
+        }
+    }
+
+    /**
+     * @return whichever exit is better for the side choosing between them
+     */
+    private static int better(int a, int b) {
+        return rank(a) >= rank(b) ? a : b;
+    }
+
+    private static int rank(int exit) {
+        if (exit == 0) {
+            return Integer.MIN_VALUE;
+        }
+        if (exit == EXIT_DRAW) {
+            return 0;
+        }
+        int plies = exit - 1;
+        return plies % 2 == 1 ? 1000 - plies : -1000 + plies;
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TablebaseGenerator <directory> [ending...]");
+            System.exit(2);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]));
+        List<String> endings = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : THREE_PIECE_ENDINGS;
+        for (String ending : endings) {
+            long start = System.nanoTime();
+            generator.generate(ending);
+            System.out.printf("%-6s %,d ms%n", ending, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package chess.tablebase;
+
+/**
+ * The exact value of an endgame position with best play from both sides, from the
+ * point of view of the side to move
+ *
+ * @param plies half moves until mate, 0 for a draw and for a side that is mated already
+ */
+public record TablebaseResult(Outcome outcome, int plies) {
+
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param code a table entry, see {@link Tablebase#probeCode}
+     */
+    static TablebaseResult of(int code) {
+        if (code == 0) {
+            return new TablebaseResult(Outcome.DRAW, 0);
+        }
+        int plies = code - 1;
+        return new TablebaseResult(plies % 2 == 1 ? Outcome.WIN : Outcome.LOSS, plies);
+    }
+
+    /**
+     * @return full moves until mate, counted like {@code SearchResult.mateIn}: positive
+     * when the side to move mates, negative when it gets mated, 0 for a draw
+     */
+    public int mateIn() {
+        return switch (outcome) {
+            case WIN -> (plies + 1) / 2;
+            case LOSS -> -(plies / 2);
+            case DRAW -> 0;
+        };
+    }
+}
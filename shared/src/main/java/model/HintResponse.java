@@ -0,0 +1,14 @@
+package model;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * @param line   the best line for both sides, starting with the suggested move
+ * @param score  centipawns for the side to move
+ * @param mateIn moves until mate, negative when the side to move gets mated, 0 for none
+ * @param depth  the deepest iteration the search finished
+ */
+public record HintResponse(ChessMove move, List<ChessMove> line, int score, int mateIn, int depth, long nodes) {
+}
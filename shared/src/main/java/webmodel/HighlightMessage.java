@@ -6,5 +6,6 @@ import websocket.messages.ServerMessage;
 import java.util.Collection;
 import java.util.Map;
 
-public record HighlightMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game, Collection<ChessMove> moves) {
+public record HighlightMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game, Collection<ChessMove> moves,
+                               Collection<ChessMove> bookMoves) {
 }
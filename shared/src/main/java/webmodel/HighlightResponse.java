@@ -5,5 +5,10 @@ import chess.ChessPiece;
 import java.util.Collection;
 import java.util.Map;
 
-public record HighlightResponse(Map<String, ChessPiece> allPieces, Collection<ChessMove> moves) {
+/**
+ * @param bookMoves the moves among moves that the opening book plays, empty if there is
+ *                  no book or it does not know the position
+ */
+public record HighlightResponse(Map<String, ChessPiece> allPieces, Collection<ChessMove> moves,
+                                Collection<ChessMove> bookMoves) {
 }
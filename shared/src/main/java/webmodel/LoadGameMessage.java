@@ -5,5 +5,21 @@ import websocket.messages.ServerMessage;
 
 import java.util.Map;
 
-public record LoadGameMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game) {
+/**
+ * @param evaluation  the position's static evaluation in centipawns from white's point
+ *                    of view, null when the server did not compute one
+ * @param encodedGame the whole game as Base64 of {@link chess.GameCodec}, sent instead of
+ *                    the pieces to clients that asked for it on connect, null otherwise
+ */
+public record LoadGameMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game,
+                              Integer evaluation, String encodedGame) {
+
+    public LoadGameMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game) {
+        this(serverMessageType, game, null);
+    }
+
+    public LoadGameMessage(ServerMessage.ServerMessageType serverMessageType, Map<String, ChessPiece> game,
+                           Integer evaluation) {
+        this(serverMessageType, game, evaluation, null);
+    }
 }
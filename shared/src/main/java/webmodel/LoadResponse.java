@@ -4,5 +4,8 @@ import chess.ChessPiece;
 
 import java.util.Map;
 
-public record LoadResponse(Map<String, ChessPiece> board) {
+/**
+ * @param encodedGame the game as Base64 of {@link chess.GameCodec}
+ */
+public record LoadResponse(Map<String, ChessPiece> board, int evaluation, String encodedGame) {
 }
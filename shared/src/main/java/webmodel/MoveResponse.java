@@ -4,5 +4,9 @@ import chess.ChessPiece;
 
 import java.util.Map;
 
-public record MoveResponse(Map<String, ChessPiece> game, String user, String gameState) {
+/**
+ * @param encodedGame the game after the move as Base64 of {@link chess.GameCodec}
+ */
+public record MoveResponse(Map<String, ChessPiece> game, String user, String gameState, int evaluation,
+                           String encodedGame) {
 }
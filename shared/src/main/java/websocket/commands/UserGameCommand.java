@@ -22,6 +22,12 @@ public class UserGameCommand {
 
     private String location = "";
 
+    /**
+     * Asks for LOAD_GAME messages carrying the encoded game instead of the pieces, see
+     * {@link chess.GameCodec}. Only read from CONNECT.
+     */
+    private boolean compactGame = false;
+
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID) {
         this.commandType = commandType;
         this.authToken = authToken;
@@ -72,6 +78,14 @@ public class UserGameCommand {
         return location;
     }
 
+    public boolean wantsCompactGame() {
+        return compactGame;
+    }
+
+    public void setCompactGame(boolean compactGame) {
+        this.compactGame = compactGame;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
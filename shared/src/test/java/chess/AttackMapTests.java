@@ -0,0 +1,57 @@
+package chess;
+
+import chess.Perft.ReferencePosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AttackMapTests {
+
+    @Test
+    @DisplayName("Mask Legality Matches Make/Unmake")
+    public void legalityMatchesMakeUnmake() {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            walk(position.game().getBoard(), 3);
+        }
+    }
+
+    @Test
+    @DisplayName("Checkmate And Stalemate In One Pass")
+    public void gameEnds() {
+        ChessBoard mate = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - -").getBoard();
+        AttackMap mated = AttackMap.of(mate, ChessGame.TeamColor.BLACK);
+        Assertions.assertTrue(mated.inCheck(), "Back rank mate is check");
+        Assertions.assertFalse(mated.hasLegalMove(), "Back rank mate has no replies");
+
+        ChessBoard stale = ChessGame.fromFen("k7/2Q5/1K6/8/8/8/8/8 b - -").getBoard();
+        AttackMap stalemated = AttackMap.of(stale, ChessGame.TeamColor.BLACK);
+        Assertions.assertFalse(stalemated.inCheck(), "Stalemate is not check");
+        Assertions.assertFalse(stalemated.hasLegalMove(), "Stalemated king has no moves");
+
+        ChessBoard doubleCheck = ChessGame.fromFen("4k3/8/5N2/8/8/8/8/4R1K1 b - -").getBoard();
+        AttackMap doubled = AttackMap.of(doubleCheck, ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(2, Long.bitCount(doubled.checkers()), "Knight and rook both give check");
+        Assertions.assertTrue(doubled.hasLegalMove(), "The king can still walk away");
+    }
+
+    private static void walk(ChessBoard board, int depth) {
+        ChessGame.TeamColor side = board.getTeamTurn();
+        AttackMap attackMap = AttackMap.of(board, side);
+        Assertions.assertEquals(board.isKingAttacked(side), attackMap.inCheck(), "Check disagrees:\n" + board);
+        int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+        int count = BitboardMoveGenerator.allMoves(board, side, moves, 0);
+        boolean anyLegal = false;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            boolean legal = !board.isKingAttacked(side);
+            if (legal && depth > 1) {
+                walk(board, depth - 1);
+            }
+            board.unmakeMove();
+            anyLegal |= legal;
+            Assertions.assertEquals(legal, attackMap.isLegal(moves[i]),
+                    "Legality of " + Moves.toString(moves[i]) + " disagrees:\n" + board);
+        }
+        Assertions.assertEquals(anyLegal, attackMap.hasLegalMove(), "Legal move existence disagrees:\n" + board);
+    }
+}
@@ -0,0 +1,89 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class DrawRuleTests {
+
+    private static final String[] KNIGHT_SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+    @Test
+    @DisplayName("Third Repetition Draws")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        play(game, "g1f3", "g8f6", "f3g1");
+        Assertions.assertFalse(game.gameOver, "Start position has only occurred twice");
+        play(game, "f6g8");
+        Assertions.assertTrue(game.gameOver, "Start position occurred three times");
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Pawn Move Starts A New Repetition Count")
+    public void irreversibleMoveResets() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        play(game, "e2e3", "e7e6");
+        play(game, KNIGHT_SHUFFLE);
+        Assertions.assertFalse(game.gameOver, "Positions before the pawn moves can not repeat");
+        Assertions.assertEquals(4, game.getHalfmoveClock());
+        play(game, KNIGHT_SHUFFLE);
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Repetition History Survives Serialization")
+    public void historySerialized() throws InvalidMoveException {
+        var gson = new Gson();
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        play(game, "g1f3", "g8f6", "f3g1");
+        game = gson.fromJson(gson.toJson(game), ChessGame.class);
+        play(game, "f6g8");
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Repetition Counts A Loaded Game's First Position With Black To Move")
+    public void loadedWithoutHistory() throws InvalidMoveException {
+        var gson = new Gson();
+        ChessGame game = new ChessGame();
+        play(game, "g1f3");
+        // as stored before the history and the board's turn were saved with the game
+        var json = gson.toJsonTree(game).getAsJsonObject();
+        json.remove("positionKeys");
+        json.remove("positionCount");
+        json.getAsJsonObject("board").remove("blackToMove");
+        game = gson.fromJson(json, ChessGame.class);
+        play(game, "g8f6", "f3g1", "f6g8", "g1f3");
+        play(game, "g8f6", "f3g1", "f6g8");
+        Assertions.assertFalse(game.gameOver, "Position after g1f3 has only occurred twice");
+        play(game, "g1f3");
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Hundredth Quiet Ply Draws")
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 98 80");
+        play(game, "a1a2");
+        Assertions.assertFalse(game.gameOver, "Only 99 quiet plies so far");
+        play(game, "e8d8");
+        Assertions.assertTrue(game.gameOver, "100 quiet plies should draw");
+        Assertions.assertEquals(ChessGame.DrawReason.FIFTY_MOVE_RULE, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Checkmate On The Hundredth Ply Is Still Checkmate")
+    public void checkmateBeatsFiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("k7/8/1K6/8/8/8/8/7R w - - 99 80");
+        play(game, "h1h8");
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        Assertions.assertNull(game.getDrawReason(), "Checkmate takes precedence over the fifty-move rule");
+    }
+}
@@ -0,0 +1,127 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.Perft.ReferencePosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class EvaluatorTests {
+
+    @Test
+    @DisplayName("Incremental Totals Match Full Recompute")
+    public void incrementalMatchesRecompute() {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            walk(board, 3);
+        }
+    }
+
+    @Test
+    @DisplayName("Start Position Is Even")
+    public void startIsEven() {
+        Assertions.assertEquals(0, new Evaluator().whiteScore(new ChessGame().getBoard()));
+    }
+
+    @Test
+    @DisplayName("Mirrored Position Scores The Opposite")
+    public void symmetry() {
+        Evaluator evaluator = new Evaluator();
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            Assertions.assertEquals(-evaluator.whiteScore(board), evaluator.whiteScore(mirror(board)),
+                    "Evaluation is not symmetric in " + position);
+        }
+    }
+
+    @Test
+    @DisplayName("Score Follows The Side To Move")
+    public void sideToMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "d7d5", "e4d5");
+        Evaluator evaluator = new Evaluator();
+        int white = evaluator.whiteScore(game.getBoard());
+        Assertions.assertTrue(white > 50, "White is a pawn up, got " + white);
+        Assertions.assertEquals(-white, evaluator.evaluate(game.getBoard()), "Black is to move");
+    }
+
+    @Test
+    @DisplayName("Passed Pawns Count More Near Promotion")
+    public void passedPawns() {
+        // a lone white pawn on c5, then on c7, then on c5 facing a black pawn on d7
+        long far = Evaluator.pawnTerms(1L << 34, 0L);
+        long near = Evaluator.pawnTerms(1L << 50, 0L);
+        Assertions.assertTrue((short) (near >>> 16) > (short) (far >>> 16), "Endgame bonus should grow");
+        long blocked = Evaluator.pawnTerms(1L << 34, 1L << 51);
+        Assertions.assertTrue((short) (far >>> 16) > (short) (blocked >>> 16), "An opposed pawn is not passed");
+    }
+
+    @Test
+    @DisplayName("Pawn Table Does Not Change The Score")
+    public void pawnTable() {
+        Evaluator cached = new Evaluator(1);
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            int first = cached.whiteScore(board);
+            Assertions.assertEquals(first, cached.whiteScore(board), "Cached pawn terms differ in " + position);
+            Assertions.assertEquals(first, new Evaluator().whiteScore(board), "Fresh table differs in " + position);
+        }
+    }
+
+    @Test
+    @DisplayName("Totals Survive Serialization")
+    public void serialization() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "c7c5", "g1f3");
+        var gson = new Gson();
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(new Evaluator().whiteScore(game.getBoard()),
+                new Evaluator().whiteScore(loaded.getBoard()));
+    }
+
+    private static void walk(ChessBoard board, int depth) {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        long pawnKey = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.squares[sq];
+            if (piece != null) {
+                int index = ChessBoard.boardIndex(piece.faction, piece.type);
+                middlegame += Evaluator.MIDDLEGAME[index * 64 + sq];
+                endgame += Evaluator.ENDGAME[index * 64 + sq];
+                phase += Evaluator.PHASE_WEIGHT[index];
+                if (piece.type == ChessPiece.PieceType.PAWN) {
+                    pawnKey ^= Zobrist.piece(piece, sq);
+                }
+            }
+        }
+        Assertions.assertEquals(middlegame, board.middlegame, "Middlegame total drifted:\n" + board);
+        Assertions.assertEquals(endgame, board.endgame, "Endgame total drifted:\n" + board);
+        Assertions.assertEquals(phase, board.phase, "Phase drifted:\n" + board);
+        Assertions.assertEquals(pawnKey, board.pawnKey, "Pawn key drifted:\n" + board);
+        if (depth == 0) {
+            return;
+        }
+        for (int move : Perft.legalMoves(board, board.getTeamTurn())) {
+            board.makeMove(move);
+            walk(board, depth - 1);
+            board.unmakeMove();
+        }
+    }
+
+    private static ChessBoard mirror(ChessBoard board) {
+        ChessBoard mirrored = new ChessBoard();
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.squares[sq];
+            if (piece != null) {
+                TeamColor other = piece.faction == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+                mirrored.setSquare(sq ^ 56, new ChessPiece(other, piece.type));
+            }
+        }
+        return mirrored;
+    }
+}
@@ -0,0 +1,83 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Start Position")
+    public void startPosition() {
+        Assertions.assertEquals(Fen.START, new ChessGame().toFen());
+        Assertions.assertEquals(new ChessGame(), ChessGame.fromFen(Fen.START));
+        Assertions.assertEquals(new ChessGame().getBoard().zobristKey(),
+                ChessGame.fromFen(Fen.START).getBoard().zobristKey());
+    }
+
+    @Test
+    @DisplayName("Counters, En Passant And Castling Follow The Game")
+    public void followsGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        play(game, "c7c5", "g1f3");
+        Assertions.assertEquals("rnbqkbnr/pp1ppppp/8/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2", game.toFen());
+        play(game, "b8c6", "f1b5", "g8f6", "e1g1");
+        Assertions.assertEquals("r1bqkb1r/pp1ppppp/2n2n2/1Bp5/4P3/5N2/PPPP1PPP/RNBQ1RK1 b kq - 5 4", game.toFen());
+        play(game, "h8g8");
+        Assertions.assertEquals(5, game.getFullmoveNumber());
+        Assertions.assertTrue(game.toFen().contains(" q - 6 5"));
+    }
+
+    @Test
+    @DisplayName("Round Trips Keep The Position")
+    public void roundTrip() {
+        for (Perft.ReferencePosition position : Perft.ReferencePosition.values()) {
+            ChessGame game = position.game();
+            ChessGame copy = ChessGame.fromFen(game.toFen());
+            Assertions.assertEquals(game.toFen(), copy.toFen(), position.name());
+            Assertions.assertEquals(game.getBoard().zobristKey(), copy.getBoard().zobristKey(), position.name());
+            Assertions.assertEquals(position.expectedNodes(2), Perft.perft(copy, 2), position.name());
+        }
+        String partial = "r3k2r/8/8/8/8/8/8/R3K2R w Kq - 12 40";
+        Assertions.assertEquals(partial, ChessGame.fromFen(partial).toFen());
+    }
+
+    @Test
+    @DisplayName("En Passant From A FEN Can Be Played")
+    public void enPassant() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 30");
+        play(game, "e5d6");
+        Assertions.assertEquals("4k3/8/3P4/8/8/8/8/4K3 b - - 0 30", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Short Forms And Extra Whitespace")
+    public void shortForms() {
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3 w - - 0 1", ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w").toFen());
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3 b Q - 0 1",
+                ChessGame.fromFen("  4k3/8/8/8/8/8/8/R3K3 b Q -  ").toFen());
+    }
+
+    @Test
+    @DisplayName("Malformed FENs Are Rejected")
+    public void malformed() {
+        String[] bad = {
+                "",
+                "8/8/8/8 w - - 0 1",
+                "rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkz - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - zero 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+        };
+        for (String fen : bad) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+}
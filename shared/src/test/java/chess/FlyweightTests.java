@@ -0,0 +1,53 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FlyweightTests {
+
+    @Test
+    @DisplayName("Factories Share Instances On The Board")
+    public void sharedInstances() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                Assertions.assertSame(ChessPosition.of(row, col), ChessPosition.of(row, col),
+                        "Position " + row + "," + col + " is not shared");
+            }
+        }
+        ChessPosition e7 = ChessPosition.of(7, 5);
+        ChessPosition e8 = ChessPosition.of(8, 5);
+        Assertions.assertSame(ChessMove.of(e7, e8, PieceType.QUEEN), ChessMove.of(e7, e8, PieceType.QUEEN),
+                "Promotion is not shared");
+        Assertions.assertSame(ChessMove.of(e7, e7, null), ChessMove.of(e7, e7, null),
+                "Highlight marker is not shared");
+    }
+
+    @Test
+    @DisplayName("Shared Instances Equal Constructed Ones")
+    public void equalsConstructed() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition constructed = new ChessPosition(row, col);
+                Assertions.assertEquals(constructed, ChessPosition.of(row, col));
+                Assertions.assertEquals(constructed.hashCode(), ChessPosition.of(row, col).hashCode());
+            }
+        }
+        ChessMove constructed = new ChessMove(new ChessPosition(2, 1), new ChessPosition(1, 2), PieceType.KNIGHT);
+        ChessMove shared = ChessMove.of(ChessPosition.of(2, 1), ChessPosition.of(1, 2), PieceType.KNIGHT);
+        Assertions.assertEquals(constructed, shared);
+        Assertions.assertEquals(constructed.hashCode(), shared.hashCode());
+    }
+
+    @Test
+    @DisplayName("Off Board And Impossible Moves Still Work")
+    public void outsideTable() {
+        ChessPosition offBoard = ChessPosition.of(0, 9);
+        Assertions.assertEquals(0, offBoard.getRow());
+        Assertions.assertEquals(9, offBoard.getColumn());
+        // no piece moves a1 to b3 and promotes, so the table has no entry for it
+        ChessMove odd = ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(3, 2), PieceType.ROOK);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(3, 2), PieceType.ROOK), odd);
+    }
+}
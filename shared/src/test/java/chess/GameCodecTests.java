@@ -0,0 +1,114 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static chess.TestMoves.move;
+import static chess.TestMoves.play;
+
+public class GameCodecTests {
+
+    private static final String[] KNIGHT_SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+    @Test
+    @DisplayName("Decodes To The Same Game As Gson")
+    public void matchesGson() throws InvalidMoveException {
+        var gson = new Gson();
+        List<ChessGame> games = new ArrayList<>();
+        for (Perft.ReferencePosition position : Perft.ReferencePosition.values()) {
+            games.add(position.game());
+        }
+        ChessGame enPassant = new ChessGame();
+        play(enPassant, "e2e4", "c7c5", "e4e5", "d7d5");
+        games.add(enPassant);
+        ChessGame played = new ChessGame();
+        play(played, "e2e4", "c7c5", "e4e5", "d7d5", "g1f3", "e8d7", "f1b5");
+        games.add(played);
+        ChessGame mated = new ChessGame();
+        play(mated, "f2f3", "e7e5", "g2g4", "d8h4");
+        games.add(mated);
+
+        for (ChessGame game : games) {
+            ChessGame fromJson = gson.fromJson(gson.toJson(game), ChessGame.class);
+            byte[] bytes = GameCodec.encode(game);
+            ChessGame decoded = GameCodec.decode(bytes);
+            Assertions.assertEquals(fromJson, decoded, game.toFen());
+            Assertions.assertEquals(fromJson.toFen(), decoded.toFen());
+            Assertions.assertArrayEquals(fromJson.getPositionKeys(), decoded.getPositionKeys());
+            Assertions.assertEquals(fromJson.getGameStatus(), decoded.getGameStatus());
+            Assertions.assertTrue(bytes.length * 4 < gson.toJson(game).length(),
+                    bytes.length + " bytes against " + gson.toJson(game).length() + " of JSON");
+        }
+        Assertions.assertTrue(GameCodec.decode(GameCodec.encode(mated)).gameOver);
+    }
+
+    @Test
+    @DisplayName("Repetition History Survives Encoding")
+    public void historyEncoded() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, KNIGHT_SHUFFLE);
+        play(game, "g1f3", "g8f6", "f3g1");
+        game = GameCodec.decodeString(GameCodec.encodeToString(game));
+        play(game, "f6g8");
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, game.getDrawReason());
+
+        ChessGame drawn = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertTrue(drawn.gameOver);
+        Assertions.assertEquals(ChessGame.DrawReason.THREEFOLD_REPETITION, drawn.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Moves After The Position Are Replayed")
+    public void moveList() throws InvalidMoveException {
+        String fen = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+        ChessGame start = ChessGame.fromFen(fen);
+        List<ChessMove> moves = List.of(move("e1g1"), move("a8a1"), move("f1a1"));
+        byte[] bytes = GameCodec.encode(start, moves);
+        Assertions.assertEquals(GameCodec.encode(start).length + 6, bytes.length, "Two bytes a move");
+
+        ChessGame expected = ChessGame.fromFen(fen);
+        for (ChessMove move : moves) {
+            expected.makeMove(move);
+        }
+        ChessGame decoded = GameCodec.decode(bytes);
+        Assertions.assertEquals(expected, decoded);
+        Assertions.assertEquals("4k2r/8/8/8/8/8/8/R5K1 b k - 0 2", decoded.toFen());
+        Assertions.assertEquals(fen, start.toFen(), "Start is left as it was");
+
+        byte[] illegal = GameCodec.encode(start, List.of(move("e1g1"), move("e8e6")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(illegal));
+    }
+
+    @Test
+    @DisplayName("Promotions Fit In Two Bytes")
+    public void moves() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        Assertions.assertEquals(promotion, GameCodec.decodeMove(GameCodec.encodeMove(promotion)));
+        ChessMove quiet = move("h8a1");
+        Assertions.assertEquals(quiet, GameCodec.decodeMove(GameCodec.encodeMove(quiet)));
+    }
+
+    @Test
+    @DisplayName("Rejects Other Versions And Short Input")
+    public void rejectsBadInput() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        Assertions.assertEquals(45, bytes.length);
+
+        byte[] newer = bytes.clone();
+        newer[2] = (byte) (GameCodec.VERSION + 1);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(newer));
+        Assertions.assertTrue(ex.getMessage().contains("version"), ex.getMessage());
+
+        byte[] json = new Gson().toJson(new ChessGame()).getBytes();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(json));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(Arrays.copyOf(bytes, 20)));
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+import chess.ChessGame.GameStatus;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class MoveStatusTests {
+
+    @Test
+    @DisplayName("Status Follows The Game")
+    public void statusAfterEachMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(GameStatus.ONGOING, game.getGameStatus());
+        play(game, "f2f3", "e7e5", "g2g4");
+        Assertions.assertEquals(GameStatus.ONGOING, game.getGameStatus());
+        play(game, "d8h4");
+        Assertions.assertEquals(GameStatus.CHECKMATE, game.getGameStatus(), "Fool's mate");
+        Assertions.assertTrue(game.gameOver);
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE), "Cached status disagrees with the rules");
+    }
+
+    @Test
+    @DisplayName("Check And Stalemate")
+    public void checkAndStalemate() throws InvalidMoveException {
+        ChessGame check = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - -");
+        play(check, "a1a8");
+        Assertions.assertEquals(GameStatus.CHECK, check.getGameStatus());
+        Assertions.assertFalse(check.gameOver);
+
+        ChessGame stalemate = ChessGame.fromFen("k7/8/1K6/8/8/8/8/2Q5 w - -");
+        play(stalemate, "c1c7");
+        Assertions.assertEquals(GameStatus.STALEMATE, stalemate.getGameStatus());
+        Assertions.assertTrue(stalemate.gameOver);
+    }
+
+    @Test
+    @DisplayName("Status Is Worked Out For Games Without One")
+    public void lazyStatus() throws InvalidMoveException {
+        var gson = new Gson();
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "f7f6", "d2d4", "g7g5", "d1h5");
+        String json = gson.toJson(game).replace(",\"status\":\"CHECKMATE\"", "");
+        Assertions.assertFalse(json.contains("status"), "Test needs a saved game without a status");
+        Assertions.assertEquals(GameStatus.CHECKMATE, gson.fromJson(json, ChessGame.class).getGameStatus());
+
+        ChessGame edited = new ChessGame();
+        edited.setBoard(ChessGame.fromFen("k7/2Q5/1K6/8/8/8/8/8 b - -").getBoard());
+        edited.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(GameStatus.STALEMATE, edited.getGameStatus());
+    }
+}
@@ -0,0 +1,73 @@
+package chess;
+
+import chess.Perft.ReferencePosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+public class PerftTests {
+
+    /**
+     * Keeps each position under roughly half a million nodes so the suite stays quick
+     */
+    private static final long NODE_BUDGET = 500_000;
+
+    @Test
+    @DisplayName("Reference Positions Match Known Counts")
+    public void referenceCounts() {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            for (int depth = 1; depth <= position.maxDepth() && position.expectedNodes(depth) <= NODE_BUDGET; depth++) {
+                Assertions.assertEquals(position.expectedNodes(depth), Perft.run(position.game(), depth).nodes(),
+                        "Wrong node count for " + position + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Divide Adds Up To Perft")
+    public void divideMatchesPerft() {
+        ChessGame game = ReferencePosition.KIWIPETE.game();
+        Map<String, Long> divide = Perft.divide(game, 3);
+        Assertions.assertEquals(48, divide.size(), "Wrong number of root moves");
+        Assertions.assertEquals(ReferencePosition.KIWIPETE.expectedNodes(3),
+                divide.values().stream().mapToLong(Long::longValue).sum(), "Divide does not add up");
+        Assertions.assertEquals(ReferencePosition.KIWIPETE.expectedNodes(3), Perft.perft(game, 3),
+                "Sequential perft disagrees with divide");
+    }
+
+    @Test
+    @DisplayName("Perft Leaves The Game Untouched")
+    public void boardRestored() {
+        ChessGame game = ReferencePosition.CASTLING_AND_PROMOTIONS.game();
+        ChessBoard before = game.getBoard().clone();
+        Perft.perft(game, 3);
+        Perft.divide(game, 2);
+        Assertions.assertEquals(before, game.getBoard(), "Board changed after perft");
+    }
+
+    @Test
+    @DisplayName("Valid Moves Agree With Perft Root Moves")
+    public void validMovesAgree() {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessGame game = position.game();
+            TreeSet<String> expected = new TreeSet<>(Perft.divide(game, 1).keySet());
+            TreeSet<String> actual = new TreeSet<>();
+            ChessBoard board = game.getBoard();
+            for (int sq = 0; sq < 64; sq++) {
+                ChessPiece piece = board.squares[sq];
+                if (piece == null || piece.faction != game.getTeamTurn()) {
+                    continue;
+                }
+                for (ChessMove move : game.validMoves(Moves.position(sq))) {
+                    if (!move.getStartPosition().equals(move.getEndPosition())) {
+                        actual.add(Moves.toString(Moves.of(move)));
+                    }
+                }
+            }
+            Assertions.assertEquals(expected, actual, "validMoves disagrees with perft for " + position);
+        }
+    }
+}
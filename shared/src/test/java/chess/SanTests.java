@@ -0,0 +1,93 @@
+package chess;
+
+import chess.Perft.ReferencePosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class SanTests {
+
+    @Test
+    @DisplayName("Parse Piece And Pawn Moves")
+    public void pieceMoves() {
+        ChessBoard board = new ChessGame().getBoard();
+        Assertions.assertEquals("e2e4", Moves.toString(San.parse(board, "e4")));
+        Assertions.assertEquals("g1f3", Moves.toString(San.parse(board, "Nf3")));
+        Assertions.assertEquals("b1c3", Moves.toString(San.parse(board, "Nc3!?")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(board, "e5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(board, "Qd4"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(board, "xx"));
+    }
+
+    @Test
+    @DisplayName("Parse Captures, Castling And Disambiguation")
+    public void kiwipete() {
+        ChessBoard board = ReferencePosition.KIWIPETE.game().getBoard();
+        Assertions.assertEquals("e1g1", Moves.toString(San.parse(board, "O-O")));
+        Assertions.assertEquals("e1c1", Moves.toString(San.parse(board, "0-0-0")));
+        Assertions.assertEquals("d5e6", Moves.toString(San.parse(board, "dxe6")));
+        Assertions.assertEquals("e5f7", Moves.toString(San.parse(board, "Nxf7")));
+        Assertions.assertEquals("e2a6", Moves.toString(San.parse(board, "Bxa6")));
+    }
+
+    @Test
+    @DisplayName("Ambiguous Moves Need A File Or Rank")
+    public void disambiguation() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "a7a6", "d2d3", "a6a5");
+        ChessBoard board = game.getBoard();
+        // both knights can go to d2
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(board, "Nd2"));
+        Assertions.assertEquals("b1d2", Moves.toString(San.parse(board, "Nbd2")));
+        Assertions.assertEquals("f3d2", Moves.toString(San.parse(board, "N3d2")));
+        Assertions.assertEquals("f3d2", Moves.toString(San.parse(board, "Nf3d2")));
+    }
+
+    @Test
+    @DisplayName("Parse Promotions")
+    public void promotions() {
+        ChessBoard board = ChessGame.fromFen("r3k3/1P6/8/8/8/8/8/4K3 w - -").getBoard();
+        int withEquals = San.parse(board, "bxa8=Q");
+        Assertions.assertEquals(ChessPiece.PieceType.QUEEN, Moves.promotion(withEquals));
+        Assertions.assertEquals(withEquals, San.parse(board, "bxa8Q"));
+        Assertions.assertEquals(ChessPiece.PieceType.KNIGHT, Moves.promotion(San.parse(board, "b8=N+")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(board, "bxa8"));
+    }
+
+    @Test
+    @DisplayName("Format Reads Back As The Same Move")
+    public void format() throws InvalidMoveException {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            AttackMap attackMap = AttackMap.of(board, board.getTeamTurn());
+            int[] moves = new int[BitboardMoveGenerator.MAX_MOVES];
+            int count = BitboardMoveGenerator.allMoves(board, board.getTeamTurn(), moves, 0);
+            for (int i = 0; i < count; i++) {
+                if (attackMap.isLegal(moves[i])) {
+                    String san = San.format(board, moves[i]);
+                    Assertions.assertEquals(Moves.key(moves[i]), Moves.key(San.parse(board, san)), position + " " + san);
+                }
+            }
+        }
+
+        ChessBoard kiwipete = ReferencePosition.KIWIPETE.game().getBoard();
+        Assertions.assertEquals("O-O", San.format(kiwipete, San.parse(kiwipete, "O-O")));
+        Assertions.assertEquals("O-O-O", San.format(kiwipete, San.parse(kiwipete, "O-O-O")));
+        Assertions.assertEquals("Nxf7", San.format(kiwipete, San.parse(kiwipete, "Nxf7")));
+        Assertions.assertEquals("dxe6", San.format(kiwipete, San.parse(kiwipete, "dxe6")));
+
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "a7a6", "d2d3", "a6a5");
+        ChessBoard board = game.getBoard();
+        Assertions.assertEquals("Nbd2", San.format(board, San.parse(board, "Nb1d2")));
+        Assertions.assertEquals("Nfd2", San.format(board, San.parse(board, "N3d2")));
+
+        ChessBoard promotion = ChessGame.fromFen("r3k3/1P6/8/8/8/8/8/4K3 w - -").getBoard();
+        Assertions.assertEquals("bxa8=Q+", San.format(promotion, San.parse(promotion, "bxa8Q")));
+        Assertions.assertEquals("b8=N", San.format(promotion, San.parse(promotion, "b8N")));
+        ChessBoard mate = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - -").getBoard();
+        Assertions.assertEquals("Ra8#", San.format(mate, San.parse(mate, "Ra8")));
+    }
+}
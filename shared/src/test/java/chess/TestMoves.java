@@ -0,0 +1,32 @@
+package chess;
+
+/**
+ * Moves written in coordinate notation for tests, "e2e4", or "e7e8q" to promote
+ */
+public final class TestMoves {
+
+    private TestMoves() {
+    }
+
+    public static ChessMove move(String move) {
+        ChessPosition start = new ChessPosition(move.charAt(1) - '0', move.charAt(0) - 'a' + 1);
+        ChessPosition end = new ChessPosition(move.charAt(3) - '0', move.charAt(2) - 'a' + 1);
+        ChessPiece.PieceType promotion = null;
+        if (move.length() > 4) {
+            promotion = switch (move.charAt(4)) {
+                case 'q' -> ChessPiece.PieceType.QUEEN;
+                case 'r' -> ChessPiece.PieceType.ROOK;
+                case 'b' -> ChessPiece.PieceType.BISHOP;
+                case 'n' -> ChessPiece.PieceType.KNIGHT;
+                default -> throw new IllegalArgumentException("Unknown promotion in " + move);
+            };
+        }
+        return new ChessMove(start, end, promotion);
+    }
+
+    public static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(move(move));
+        }
+    }
+}
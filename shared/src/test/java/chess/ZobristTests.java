@@ -0,0 +1,96 @@
+package chess;
+
+import chess.Perft.ReferencePosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Incremental Key Matches Full Recompute")
+    public void incrementalMatchesRecompute() {
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            long root = board.zobristKey();
+            walk(board, 3);
+            Assertions.assertEquals(root, board.zobristKey(), "Key not restored by unmakeMove in " + position);
+        }
+    }
+
+    @Test
+    @DisplayName("Transpositions Share A Key")
+    public void transpositions() throws InvalidMoveException {
+        ChessGame viaKnights = new ChessGame();
+        long start = viaKnights.getBoard().zobristKey();
+        play(viaKnights, "g1f3", "g8f6", "f3g1", "f6g8");
+        Assertions.assertEquals(start, viaKnights.getBoard().zobristKey(), "Knights back home should be the start key");
+
+        ChessGame first = new ChessGame();
+        play(first, "e2e3", "e7e6", "d2d3", "d7d6");
+        ChessGame second = new ChessGame();
+        play(second, "d2d3", "d7d6", "e2e3", "e7e6");
+        Assertions.assertEquals(first.getBoard().zobristKey(), second.getBoard().zobristKey(),
+                "Move order should not change the key");
+    }
+
+    @Test
+    @DisplayName("Side To Move, Castling And En Passant Change The Key")
+    public void stateInKey() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long white = game.getBoard().zobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(white, game.getBoard().zobristKey(), "Side to move is not in the key");
+
+        ChessGame castled = new ChessGame();
+        play(castled, "g1f3", "g8f6", "h1g1", "h8g8", "g1h1", "g8h8");
+        ChessGame unmoved = new ChessGame();
+        play(unmoved, "g1f3", "g8f6");
+        Assertions.assertNotEquals(unmoved.getBoard().zobristKey(), castled.getBoard().zobristKey(),
+                "Lost castling rights are not in the key");
+
+        ChessGame capturable = new ChessGame();
+        play(capturable, "e2e4", "a7a6", "e4e5", "d7d5");
+        Assertions.assertNotEquals(withoutEnPassant(capturable.getBoard()),
+                capturable.getBoard().zobristKey(), "A pawn that can be taken en passant is not in the key");
+
+        ChessGame uncapturable = new ChessGame();
+        play(uncapturable, "e2e4");
+        Assertions.assertEquals(withoutEnPassant(uncapturable.getBoard()),
+                uncapturable.getBoard().zobristKey(), "A double push nobody can take should not change the key");
+    }
+
+    @Test
+    @DisplayName("Key Survives Serialization")
+    public void serialization() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "c7c5", "g1f3");
+        var gson = new Gson();
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getBoard().zobristKey(), loaded.getBoard().zobristKey(),
+                "Round tripped game has a different key");
+    }
+
+    private static long withoutEnPassant(ChessBoard board) {
+        ChessBoard copy = board.clone();
+        copy.enPassantPosition = null;
+        copy.whitePawnDoubleMove = false;
+        copy.blackPawnDoubleMove = false;
+        return copy.zobristKey();
+    }
+
+    private static void walk(ChessBoard board, int depth) {
+        Assertions.assertEquals(Zobrist.of(board), board.zobristKey(), "Incremental key drifted:\n" + board);
+        if (depth == 0) {
+            return;
+        }
+        for (int move : Perft.legalMoves(board, board.getTeamTurn())) {
+            board.makeMove(move);
+            walk(board, depth - 1);
+            board.unmakeMove();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static chess.TestMoves.move;
+import static chess.TestMoves.play;
+
+public class OpeningBookTests {
+
+    private static final String PGN = """
+            [Event "Casual"]
+            [White "a"]
+            [Black "b"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "Casual"]
+            [Result "1/2-1/2"]
+
+            1.e4 c5 2.Nf3 $1 d6 ; Najdorf next
+            3.d4 1/2-1/2
+
+            [Event "Casual"]
+            [Result "0-1"]
+
+            1. d4 d5 2. c4 e6 3. Nc3 Nf6 0-1
+
+            [Event "Broken"]
+            [Result "*"]
+
+            1. e4 Ke7 2. d4 *
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Moves Come Back Heaviest First")
+    public void weights() throws IOException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_PLIES);
+        List<BookMove> moves = book.moves(new ChessGame());
+        // e4: a win, a draw and an unknown result; d4 only lost
+        Assertions.assertEquals(List.of(new BookMove(move("e2e4"), 4)), moves);
+        Assertions.assertEquals(move("e2e4"), book.best(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Replies Are In The Book Too")
+    public void replies() throws IOException, InvalidMoveException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_PLIES);
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        List<BookMove> replies = book.moves(game);
+        // black only lost with e5, so the draw's c5 is all that is left
+        Assertions.assertEquals(List.of(new BookMove(move("c7c5"), 1)), replies);
+        play(game, "e7e5", "g1f3", "b8c6", "f1b5", "a7a6");
+        Assertions.assertTrue(book.moves(game).isEmpty(), "The game left the book");
+    }
+
+    @Test
+    @DisplayName("Games Are Cut At The Ply Limit")
+    public void plies() throws IOException, InvalidMoveException {
+        OpeningBook book = build(2);
+        Assertions.assertEquals(2, book.plies());
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5");
+        Assertions.assertTrue(book.moves(game).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Weighted Pick Only Returns Book Moves")
+    public void pick() throws IOException, InvalidMoveException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_PLIES);
+        ChessGame game = new ChessGame();
+        play(game, "e2e4");
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(move("c7c5"), book.pick(game, random));
+        }
+        play(game, "a7a6");
+        Assertions.assertNull(book.pick(game, random));
+    }
+
+    @Test
+    @DisplayName("Engine Plays From The Book Without Searching")
+    public void engine() throws IOException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_PLIES);
+        Engine engine = new Engine(new TranspositionTable(1), book);
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(6));
+        Assertions.assertEquals(move("e2e4"), result.bestMove());
+        Assertions.assertEquals(0, result.nodes());
+    }
+
+    @Test
+    @DisplayName("Reject Files That Are Not Books")
+    public void badFile() throws IOException {
+        Path file = directory.resolve("bad.book");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(file));
+        Path good = directory.resolve("good.book");
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        builder.addPgn(new StringReader(PGN));
+        builder.write(good);
+        byte[] bytes = Files.readAllBytes(good);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    private OpeningBook build(int plies) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        Assertions.assertEquals(4, builder.addPgn(new StringReader(PGN)));
+        Assertions.assertEquals(1, builder.rejected());
+        Path file = directory.resolve("test.book");
+        builder.write(file);
+        return OpeningBook.open(file);
+    }
+}
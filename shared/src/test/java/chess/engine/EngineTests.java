@@ -0,0 +1,111 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static chess.TestMoves.move;
+import static chess.TestMoves.play;
+
+public class EngineTests {
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    public void mateInOne() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(move("h5f7"), result.bestMove(), "Scholar's mate missed");
+        Assertions.assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Does Not Walk Into Mate")
+    public void avoidsMate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "f2f3", "e7e5");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(3));
+        Assertions.assertNotEquals(move("g2g4"), result.bestMove(), "Walked into fool's mate");
+        Assertions.assertFalse(result.isMate(), "No mate for either side here");
+    }
+
+    @Test
+    @DisplayName("Takes A Free Queen")
+    public void winsMaterial() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "g1f3", "d8h4");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(move("f3h4"), result.bestMove(), "Hanging queen not taken");
+        Assertions.assertTrue(result.score() > 500, "Score should show the extra queen");
+    }
+
+    @Test
+    @DisplayName("Principal Variation Is Playable")
+    public void principalVariation() {
+        ChessGame game = new ChessGame();
+        SearchResult result = new Engine().search(game, SearchLimits.depth(4));
+        Assertions.assertEquals(4, result.depth());
+        Assertions.assertFalse(result.principalVariation().isEmpty());
+        for (ChessMove move : result.principalVariation()) {
+            Assertions.assertDoesNotThrow(() -> game.makeMove(move), "Illegal move in " + result.principalVariation());
+        }
+    }
+
+    @Test
+    @DisplayName("Search Leaves The Game Untouched")
+    public void gameUntouched() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "c7c5");
+        ChessBoard before = game.getBoard().clone();
+        new Engine().search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(before, game.getBoard());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Decided Game Has No Move")
+    public void noMoveWhenOver() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "f2f3", "e7e5", "g2g4", "d8h4");
+        SearchResult result = new Engine().search(game, SearchLimits.depth(3));
+        Assertions.assertNull(result.bestMove());
+    }
+
+    @Test
+    @DisplayName("Respects Node And Time Limits")
+    public void limits() {
+        SearchResult byNodes = new Engine().search(new ChessGame(), SearchLimits.nodes(20_000));
+        Assertions.assertTrue(byNodes.nodes() <= 20_000 + 1024, "Ran " + byNodes.nodes() + " nodes");
+        Assertions.assertNotNull(byNodes.bestMove());
+
+        SearchResult byTime = new Engine().search(new ChessGame(), SearchLimits.millis(100));
+        Assertions.assertTrue(byTime.nanos() < TimeUnit.MILLISECONDS.toNanos(100 + 50),
+                "Took " + TimeUnit.NANOSECONDS.toMillis(byTime.nanos()) + "ms");
+        Assertions.assertNotNull(byTime.bestMove());
+    }
+
+    @Test
+    @DisplayName("Stops When Asked From Another Thread")
+    public void stopFromAnotherThread() throws Exception {
+        Engine engine = new Engine();
+        CompletableFuture<SearchResult> search = CompletableFuture.supplyAsync(
+                () -> engine.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH)));
+        Thread.sleep(50);
+        long asked = System.nanoTime();
+        // stop only reaches a search that has started, so keep asking until it has
+        while (!search.isDone() && System.nanoTime() - asked < TimeUnit.SECONDS.toNanos(1)) {
+            engine.stop();
+            Thread.sleep(5);
+        }
+        SearchResult result = search.get(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(result.depth() < SearchLimits.MAX_DEPTH);
+        Assertions.assertNotNull(result.bestMove());
+    }
+}
@@ -0,0 +1,121 @@
+package chess.engine;
+
+import chess.BitboardMoveGenerator;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Evaluator;
+import chess.InvalidMoveException;
+import chess.Moves;
+import chess.Perft.ReferencePosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static chess.TestMoves.play;
+
+public class MovePickerTests {
+
+    @Test
+    @DisplayName("Every Move Is Picked Exactly Once")
+    public void allMovesOnce() {
+        MovePicker picker = new MovePicker(new MoveHistory());
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            int[] buffer = new int[BitboardMoveGenerator.MAX_MOVES];
+            int count = BitboardMoveGenerator.allMoves(board, board.getTeamTurn(), buffer, 0);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                expected.add(buffer[i]);
+            }
+            // the last generated move as a hash move, so it has to be skipped later on
+            List<Integer> picked = pick(picker.reset(board, Moves.key(buffer[count - 1]), 0, false));
+            Assertions.assertEquals(buffer[count - 1], picked.get(0), "Hash move should come first in " + position);
+            Assertions.assertEquals(count, picked.size(), "Duplicate moves in " + position);
+            Assertions.assertEquals(expected, new HashSet<>(picked), "Wrong moves in " + position);
+        }
+    }
+
+    @Test
+    @DisplayName("Tactical Moves Only In Quiescence")
+    public void tacticalOnly() {
+        MovePicker picker = new MovePicker(new MoveHistory());
+        for (ReferencePosition position : ReferencePosition.values()) {
+            ChessBoard board = position.game().getBoard();
+            int[] buffer = new int[BitboardMoveGenerator.MAX_MOVES];
+            int count = BitboardMoveGenerator.tacticalMoves(board, board.getTeamTurn(), buffer, 0);
+            List<Integer> picked = pick(picker.reset(board, 0, 0, true));
+            Assertions.assertEquals(count, picked.size(), "Wrong number of moves in " + position);
+            for (int move : picked) {
+                Assertions.assertTrue(Moves.isCapture(move) || Moves.promotion(move) != null,
+                        Moves.toString(move) + " is quiet in " + position);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Captures Come Most Valuable Victim First")
+    public void mvvLva() {
+        ChessBoard board = ReferencePosition.KIWIPETE.game().getBoard();
+        List<Integer> picked = pick(new MovePicker(new MoveHistory()).reset(board, 0, 0, false));
+        int previous = Integer.MAX_VALUE;
+        for (int move : picked) {
+            if (!Moves.isCapture(move)) {
+                break;
+            }
+            var victim = board.getPiece(Moves.position(Moves.to(move)));
+            int value = victim == null ? 100 : Evaluator.value(victim.getPieceType());
+            Assertions.assertTrue(value <= previous, "Captures out of order at " + Moves.toString(move));
+            previous = value;
+        }
+        Assertions.assertTrue(Moves.isCapture(picked.get(0)));
+    }
+
+    @Test
+    @DisplayName("Killers And History Order The Quiet Moves")
+    public void killersAndHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5");
+        ChessBoard board = game.getBoard();
+        MoveHistory history = new MoveHistory();
+        int killer = Moves.of(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        int favourite = Moves.of(new ChessMove(new ChessPosition(1, 6), new ChessPosition(4, 3), null));
+        history.cutoff(0, favourite, 5, 6);
+        history.cutoff(0, killer, 0, 1);
+        List<Integer> picked = pick(new MovePicker(history).reset(board, 0, 0, false));
+        // no captures here, so the killer leads, then the move with the best history
+        Assertions.assertEquals(killer, picked.get(0));
+        Assertions.assertEquals(favourite, picked.get(1));
+        Assertions.assertEquals(1, picked.stream().filter(move -> move == killer).count());
+    }
+
+    @Test
+    @DisplayName("Moves That Do Not Fit The Position Are Dropped")
+    public void staleMoves() {
+        ChessBoard board = new ChessGame().getBoard();
+        // a black move, and a white knight jump from an empty square
+        int black = Moves.of(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        int empty = Moves.of(new ChessMove(new ChessPosition(3, 3), new ChessPosition(5, 4), null));
+        MoveHistory history = new MoveHistory();
+        history.cutoff(0, empty, 0, 1);
+        MovePicker picker = new MovePicker(history).reset(board, Moves.key(black), 0, false);
+        Assertions.assertFalse(picker.hasHashMove());
+        List<Integer> picked = pick(picker);
+        Assertions.assertEquals(20, picked.size());
+        Assertions.assertFalse(picked.contains(empty));
+    }
+
+    private static List<Integer> pick(MovePicker picker) {
+        List<Integer> picked = new ArrayList<>();
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            picked.add(move);
+        }
+        return picked;
+    }
+}
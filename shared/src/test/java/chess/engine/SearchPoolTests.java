@@ -0,0 +1,87 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static chess.TestMoves.play;
+
+public class SearchPoolTests {
+
+    @Test
+    @DisplayName("Single Engine Is Deterministic")
+    public void deterministic() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "g1f3");
+        SearchResult first = new Engine().search(game, SearchLimits.depth(5));
+        SearchResult second = new Engine().search(game, SearchLimits.depth(5));
+        Assertions.assertEquals(first.principalVariation(), second.principalVariation());
+        Assertions.assertEquals(first.score(), second.score());
+        Assertions.assertEquals(first.nodes(), second.nodes());
+    }
+
+    @Test
+    @DisplayName("Helpers Do Not Change The Answer To A Tactic")
+    public void helpersFindMate() throws Exception {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6");
+        try (SearchPool pool = new SearchPool(3, 3, new TranspositionTable(1))) {
+            SearchResult result = pool.search(game, SearchLimits.depth(4));
+            Assertions.assertEquals(new ChessMove(new ChessPosition(5, 8), new ChessPosition(7, 6), null),
+                    result.bestMove());
+            Assertions.assertEquals(1, result.mateIn());
+        }
+    }
+
+    @Test
+    @DisplayName("Many Callers Share A Small Pool")
+    public void manyCallers() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try (SearchPool pool = new SearchPool(2, 2, new TranspositionTable(1))) {
+            List<Future<SearchResult>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> pool.search(new ChessGame(), SearchLimits.millis(50))));
+            }
+            for (Future<SearchResult> result : results) {
+                // eight 50ms searches on two threads have to be done well within a second
+                Assertions.assertNotNull(result.get(1, TimeUnit.SECONDS).bestMove());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Interrupting The Caller Cancels The Search")
+    public void interrupt() throws Exception {
+        try (SearchPool pool = new SearchPool(2, 2, new TranspositionTable(1))) {
+            Thread caller = Thread.currentThread();
+            CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                caller.interrupt();
+            });
+            long start = System.nanoTime();
+            Assertions.assertThrows(InterruptedException.class,
+                    () -> pool.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH)));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            // the pool threads were told to stop, so a new search gets going right away
+            SearchResult next = pool.search(new ChessGame(), SearchLimits.depth(3));
+            Assertions.assertEquals(3, next.depth());
+        }
+    }
+}
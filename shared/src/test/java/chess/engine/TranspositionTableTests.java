@@ -0,0 +1,107 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Stored Entry Reads Back")
+    public void roundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEF0L;
+        Assertions.assertEquals(0L, table.probe(key), "Empty table should miss");
+        table.store(key, 0x7ABC, -29_990, 12, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        Assertions.assertEquals(0x7ABC, TranspositionTable.move(entry));
+        Assertions.assertEquals(-29_990, TranspositionTable.score(entry));
+        Assertions.assertEquals(12, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(0L, table.probe(key ^ (1L << 40)), "Different key in the same bucket should miss");
+        Assertions.assertEquals(new TranspositionTable.Stats(1, 2, 0), table.stats());
+    }
+
+    @Test
+    @DisplayName("Deep Entries Survive Shallow Ones")
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        // same low bits, so the same bucket
+        long deep = 0x1_0000_0005L;
+        long shallow = 0x2_0000_0005L;
+        long newer = 0x3_0000_0005L;
+        table.store(deep, 1, 10, 8, TranspositionTable.EXACT);
+        table.store(shallow, 2, 20, 2, TranspositionTable.EXACT);
+        Assertions.assertEquals(8, TranspositionTable.depth(table.probe(deep)), "Deep entry was replaced");
+        Assertions.assertEquals(2, TranspositionTable.depth(table.probe(shallow)));
+
+        table.store(newer, 3, 30, 1, TranspositionTable.EXACT);
+        Assertions.assertNotEquals(0L, table.probe(deep), "Deep entry should still be there");
+        Assertions.assertEquals(0L, table.probe(shallow), "Always-replace slot should hold the newest entry");
+        Assertions.assertNotEquals(0L, table.probe(newer));
+        Assertions.assertEquals(1, table.stats().collisions());
+
+        // a new search makes old entries fair game whatever their depth
+        table.newSearch();
+        table.store(shallow, 2, 20, 2, TranspositionTable.EXACT);
+        Assertions.assertEquals(0L, table.probe(deep), "Stale deep entry should give way");
+    }
+
+    @Test
+    @DisplayName("Fail-Low Result Keeps The Known Move")
+    public void keepsMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, 0x1234, 50, 3, TranspositionTable.EXACT);
+        table.store(42L, 0, -10, 4, TranspositionTable.UPPER);
+        long entry = table.probe(42L);
+        Assertions.assertEquals(0x1234, TranspositionTable.move(entry));
+        Assertions.assertEquals(4, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers Never Hand Out Another Position's Data")
+    public void concurrentAccess() throws InterruptedException {
+        // a small table so the threads fight over the same buckets
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicLong mismatches = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    long key = random.nextLong(1 << 16) * 0x9E3779B97F4A7C15L;
+                    long entry = table.probe(key);
+                    if (entry != 0L && TranspositionTable.move(entry) != expectedMove(key)) {
+                        mismatches.incrementAndGet();
+                    }
+                    table.store(key, expectedMove(key), 0, random.nextInt(20), TranspositionTable.EXACT);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(0, mismatches.get(), "A probe returned data stored for another key");
+    }
+
+    @Test
+    @DisplayName("Engine Reuses The Table")
+    public void engineHits() {
+        TranspositionTable table = new TranspositionTable(1);
+        Engine engine = new Engine(table);
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(5));
+        Assertions.assertEquals(5, result.depth());
+        Assertions.assertTrue(table.stats().hits() > 0, "Iterative deepening should find its own entries");
+    }
+
+    private static int expectedMove(long key) {
+        return (int) (key >>> 48) & 0x7FFF;
+    }
+}
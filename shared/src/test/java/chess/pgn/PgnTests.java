@@ -0,0 +1,167 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static chess.TestMoves.move;
+
+public class PgnTests {
+
+    private static final String PGN = """
+            [Event "Casual \\"blitz\\""]
+            [White "a"]
+            [Black "b"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 (2... d6 3. d4 {Philidor} (3. Bc4)) 3. Bb5 $1 a6 ; Morphy
+            4.Ba4 Nf6 5. O-O 1-0
+
+            % an escaped line 1. d4
+            [Event "No result given"]
+            [Result "1/2-1/2"]
+
+            1.d4 d5 2.c4 e6
+
+            [Event "Scholar"]
+            [SetUp "1"]
+            [FEN "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5Q2/PPPP1PPP/RNB1K1NR w KQkq - 2 3"]
+
+            3. Qxf7# 1-0
+            """;
+
+    @Test
+    @DisplayName("Tags, Moves And Results")
+    public void read() throws IOException {
+        List<PgnGame> games = readAll(PGN);
+        Assertions.assertEquals(3, games.size());
+
+        PgnGame first = games.get(0);
+        Assertions.assertEquals("Casual \"blitz\"", first.tag("Event"));
+        Assertions.assertEquals(List.of("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O"), first.moves());
+        Assertions.assertEquals("1-0", first.result());
+
+        PgnGame second = games.get(1);
+        Assertions.assertEquals(List.of("d4", "d5", "c4", "e6"), second.moves());
+        Assertions.assertEquals("1/2-1/2", second.result(), "Result tag stands in for a missing result");
+
+        ChessGame scholar = games.get(2).replay();
+        Assertions.assertTrue(scholar.isInCheckmate(ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(3, scholar.getFullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("Replay Names The Move That Fails")
+    public void illegalMove() throws IOException {
+        PgnGame game = readAll("1. e4 e5 2. Ke3 *").get(0);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class, game::replay);
+        Assertions.assertTrue(ex.getMessage().contains("2. Ke3"), ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Written Games Read Back The Same")
+    public void roundTrip() throws IOException {
+        List<PgnGame> games = readAll(PGN);
+        StringWriter text = new StringWriter();
+        PgnWriter writer = new PgnWriter(text);
+        for (PgnGame game : games) {
+            writer.write(game);
+        }
+        List<PgnGame> again = readAll(text.toString());
+        Assertions.assertEquals(games.size(), again.size());
+        for (int i = 0; i < games.size(); i++) {
+            Assertions.assertEquals(games.get(i).moves(), again.get(i).moves());
+            Assertions.assertEquals(games.get(i).result(), again.get(i).result());
+            Assertions.assertTrue(again.get(i).tags().entrySet().containsAll(games.get(i).tags().entrySet()));
+        }
+        Assertions.assertTrue(text.toString().startsWith("""
+                [Event "Casual \\"blitz\\""]
+                [Site "?"]
+                [Date "????.??.??"]
+                [Round "?"]
+                [White "a"]
+                [Black "b"]
+                [Result "1-0"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O 1-0
+                """), text.toString());
+        Assertions.assertTrue(text.toString().contains("\n3. Qxf7# 1-0\n"), text.toString());
+    }
+
+    @Test
+    @DisplayName("Moves Played Here Become SAN")
+    public void record() throws IOException {
+        ChessGame start = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K2R b KQ - 0 40");
+        List<ChessMove> moves = List.of(move("e8d7"), move("e1g1"), move("d7c6"), move("a1a6"));
+        PgnGame game = PgnGame.of(Map.of("White", "me"), start, moves, "*");
+        Assertions.assertEquals(List.of("Kd7", "O-O", "Kc6", "Ra6+"), game.moves());
+        String text = PgnWriter.format(game);
+        Assertions.assertTrue(text.contains("\n40... Kd7 41. O-O Kc6 42. Ra6+ *\n"), text);
+        PgnGame again = readAll(text).get(0);
+        Assertions.assertEquals(game.moves(), again.moves());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, again.replay().getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Long Games Wrap Before Eighty Columns")
+    public void wrapping() throws IOException {
+        StringBuilder pgn = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            pgn.append("Nf3 Nf6 Ng1 Ng8 ");
+        }
+        String[] lines = PgnWriter.format(readAll(pgn + "*").get(0)).split("\n");
+        for (String line : lines) {
+            Assertions.assertTrue(line.length() < 80, line);
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel Reading Sees Every Game Once")
+    public void parallel() throws IOException {
+        StringBuilder archive = new StringBuilder();
+        int games = PgnReader.BATCH * 3 + 17;
+        for (int i = 0; i < games; i++) {
+            archive.append("[Round \"").append(i).append("\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1/2-1/2\n\n");
+        }
+        ConcurrentLinkedQueue<String> rounds = new ConcurrentLinkedQueue<>();
+        AtomicInteger replayed = new AtomicInteger();
+        try (PgnReader reader = new PgnReader(new StringReader(archive.toString()))) {
+            long read = reader.forEach(4, game -> {
+                rounds.add(game.tag("Round"));
+                if (game.replay().getFullmoveNumber() == 4) {
+                    replayed.incrementAndGet();
+                }
+            });
+            Assertions.assertEquals(games, read);
+        }
+        Assertions.assertEquals(games, rounds.size());
+        Assertions.assertEquals(games, new HashSet<>(rounds).size());
+        Assertions.assertEquals(games, replayed.get());
+
+        try (PgnReader reader = new PgnReader(new StringReader(archive + "1. e4 Ke7 Kd6 *"))) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> reader.forEach(4, PgnGame::replay));
+        }
+    }
+
+    private static List<PgnGame> readAll(String pgn) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+                games.add(game);
+            }
+        }
+        return games;
+    }
+}
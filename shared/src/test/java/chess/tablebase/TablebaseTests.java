@@ -0,0 +1,148 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        for (String ending : TablebaseGenerator.THREE_PIECE_ENDINGS) {
+            generator.generate(ending);
+        }
+        tablebase = Tablebase.open(directory);
+    }
+
+    @Test
+    @DisplayName("Longest Mates Match The Known Values")
+    public void longestMates() throws IOException {
+        Assertions.assertEquals(3, tablebase.maxPieces());
+        Assertions.assertTrue(tablebase.endings().containsAll(List.of("KQvK", "KRvK", "KBvK", "KNvK", "KPvK")));
+        // the losing side's longest defence, one ply more than the winner's longest mate
+        Assertions.assertEquals(2 * 10 + 1, TableFile.open(directory.resolve("KQvK.tb")).maxCode);
+        Assertions.assertEquals(2 * 16 + 1, TableFile.open(directory.resolve("KRvK.tb")).maxCode);
+        Assertions.assertEquals(2 * 28 + 1, TableFile.open(directory.resolve("KPvK.tb")).maxCode);
+        Assertions.assertEquals(0, TableFile.open(directory.resolve("KNvK.tb")).maxCode);
+    }
+
+    @Test
+    @DisplayName("Mate In One And Mated")
+    public void mate() {
+        ChessBoard board = board("Kb6", "Rh1", "ka8");
+        board.setTeamTurn(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1), tablebase.probe(board));
+        Assertions.assertEquals(1, tablebase.probe(board).mateIn());
+
+        board = board("Kb6", "Rh8", "ka8");
+        board.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.LOSS, 0), tablebase.probe(board));
+    }
+
+    @Test
+    @DisplayName("Black's Pieces Use The Mirrored Table")
+    public void mirrored() {
+        ChessBoard board = board("Ka1", "kb3", "rh8");
+        board.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1), tablebase.probe(board));
+        board.setTeamTurn(ChessGame.TeamColor.WHITE);
+        ChessBoard mirrored = board("ka8", "Kb6", "Rh1");
+        mirrored.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(tablebase.probe(mirrored), tablebase.probe(board));
+    }
+
+    @Test
+    @DisplayName("Draws And Positions Not Covered")
+    public void draws() {
+        // stalemate
+        ChessBoard board = board("Ke6", "Pe7", "ke8");
+        board.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(new TablebaseResult(TablebaseResult.Outcome.DRAW, 0), tablebase.probe(board));
+        Assertions.assertEquals(TablebaseResult.Outcome.DRAW, tablebase.probe(board("Kd1", "Nd4", "ke8")).outcome());
+        Assertions.assertTrue(tablebase.isDeadDraw(board("Kd1", "Nd4", "ke8")));
+        Assertions.assertFalse(tablebase.isDeadDraw(board("Kd1", "Rd4", "ke8")));
+        // the rook has not moved, castling is still on
+        Assertions.assertNull(tablebase.probe(board("Ke1", "Rh1", "kc8")));
+        Assertions.assertNull(tablebase.probe(board("Kd1", "Qd4", "Rd5", "ke8")));
+    }
+
+    @Test
+    @DisplayName("Taking The Last Pawn Against A Knight Ends The Game")
+    public void deadPosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.setBoard(board("Kd1", "Nc3", "ke8", "pd5"));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        ChessMove capture = new ChessMove(new ChessPosition(3, 3), new ChessPosition(5, 4), null);
+        ChessGame.useTablebase(tablebase);
+        try {
+            game.makeMove(capture);
+        } finally {
+            ChessGame.useTablebase(null);
+        }
+        Assertions.assertTrue(game.gameOver);
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+        Assertions.assertEquals(ChessGame.DrawReason.DEAD_POSITION, game.getDrawReason());
+    }
+
+    @Test
+    @DisplayName("Engine Finds The Table's Mate")
+    public void engine() {
+        ChessGame game = new ChessGame();
+        game.setBoard(board("Kd4", "Rh1", "ke6"));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        TablebaseResult expected = game.getEndgameResult();
+        Assertions.assertNull(expected, "No tablebase installed yet");
+        expected = tablebase.probe(game.getBoard());
+        Assertions.assertEquals(TablebaseResult.Outcome.WIN, expected.outcome());
+
+        SearchResult result = new Engine(new TranspositionTable(), null, tablebase).search(game,
+                SearchLimits.depth(2));
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(expected.mateIn(), result.mateIn());
+    }
+
+    /**
+     * @param pieces like "Kb6" for a white king on b6, lower case letters for black
+     */
+    private static ChessBoard board(String... pieces) {
+        ChessBoard board = new ChessBoard();
+        for (String piece : pieces) {
+            char letter = piece.charAt(0);
+            ChessGame.TeamColor color = Character.isUpperCase(letter) ? ChessGame.TeamColor.WHITE
+                    : ChessGame.TeamColor.BLACK;
+            ChessPiece.PieceType type = switch (Character.toUpperCase(letter)) {
+                case 'K' -> ChessPiece.PieceType.KING;
+                case 'Q' -> ChessPiece.PieceType.QUEEN;
+                case 'R' -> ChessPiece.PieceType.ROOK;
+                case 'B' -> ChessPiece.PieceType.BISHOP;
+                case 'N' -> ChessPiece.PieceType.KNIGHT;
+                default -> ChessPiece.PieceType.PAWN;
+            };
+            ChessPosition position = new ChessPosition(piece.charAt(2) - '0', piece.charAt(1) - 'a' + 1);
+            board.addPiece(position, new ChessPiece(color, type));
+        }
+        return board;
+    }
+}